@@ -21,10 +21,95 @@ data class DatabaseConfig(
     /**
      * Prepared statements don't go well with connection pools like PgBouncer (e.g. on Digital Ocean)
      * when running in transaction mode. Default: false (instructs jOOQ to render static statements)
+     * Only used if no [statementMode] is set: true uses [StatementMode.UNNAMED] statements (prepared statements
+     * that are not cached per connection), set [statementMode] to use [StatementMode.CACHED] statements.
      * @see http://www.pgbouncer.org/faq.html
      */
-    var preparedStatements: Boolean = false
+    var preparedStatements: Boolean = false,
+    /**
+     * Overrides [preparedStatements]. [StatementMode.CACHED] falls back to [StatementMode.UNNAMED] when
+     * connected to a [pooler], since named statements don't survive across transactions there.
+     */
+    var statementMode: StatementMode? = null,
+    /** Set to true if the database is accessed via a connection pooler like PgBouncer in transaction mode. */
+    var pooler: Boolean = false,
+    /** Maximum number of prepared statements cached per connection when using [StatementMode.CACHED]. */
+    var preparedStatementCacheSize: Int = 256,
+    /**
+     * Maximum number of query plans (final sql and parameter conversions per query shape) that are cached
+     * when using prepared statements. The least recently used plans are evicted. 0 disables the cache.
+     */
+    var queryCacheSize: Int = 1000,
+    /** Maximum number of rows sent to the database with a single executeBatch call (batch methods of the DAOs). */
+    var batchSize: Int = 1000,
+    /**
+     * Maximum number of commands that are sent on a connection without waiting for their results
+     * (e.g. by the pipelined methods of the DAOs).
+     */
+    var pipeliningLimit: Int = 256,
+    /**
+     * If true, identical selects (same sql and parameters) that run at the same time outside of transactions
+     * are only executed once and share the result. Locking selects (for update/share) and selects calling volatile
+     * built-in functions (nextval, random ...) are always executed.
+     */
+    var singleFlight: Boolean = false,
+    /**
+     * Maximum number of select results that are cached by the DAOs that enable result caching.
+     * 0 disables the result cache.
+     */
+    var resultCacheSize: Int = 0,
+    /** Maximum number of rows held by the result cache in total. */
+    var resultCacheMaxRows: Int = 100_000,
+    /**
+     * If set, the writes of a context are published on this LISTEN/NOTIFY channel (writes in transactions once,
+     * the notification is sent on the connection of the transaction before the commit and delivered with it)
+     * and the caches of all contexts listening on the channel are invalidated.
+     * Requires a Vertx instance and, with a [pooler], an [invalidationConnection].
+     */
+    var invalidationChannel: String? = null,
+    /**
+     * The database to LISTEN on for the [invalidationChannel] if it differs from this config (only host, port,
+     * database, username and password are used). LISTEN needs a session of its own, which poolers in transaction
+     * mode don't provide: with a [pooler] set this to a direct connection to the database.
+     */
+    var invalidationConnection: DatabaseConfig? = null,
+    /** Hosts of read replicas ("host" or "host:port", the port defaults to [port]), see ReplicatedDatabaseContext. */
+    var replicaHosts: List<String> = emptyList(),
+    /** Replicas that lag behind the primary by more than this are not used for reads. */
+    var maxReplicaLagMillis: Long = 5000,
+    /** Interval of the checks of the replication lag of the replicas. */
+    var replicaLagCheckMillis: Long = 1000,
+    /**
+     * If true, the duration, rows and bytes of the executed statements are recorded by statement shape
+     * (see SingleDatabaseContext.queryStats).
+     */
+    var queryStats: Boolean = false,
+    /** Maximum number of statement shapes tracked by the query stats. */
+    var queryStatsMaxShapes: Int = 1000,
+    /**
+     * Statements that take at least this long are kept in the slow query log of the context
+     * (see SingleDatabaseContext.slowQueryLog), 0 disables the log.
+     */
+    var slowQueryThresholdMillis: Long = 0,
+    /** Number of slow queries that are kept. */
+    var slowQueryLogSize: Int = 100,
+    /**
+     * Fraction (0 to 1) of the slow queries that are explained (one at a time, using a separate connection).
+     */
+    var slowQueryExplainRate: Double = 0.0,
+    /**
+     * If true, slow selects (that completed, don't lock rows and call no volatile functions) are explained with
+     * EXPLAIN (ANALYZE, BUFFERS), which runs them again.
+     */
+    var slowQueryExplainAnalyze: Boolean = false
 ) {
+    /** The statement mode to use, derived from [statementMode], [preparedStatements] and [pooler]. */
+    val effectiveStatementMode: StatementMode
+        get() {
+            val mode = statementMode ?: if (preparedStatements) StatementMode.UNNAMED else StatementMode.STATIC
+            return if (mode == StatementMode.CACHED && pooler) StatementMode.UNNAMED else mode
+        }
+
     val url: String
         get() = "jdbc:postgresql://$host:$port/$database"
     // setting the current schema via the connection url uses SET search_path which is
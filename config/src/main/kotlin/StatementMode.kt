@@ -0,0 +1,26 @@
+package io.en4ble.pgaccess
+
+/**
+ * How statements are sent to the database.
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+enum class StatementMode {
+    /**
+     * Values are inlined as literals (rendered by jOOQ, the parameters of generated statements and batches are
+     * inlined the same way), sent with the simple query protocol. Values without a literal form (e.g. geometric
+     * types) and cursors still use unnamed prepared statements.
+     */
+    STATIC,
+
+    /**
+     * Extended query protocol with unnamed prepared statements (binary parameters and results).
+     * Safe to use with connection poolers like PgBouncer in transaction mode.
+     */
+    UNNAMED,
+
+    /**
+     * Extended query protocol with named prepared statements that are cached per connection (LRU),
+     * so that parsing/planning is only done once per connection. Requires a direct connection to PostgreSQL.
+     */
+    CACHED
+}
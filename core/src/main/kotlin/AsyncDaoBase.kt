@@ -2,28 +2,47 @@ package io.en4ble.pgaccess
 
 import io.en4ble.pgaccess.DatabaseContext.Companion.getSingleDatabaseContext
 import io.en4ble.pgaccess.DatabaseContext.Companion.toSingleDatabaseContext
+import io.en4ble.pgaccess.cache.CachePolicy
 import io.en4ble.pgaccess.dto.OrderDTO
 import io.en4ble.pgaccess.dto.PageDTO
 import io.en4ble.pgaccess.dto.PagingDTO
 import io.en4ble.pgaccess.dto.PointDTO
 import io.en4ble.pgaccess.enumerations.SortDirection
 import io.en4ble.pgaccess.enumerations.TypedEnum
+import io.en4ble.pgaccess.exceptions.MultiClientException
+import io.en4ble.pgaccess.exceptions.NoResultsException
+import io.en4ble.pgaccess.sharding.ShardKey
+import io.en4ble.pgaccess.util.BatchLoader
+import io.en4ble.pgaccess.util.BoundSql
 import io.en4ble.pgaccess.util.DaoHelper
 import io.en4ble.pgaccess.util.DaoHelperCommon
 import io.en4ble.pgaccess.util.JooqHelper
+import io.en4ble.pgaccess.util.KWayMerge
 import io.en4ble.pgaccess.util.RxDaoHelper
+import io.reactivex.Flowable
 import io.reactivex.Single
 import io.vertx.core.json.JsonArray
 import io.vertx.core.json.JsonObject
 import io.vertx.core.json.jackson.DatabindCodec
+import io.vertx.kotlin.coroutines.await
 import io.vertx.reactivex.sqlclient.SqlClient
 import io.vertx.sqlclient.Row
 import io.vertx.sqlclient.RowSet
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
 import org.jooq.*
+import org.jooq.impl.DSL
 import org.slf4j.LoggerFactory
 import java.time.LocalDate
 import java.time.LocalDateTime
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import javax.validation.ConstraintViolationException
 import javax.validation.ValidationException
 
@@ -40,6 +59,10 @@ protected constructor(
 
     protected val dsl: DSLContext = context.dsl()
 
+    // generated static sql of tables in the _SCHEMA_ placeholder schema has to be mapped to the configured schema
+    private val mapStaticSqlSchema = table.schema?.name == SCHEMA_PLACEHOLDER
+    private val staticSqlCache = ConcurrentHashMap<String, String>()
+
     protected open fun <ID> primaryKeyField(): TableField<RECORD, ID>? {
         val primaryKeyFields = table().primaryKey?.fields
         if (primaryKeyFields.isNullOrEmpty()) {
@@ -55,15 +78,15 @@ protected constructor(
 
     // -- query optional
     suspend fun queryOptional(query: Query): Optional<Row> {
-        return DaoHelper.queryOptional(query, context)
+        return DaoHelper.queryOptional(query, context, cache = resultCachePolicy)
     }
 
     suspend fun queryOptional(query: Query, client: io.vertx.sqlclient.SqlClient): Optional<Row> {
-        return DaoHelper.queryOptional(query, client, toSingleDatabaseContext(context))
+        return DaoHelper.queryOptional(query, client, toSingleDatabaseContext(context), cache = resultCachePolicy)
     }
 
     suspend fun queryOptional(query: Query, context: DatabaseContext): Optional<Row> {
-        return DaoHelper.queryOptional(query, context)
+        return DaoHelper.queryOptional(query, context, cache = resultCachePolicy)
     }
 
     suspend fun queryOptional(
@@ -71,12 +94,12 @@ protected constructor(
         client: io.vertx.sqlclient.SqlClient,
         context: SingleDatabaseContext
     ): Optional<Row> {
-        return DaoHelper.queryOptional(query, client, context)
+        return DaoHelper.queryOptional(query, client, context, cache = resultCachePolicy)
     }
 
     fun rxQueryOptional(query: Query, clientId: String? = null): Single<Optional<io.vertx.reactivex.sqlclient.Row>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.queryOptional(query, sc)
+        return RxDaoHelper.queryOptional(query, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOptional(
@@ -85,7 +108,7 @@ protected constructor(
         clientId: String? = null
     ): Single<Optional<io.vertx.reactivex.sqlclient.Row>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.queryOptional(query, client, sc)
+        return RxDaoHelper.queryOptional(query, client, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOptional(
@@ -93,20 +116,20 @@ protected constructor(
         context: DatabaseContext
     ): Single<Optional<io.vertx.reactivex.sqlclient.Row>> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.queryOptional(query, sc)
+        return RxDaoHelper.queryOptional(query, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOptional(
         query: Query, client: SqlClient, context: DatabaseContext
     ): Single<Optional<io.vertx.reactivex.sqlclient.Row>> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.queryOptional(query, client, sc)
+        return RxDaoHelper.queryOptional(query, client, sc, cache = resultCachePolicy)
     }
 
     // -- query
 
     suspend fun query(condition: Condition, context: DatabaseContext): RowSet<Row> {
-        return DaoHelper.query(getQuery(condition, table(), dsl), context)
+        return DaoHelper.query(getQuery(condition, table(), dsl), context, cache = resultCachePolicy)
     }
 
     suspend fun query(
@@ -114,23 +137,23 @@ protected constructor(
         client: io.vertx.sqlclient.SqlClient,
         context: SingleDatabaseContext
     ): RowSet<Row> {
-        return DaoHelper.query(getQuery(condition, table(), dsl), client, context)
+        return DaoHelper.query(getQuery(condition, table(), dsl), client, context, cache = resultCachePolicy)
     }
 
     suspend fun query(query: Query, context: DatabaseContext): RowSet<Row> {
-        return DaoHelper.query(query, context)
+        return DaoHelper.query(query, context, cache = resultCachePolicy)
     }
 
     suspend fun query(query: Query, client: io.vertx.sqlclient.SqlClient, context: DatabaseContext): RowSet<Row> {
         val sc = toSingleDatabaseContext(context)
-        return DaoHelper.query(query, client, sc)
+        return DaoHelper.query(query, client, sc, cache = resultCachePolicy)
     }
 
     fun rxQuery(
         condition: Condition, client: SqlClient, context: DatabaseContext
     ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.query(getQuery(condition, table(), dsl), client, sc)
+        return RxDaoHelper.query(getQuery(condition, table(), dsl), client, sc, cache = resultCachePolicy)
     }
 
     fun rxQuery(
@@ -138,7 +161,7 @@ protected constructor(
         context: DatabaseContext
     ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.query(getQuery(condition, table(), dsl), sc)
+        return RxDaoHelper.query(getQuery(condition, table(), dsl), sc, cache = resultCachePolicy)
     }
 
     fun rxQuery(
@@ -146,7 +169,7 @@ protected constructor(
         context: DatabaseContext
     ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.query(query, sc)
+        return RxDaoHelper.query(query, sc, cache = resultCachePolicy)
     }
 
     fun rxQuery(
@@ -155,17 +178,17 @@ protected constructor(
         context: DatabaseContext
     ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.query(query, client, sc)
+        return RxDaoHelper.query(query, client, sc, cache = resultCachePolicy)
     }
 
     suspend fun queryOne(condition: Condition, context: DatabaseContext): Row {
         val sc = toSingleDatabaseContext(context)
-        return DaoHelper.queryOne(getQuery(condition, table(), dsl), sc)
+        return DaoHelper.queryOne(getQuery(condition, table(), dsl), sc, cache = resultCachePolicy)
     }
 
     suspend fun queryOne(condition: Condition, client: io.vertx.sqlclient.SqlClient, context: DatabaseContext): Row {
         val sc = toSingleDatabaseContext(context)
-        return DaoHelper.queryOne(getQuery(condition, table(), dsl), client, sc)
+        return DaoHelper.queryOne(getQuery(condition, table(), dsl), client, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOne(
@@ -173,46 +196,46 @@ protected constructor(
         context: DatabaseContext
     ): Single<io.vertx.reactivex.sqlclient.Row> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.queryOne(getQuery(condition, table(), dsl), sc)
+        return RxDaoHelper.queryOne(getQuery(condition, table(), dsl), sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOne(
         condition: Condition, client: SqlClient, context: DatabaseContext
     ): Single<io.vertx.reactivex.sqlclient.Row> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.queryOne(getQuery(condition, table(), dsl), client, sc)
+        return RxDaoHelper.queryOne(getQuery(condition, table(), dsl), client, sc, cache = resultCachePolicy)
     }
 
     suspend fun queryOne(query: Query, context: DatabaseContext): Row {
-        return DaoHelper.queryOne(query, context)
+        return DaoHelper.queryOne(query, context, cache = resultCachePolicy)
     }
 
     suspend fun queryOne(query: Query, client: io.vertx.sqlclient.SqlClient, context: DatabaseContext): Row {
         val sc = toSingleDatabaseContext(context)
-        return DaoHelper.queryOne(query, client, sc)
+        return DaoHelper.queryOne(query, client, sc, cache = resultCachePolicy)
     }
 
     suspend fun query(query: Query): RowSet<Row> {
-        return DaoHelper.query(query, context)
+        return DaoHelper.query(query, context, cache = resultCachePolicy)
     }
 
     suspend fun query(query: Query, client: io.vertx.sqlclient.SqlClient): RowSet<Row> {
         val sc = toSingleDatabaseContext(context)
-        return DaoHelper.query(query, client, sc)
+        return DaoHelper.query(query, client, sc, cache = resultCachePolicy)
     }
 
     suspend fun queryOne(query: Query): Row {
-        return DaoHelper.queryOne(query, context)
+        return DaoHelper.queryOne(query, context, cache = resultCachePolicy)
     }
 
     suspend fun queryOne(query: Query, client: io.vertx.sqlclient.SqlClient): Row {
         val sc = toSingleDatabaseContext(context)
-        return DaoHelper.queryOne(query, client, sc)
+        return DaoHelper.queryOne(query, client, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOne(query: Query, context: DatabaseContext): Single<io.vertx.reactivex.sqlclient.Row> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.queryOne(query, sc)
+        return RxDaoHelper.queryOne(query, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOne(
@@ -221,7 +244,7 @@ protected constructor(
         context: DatabaseContext
     ): Single<io.vertx.reactivex.sqlclient.Row> {
         val sc = toSingleDatabaseContext(context)
-        return RxDaoHelper.queryOne(query, client, sc)
+        return RxDaoHelper.queryOne(query, client, sc, cache = resultCachePolicy)
     }
 
     fun rxQuery(
@@ -229,7 +252,7 @@ protected constructor(
         clientId: String? = null
     ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.query(query, sc)
+        return RxDaoHelper.query(query, sc, cache = resultCachePolicy)
     }
 
     fun rxQuery(
@@ -238,12 +261,12 @@ protected constructor(
         clientId: String? = null
     ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.query(query, client, sc)
+        return RxDaoHelper.query(query, client, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOne(query: Query, clientId: String? = null): Single<io.vertx.reactivex.sqlclient.Row> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.queryOne(query, sc)
+        return RxDaoHelper.queryOne(query, sc, cache = resultCachePolicy)
     }
 
     fun rxQueryOne(
@@ -252,20 +275,122 @@ protected constructor(
         clientId: String? = null
     ): Single<io.vertx.reactivex.sqlclient.Row> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.queryOne(query, client, sc)
+        return RxDaoHelper.queryOne(query, client, sc, cache = resultCachePolicy)
+    }
+
+    // -- statements with precomputed sql (e.g. the static sql of generated DAOs)
+
+    /**
+     * Resolve the schema of static sql (the generated code uses the schema name that was present at generation time).
+     */
+    protected fun staticSql(sql: String): String {
+        if (!mapStaticSqlSchema) {
+            return sql
+        }
+        return staticSqlCache.computeIfAbsent(sql) {
+            it.replace("\"$SCHEMA_PLACEHOLDER\"", dsl.render(DSL.schema(DSL.name(SCHEMA_PLACEHOLDER))))
+        }
+    }
+
+    /**
+     * The statement of a query identified by a shape id, so that the sql of the query is only rendered by jOOQ the
+     * first time (e.g. `read(statement("readByNameAndState", dsl.selectFrom(table()).where(...)))`).
+     * All queries that use the same id must render the same sql (e.g. no IN lists of varying length).
+     */
+    protected suspend fun statement(shape: String, query: Query): BoundSql {
+        return DaoHelper.statement(shape, query, getSingleDatabaseContext(context))
+    }
+
+    protected fun statement(shape: String, query: Query, clientId: String?): BoundSql {
+        return DaoHelper.statement(shape, query, getSingleDatabaseContext(context, clientId))
+    }
+
+    suspend fun query(statement: BoundSql): RowSet<Row> {
+        return DaoHelper.query(statement, context, cache = resultCachePolicy)
+    }
+
+    suspend fun query(statement: BoundSql, client: io.vertx.sqlclient.SqlClient): RowSet<Row> {
+        val sc = toSingleDatabaseContext(context)
+        return DaoHelper.query(statement, client, sc, cache = resultCachePolicy)
+    }
+
+    suspend fun queryOne(statement: BoundSql): Row {
+        return DaoHelper.queryOne(statement, context, cache = resultCachePolicy)
+    }
+
+    suspend fun queryOne(statement: BoundSql, client: io.vertx.sqlclient.SqlClient): Row {
+        val sc = toSingleDatabaseContext(context)
+        return DaoHelper.queryOne(statement, client, sc, cache = resultCachePolicy)
+    }
+
+    suspend fun queryOptional(statement: BoundSql): Optional<Row> {
+        return DaoHelper.queryOptional(statement, context, cache = resultCachePolicy)
+    }
+
+    suspend fun queryOptional(statement: BoundSql, client: io.vertx.sqlclient.SqlClient): Optional<Row> {
+        val sc = toSingleDatabaseContext(context)
+        return DaoHelper.queryOptional(statement, client, sc, cache = resultCachePolicy)
+    }
+
+    fun rxQuery(
+        statement: BoundSql,
+        clientId: String? = null
+    ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.query(statement, sc, cache = resultCachePolicy)
+    }
+
+    fun rxQuery(
+        statement: BoundSql,
+        client: SqlClient,
+        clientId: String? = null
+    ): Single<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.query(statement, client, sc, cache = resultCachePolicy)
+    }
+
+    fun rxQueryOne(statement: BoundSql, clientId: String? = null): Single<io.vertx.reactivex.sqlclient.Row> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.queryOne(statement, sc, cache = resultCachePolicy)
+    }
+
+    fun rxQueryOne(
+        statement: BoundSql,
+        client: SqlClient,
+        clientId: String? = null
+    ): Single<io.vertx.reactivex.sqlclient.Row> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.queryOne(statement, client, sc, cache = resultCachePolicy)
+    }
+
+    fun rxQueryOptional(
+        statement: BoundSql,
+        clientId: String? = null
+    ): Single<Optional<io.vertx.reactivex.sqlclient.Row>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.queryOptional(statement, sc, cache = resultCachePolicy)
+    }
+
+    fun rxQueryOptional(
+        statement: BoundSql,
+        client: SqlClient,
+        clientId: String? = null
+    ): Single<Optional<io.vertx.reactivex.sqlclient.Row>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.queryOptional(statement, client, sc, cache = resultCachePolicy)
     }
 
     // read uuids
     suspend fun readUUIDs(
         idField: TableField<*, *>, condition: Condition
     ): List<UUID> {
-        return readUUIDs(idField, condition, null, context.sqlClient().delegate)
+        return readUUIDs(idField, condition, null, transactionOrPool())
     }
 
     suspend fun readUUIDs(
         idField: TableField<*, *>, selectFrom: Table<*>, condition: Condition, page: PagingDTO? = null
     ): List<UUID> {
-        return readUUIDs(idField, selectFrom, condition, page, context.sqlClient().delegate)
+        return readUUIDs(idField, selectFrom, condition, page, transactionOrPool())
     }
 
     suspend fun readUUIDs(
@@ -288,7 +413,7 @@ protected constructor(
         idField: TableField<*, *>, condition: Condition, page: PagingDTO? = null, clientId: String? = null
     ): Single<List<UUID>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return rxReadUUIDs(idField, condition, page, sc.sqlClient())
+        return rxReadUUIDs(idField, condition, page, sc.routingClient())
     }
 
     fun rxReadUUIDs(
@@ -698,6 +823,76 @@ protected constructor(
         return rxRead(dsl.select().from(table), table ?: this.table, client, clientId)
     }
 
+    /**
+     * Stream the matching rows using a cursor (inside a transaction), so that at most [fetchSize] rows are
+     * held in memory at a time.
+     */
+    fun readStream(condition: Condition, fetchSize: Int = DEFAULT_FETCH_SIZE): Flow<DTO> {
+        return readStream(getQuery(condition, table, dsl), fetchSize)
+    }
+
+    fun readStream(query: Query, fetchSize: Int = DEFAULT_FETCH_SIZE): Flow<DTO> {
+        return DaoHelper.stream(query, fetchSize, context).map { map(it) }
+    }
+
+    /**
+     * Stream the matching rows using a cursor on the given connection, which must be in a transaction.
+     */
+    fun readStream(
+        condition: Condition,
+        connection: io.vertx.sqlclient.SqlConnection,
+        fetchSize: Int = DEFAULT_FETCH_SIZE
+    ): Flow<DTO> {
+        return readStream(getQuery(condition, table, dsl), connection, fetchSize)
+    }
+
+    fun readStream(
+        query: Query,
+        connection: io.vertx.sqlclient.SqlConnection,
+        fetchSize: Int = DEFAULT_FETCH_SIZE
+    ): Flow<DTO> {
+        return DaoHelper.stream(query, fetchSize, connection, toSingleDatabaseContext(context)).map { map(it) }
+    }
+
+    /**
+     * Stream the matching rows using a cursor (inside a transaction), so that at most [fetchSize] rows are
+     * held in memory at a time.
+     */
+    fun rxReadStream(
+        condition: Condition,
+        fetchSize: Int = DEFAULT_FETCH_SIZE,
+        clientId: String? = null
+    ): Flowable<DTO> {
+        return rxReadStream(getQuery(condition, table, dsl), fetchSize, clientId)
+    }
+
+    fun rxReadStream(query: Query, fetchSize: Int = DEFAULT_FETCH_SIZE, clientId: String? = null): Flowable<DTO> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.stream(query, fetchSize, sc).map { map(it) }
+    }
+
+    /**
+     * Stream the matching rows using a cursor on the given connection, which must be in a transaction.
+     */
+    fun rxReadStream(
+        condition: Condition,
+        connection: io.vertx.reactivex.sqlclient.SqlConnection,
+        fetchSize: Int = DEFAULT_FETCH_SIZE,
+        clientId: String? = null
+    ): Flowable<DTO> {
+        return rxReadStream(getQuery(condition, table, dsl), connection, fetchSize, clientId)
+    }
+
+    fun rxReadStream(
+        query: Query,
+        connection: io.vertx.reactivex.sqlclient.SqlConnection,
+        fetchSize: Int = DEFAULT_FETCH_SIZE,
+        clientId: String? = null
+    ): Flowable<DTO> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.stream(query, fetchSize, connection, sc).map { map(it) }
+    }
+
     suspend fun read(condition: Condition, table: Table<RECORD>): List<DTO> {
         return read(getQuery(condition, table, dsl), table)
     }
@@ -825,7 +1020,7 @@ protected constructor(
         table: Table<RECORD>,
         page: PagingDTO?
     ): List<DTO> {
-        return DaoHelper.read(query, table, page, context).map { map(it, table) }
+        return DaoHelper.read(query, table, page, context, cache = resultCachePolicy).map { map(it, table) }
     }
 
     suspend fun read(
@@ -835,7 +1030,7 @@ protected constructor(
         client: io.vertx.sqlclient.SqlClient
     ): List<DTO> {
         val sc = toSingleDatabaseContext(context)
-        return DaoHelper.read(query, table, page, client, sc).map { map(it, table) }
+        return DaoHelper.read(query, table, page, client, sc, cache = resultCachePolicy).map { map(it, table) }
     }
 
     fun rxRead(
@@ -845,7 +1040,8 @@ protected constructor(
         clientId: String? = null
     ): Single<List<DTO>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.read(query, table, page, sc).map { map(it.delegate as RowSet<Row>, table) }
+        return RxDaoHelper.read(query, table, page, sc, cache = resultCachePolicy)
+            .map { map(it.delegate as RowSet<Row>, table) }
     }
 
     fun rxRead(
@@ -856,7 +1052,8 @@ protected constructor(
         clientId: String? = null
     ): Single<List<DTO>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return RxDaoHelper.read(query, table, page, client, sc).map { map(it.delegate as RowSet<Row>, table) }
+        return RxDaoHelper.read(query, table, page, client, sc, cache = resultCachePolicy)
+            .map { map(it.delegate as RowSet<Row>, table) }
     }
 
     suspend fun readOne(condition: Condition, table: Table<RECORD>): DTO {
@@ -926,7 +1123,7 @@ protected constructor(
     }
 
     suspend fun readOptional(query: Query, table: Table<RECORD>): Optional<DTO> {
-        return readOptional(query, table, context.sqlClient().delegate)
+        return readOptional(query, table, transactionOrPool())
     }
 
     suspend fun readOptional(query: Query, table: Table<RECORD>, client: io.vertx.sqlclient.SqlClient): Optional<DTO> {
@@ -938,9 +1135,17 @@ protected constructor(
         }
     }
 
+    /**
+     * The connection of the transaction of the coroutine (see [SingleDatabaseContext.withTransaction]) or the client
+     * for reads of the current database.
+     */
+    private suspend fun transactionOrPool(): io.vertx.sqlclient.SqlClient {
+        return DaoHelper.readClient(getSingleDatabaseContext(context))
+    }
+
     fun rxReadOptional(query: Query, table: Table<RECORD>, clientId: String? = null): Single<Optional<DTO>> {
         val sc = getSingleDatabaseContext(context, clientId)
-        return rxReadOptional(query, table, sc.sqlClient(), clientId)
+        return rxReadOptional(query, table, sc.routingClient(), clientId)
     }
 
     fun rxReadOptional(
@@ -958,6 +1163,120 @@ protected constructor(
         }
     }
 
+    /**
+     * Run independent queries (reads or writes) concurrently using connections from the pool.
+     * @return the results in the order of the queries
+     */
+    suspend fun queryPipelined(queries: List<Query>): List<RowSet<Row>> {
+        return DaoHelper.pipelined(queries, context)
+    }
+
+    /**
+     * Run independent queries (reads or writes) on the given connection (e.g. of a transaction) without awaiting
+     * each one, so that they are pipelined and finish in about one round trip.
+     * @return the results in the order of the queries
+     */
+    suspend fun queryPipelined(queries: List<Query>, client: io.vertx.sqlclient.SqlClient): List<RowSet<Row>> {
+        return DaoHelper.pipelined(queries, client, toSingleDatabaseContext(context))
+    }
+
+    fun rxQueryPipelined(
+        queries: List<Query>,
+        clientId: String? = null
+    ): Single<List<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.pipelined(queries, sc)
+    }
+
+    fun rxQueryPipelined(
+        queries: List<Query>,
+        client: SqlClient,
+        clientId: String? = null
+    ): Single<List<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.pipelined(queries, client, sc)
+    }
+
+    /**
+     * Run independent selects of this table concurrently using connections from the pool.
+     * @return the results in the order of the queries
+     */
+    suspend fun readPipelined(queries: List<Query>): List<List<DTO>> {
+        return queryPipelined(queries).map { map(it) }
+    }
+
+    /**
+     * Run independent selects of this table on the given connection without awaiting each one.
+     * @return the results in the order of the queries
+     */
+    suspend fun readPipelined(queries: List<Query>, client: io.vertx.sqlclient.SqlClient): List<List<DTO>> {
+        return queryPipelined(queries, client).map { map(it) }
+    }
+
+    fun rxReadPipelined(queries: List<Query>, clientId: String? = null): Single<List<List<DTO>>> {
+        return rxQueryPipelined(queries, clientId).map { results -> results.map { map(it) } }
+    }
+
+    fun rxReadPipelined(queries: List<Query>, client: SqlClient, clientId: String? = null): Single<List<List<DTO>>> {
+        return rxQueryPipelined(queries, client, clientId).map { results -> results.map { map(it) } }
+    }
+
+    suspend fun read(statement: BoundSql): List<DTO> {
+        return map(query(statement))
+    }
+
+    suspend fun read(statement: BoundSql, client: io.vertx.sqlclient.SqlClient): List<DTO> {
+        return map(query(statement, client))
+    }
+
+    fun rxRead(statement: BoundSql, clientId: String? = null): Single<List<DTO>> {
+        return rxQuery(statement, clientId).map { map(it.delegate as RowSet<Row>) }
+    }
+
+    fun rxRead(statement: BoundSql, client: SqlClient, clientId: String? = null): Single<List<DTO>> {
+        return rxQuery(statement, client, clientId).map { map(it.delegate as RowSet<Row>) }
+    }
+
+    suspend fun readOne(statement: BoundSql): DTO {
+        return map(queryOne(statement))
+    }
+
+    suspend fun readOne(statement: BoundSql, client: io.vertx.sqlclient.SqlClient): DTO {
+        return map(queryOne(statement, client))
+    }
+
+    fun rxReadOne(statement: BoundSql, clientId: String? = null): Single<DTO> {
+        return rxQueryOne(statement, clientId).map { map(it.delegate) }
+    }
+
+    fun rxReadOne(statement: BoundSql, client: SqlClient, clientId: String? = null): Single<DTO> {
+        return rxQueryOne(statement, client, clientId).map { map(it.delegate) }
+    }
+
+    suspend fun readOptional(statement: BoundSql): Optional<DTO> {
+        return queryOptional(statement).map { map(it) }
+    }
+
+    suspend fun readOptional(statement: BoundSql, client: io.vertx.sqlclient.SqlClient): Optional<DTO> {
+        return queryOptional(statement, client).map { map(it) }
+    }
+
+    fun rxReadOptional(statement: BoundSql, clientId: String? = null): Single<Optional<DTO>> {
+        return rxQueryOptional(statement, clientId).map { row -> row.map { map(it.delegate) } }
+    }
+
+    fun rxReadOptional(statement: BoundSql, client: SqlClient, clientId: String? = null): Single<Optional<DTO>> {
+        return rxQueryOptional(statement, client, clientId).map { row -> row.map { map(it.delegate) } }
+    }
+
+    suspend fun readCount(statement: BoundSql): Int {
+        return queryOne(statement).getInteger(0)
+    }
+
+    fun rxReadCount(statement: BoundSql, clientId: String? = null): Single<Int> {
+        return rxQueryOne(statement, clientId).map { it.getInteger(0) }
+    }
+
     suspend fun readCount(countQuery: Query): Int {
         return queryOne(countQuery).getInteger(0)
     }
@@ -1065,6 +1384,357 @@ protected constructor(
         offset: Int = 0
     ): List<DTO>
 
+    // ----------- caching of results (opt-in)
+
+    @Volatile
+    private var resultCachePolicy: CachePolicy? = null
+
+    /**
+     * Cache the results of the reads of this DAO for [ttlMillis] milliseconds in the result cache of the context
+     * (see [io.en4ble.pgaccess.DatabaseConfig.resultCacheSize]). Writes to the table of the DAO or to one of the
+     * tables the reads [dependsOn] (e.g. joined tables) invalidate the cached results.
+     */
+    fun cacheResults(ttlMillis: Long, vararg dependsOn: Table<*>) {
+        resultCachePolicy = cachePolicy(ttlMillis, dependsOn)
+    }
+
+    fun disableResultCache() {
+        resultCachePolicy = null
+    }
+
+    /**
+     * Read using the result cache, independent of [cacheResults].
+     */
+    suspend fun readCached(condition: Condition, ttlMillis: Long, vararg dependsOn: Table<*>): List<DTO> {
+        return readCached(getQuery(condition, table(), dsl), ttlMillis, *dependsOn)
+    }
+
+    suspend fun readCached(query: Query, ttlMillis: Long, vararg dependsOn: Table<*>): List<DTO> {
+        return map(DaoHelper.query(query, context, cachePolicy(ttlMillis, dependsOn)))
+    }
+
+    fun rxReadCached(
+        condition: Condition,
+        ttlMillis: Long,
+        clientId: String? = null,
+        vararg dependsOn: Table<*>
+    ): Single<List<DTO>> {
+        return rxReadCached(getQuery(condition, table(), dsl), ttlMillis, clientId, *dependsOn)
+    }
+
+    fun rxReadCached(
+        query: Query,
+        ttlMillis: Long,
+        clientId: String? = null,
+        vararg dependsOn: Table<*>
+    ): Single<List<DTO>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return RxDaoHelper.query(query, sc, cachePolicy(ttlMillis, dependsOn)).map { map(it) }
+    }
+
+    private fun cachePolicy(ttlMillis: Long, dependsOn: Array<out Table<*>>): CachePolicy {
+        val tables = dependsOn.mapTo(hashSetOf(DaoHelperCommon.qualifiedName(table()))) {
+            DaoHelperCommon.qualifiedName(it)
+        }
+        return CachePolicy(ttlMillis, tables)
+    }
+
+    // ----------- coalescing of key lookups (opt-in)
+
+    @Volatile
+    private var keyLookupWindowMs = 0L
+
+    @Volatile
+    private var keyLookupBatchSize = 0
+    private val keyLoaders = ConcurrentHashMap<String, BatchLoader<*, DTO>>()
+
+    /**
+     * Coalesce the lookups by primary key (readOneBy/readOptionalBy of the key column) that are issued within
+     * [windowMs] milliseconds (0: within the current event loop task) into a single query with up to [maxSize] keys.
+     * The batches are read per database (of a [MultiDatabaseContext]) from its client for reads, lookups in a
+     * transaction are not batched.
+     */
+    fun batchKeyLookups(windowMs: Long = 0, maxSize: Int = 100) {
+        keyLookupWindowMs = windowMs
+        keyLookupBatchSize = maxSize
+        keyLoaders.clear()
+    }
+
+    fun disableBatchKeyLookups() {
+        keyLookupBatchSize = 0
+        keyLoaders.clear()
+    }
+
+    fun batchesKeyLookups(): Boolean {
+        return keyLookupBatchSize > 0
+    }
+
+    /**
+     * Read a row by key using the batch loader of the given statement.
+     * @param sql the select of the table with a "= any($1)" condition on the key column
+     * @param keys creates the (typed) array parameter from the keys
+     * @param keyOf the key of a dto
+     * @throws NoResultsException if no matching row was found.
+     */
+    @Throws(NoResultsException::class)
+    protected suspend fun <K : Any> lookupOne(
+        sql: String,
+        key: K,
+        keys: (List<K>) -> Any,
+        keyOf: (DTO) -> K?
+    ): DTO {
+        return lookup(sql, key, keys, keyOf) ?: throw NoResultsException("$sql ($key)")
+    }
+
+    protected suspend fun <K : Any> lookupOptional(
+        sql: String,
+        key: K,
+        keys: (List<K>) -> Any,
+        keyOf: (DTO) -> K?
+    ): Optional<DTO> {
+        return Optional.ofNullable(lookup(sql, key, keys, keyOf))
+    }
+
+    private suspend fun <K : Any> lookup(sql: String, key: K, keys: (List<K>) -> Any, keyOf: (DTO) -> K?): DTO? {
+        val sc = getSingleDatabaseContext(context)
+        val connection = TransactionContext.connection(sc)
+            ?: return keyLoader(sql, keys, keyOf, (context as? MultiDatabaseContext)?.currentClientId())
+                .load(key).await()
+        // the batches are loaded from the pool, in a transaction the key is read on its connection
+        val rows = connection.preparedQuery(sc.statementSql(sql))
+            .execute(io.vertx.sqlclient.Tuple.of(keys(listOf(key))))
+            .await()
+        return map(rows).firstOrNull { keyOf(it) == key }
+    }
+
+    protected fun <K : Any> rxLookupOne(
+        sql: String,
+        key: K,
+        keys: (List<K>) -> Any,
+        keyOf: (DTO) -> K?,
+        clientId: String?
+    ): Single<DTO> {
+        return rxLookupOptional(sql, key, keys, keyOf, clientId).map {
+            it.orElseThrow { NoResultsException("$sql ($key)") }
+        }
+    }
+
+    protected fun <K : Any> rxLookupOptional(
+        sql: String,
+        key: K,
+        keys: (List<K>) -> Any,
+        keyOf: (DTO) -> K?,
+        clientId: String?
+    ): Single<Optional<DTO>> {
+        return Single.create { emitter ->
+            keyLoader(sql, keys, keyOf, clientId).load(key).onComplete { ar ->
+                if (ar.succeeded()) {
+                    emitter.onSuccess(Optional.ofNullable(ar.result()))
+                } else {
+                    emitter.onError(ar.cause())
+                }
+            }
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <K : Any> keyLoader(
+        sql: String,
+        keys: (List<K>) -> Any,
+        keyOf: (DTO) -> K?,
+        clientId: String?
+    ): BatchLoader<K, DTO> {
+        return keyLoaders.computeIfAbsent("$clientId:$sql") {
+            BatchLoader<K, DTO>(keyLookupWindowMs, keyLookupBatchSize) { batch ->
+                val sc = getSingleDatabaseContext(context, clientId)
+                if (LOG.isTraceEnabled) {
+                    LOG.trace("loading {} keys: {}", batch.size, sql)
+                }
+                sc.routingClient().delegate.preparedQuery(sc.statementSql(sql))
+                    .execute(io.vertx.sqlclient.Tuple.of(keys(batch)))
+                    .map<Map<K, DTO>> { rs ->
+                        val values = HashMap<K, DTO>()
+                        for (dto in map(rs)) {
+                            keyOf(dto)?.let { values[it] = dto }
+                        }
+                        values
+                    }
+            }
+        } as BatchLoader<K, DTO>
+    }
+
+    // ----------- sharding
+
+    /**
+     * Run the block on the shard of the key (requires a [ShardedDatabaseContext]).
+     */
+    suspend fun <T> withShard(key: Any, block: suspend () -> T): T {
+        return withContext(ShardKey(key)) { block() }
+    }
+
+    /**
+     * The client id of the shard of the key, to be passed to the reactive methods.
+     */
+    fun shardClientId(key: Any): String {
+        val sharded = context as? ShardedDatabaseContext
+            ?: throw MultiClientException("ShardedDatabaseContext required but is ${context.javaClass.name}")
+        return sharded.clientId(key)
+    }
+
+    // ----------- scatter-gather reads (all databases of a MultiDatabaseContext)
+
+    /**
+     * Read the matching rows from all databases of the context, concurrently on up to [parallelism] databases.
+     * @return the rows in the order of the databases
+     */
+    suspend fun readAcrossAll(condition: Condition, parallelism: Int = SCATTER_PARALLELISM): List<DTO> {
+        val query = getQuery(condition, table(), dsl)
+        return scatter(parallelism) { sc -> map(DaoHelper.query(query, sc)) }.flatten()
+    }
+
+    /**
+     * Read a page (keyset pagination, see [readPage]) from all databases of the context: each database returns at
+     * most [PageDTO.size] rows, which are merged by the order of the page and the id.
+     * NOTE: text is ordered by the "C" collation (by code point) instead of the collation of the column, since the
+     * rows of the databases are merged in memory. Only fields with comparable values (e.g. not json or arrays) can
+     * be used to order the page.
+     */
+    suspend fun <ID> readPageAcrossAll(
+        page: PageDTO<ID>,
+        condition: Condition? = null,
+        parallelism: Int = SCATTER_PARALLELISM
+    ): List<DTO> {
+        val query = pageAcrossAllQuery(page, condition)
+        val rows = scatter(parallelism) { sc -> DaoHelper.query(query, sc).toList() }
+        return KWayMerge.merge(rows, pageComparator(page.orderByList), page.size).map { map(it) }
+    }
+
+    fun rxReadAcrossAll(condition: Condition, parallelism: Int = SCATTER_PARALLELISM): Single<List<DTO>> {
+        val query = getQuery(condition, table(), dsl)
+        return rxScatter(parallelism) { sc -> RxDaoHelper.query(query, sc) }
+            .map { results -> results.flatMap { map(it.delegate as RowSet<Row>) } }
+    }
+
+    fun <ID> rxReadPageAcrossAll(
+        page: PageDTO<ID>,
+        condition: Condition? = null,
+        parallelism: Int = SCATTER_PARALLELISM
+    ): Single<List<DTO>> {
+        val query = pageAcrossAllQuery(page, condition)
+        return rxScatter(parallelism) { sc -> RxDaoHelper.query(query, sc) }.map { results ->
+            val rows = results.map { (it.delegate as RowSet<Row>).toList() }
+            KWayMerge.merge(rows, pageComparator(page.orderByList), page.size).map { map(it) }
+        }
+    }
+
+    /**
+     * The query of [getReadPageQuery] with the orders that [pageComparator] reproduces when merging the rows.
+     */
+    private fun <ID> pageAcrossAllQuery(page: PageDTO<ID>, condition: Condition?): Query {
+        val baseId = page.baseId
+        val baseValues = getBaseValues(page.orderByList, page.baseValues)
+        checkValuesAndOrderBy(baseId, baseValues, page.orderByList)
+        val idField = primaryKeyField<Any>() ?: throw RuntimeException("primary key field required for ${table().name}")
+        if (baseId != null && !idField.type.isInstance(baseId)) {
+            throw ValidationException("Given base id does not match type of database id (${idField.type}")
+        }
+        val orderBy: List<SortField<*>> = page.orderByList.map {
+            mergeSortField(getDbField(it.field), it.direction == SortDirection.ASC)
+        } + mergeSortField(idField, false)
+        val baseQuery = dsl.select().from(table()).where(condition ?: DSL.noCondition())
+            .orderBy(*orderBy.toTypedArray<SortField<*>>())
+        return if (baseId != null) {
+            baseQuery.seek(*arrayOf(*baseValues, baseId)).limit(page.size)
+        } else {
+            baseQuery.limit(page.size)
+        }
+    }
+
+    protected fun singleDatabaseContexts(): Collection<SingleDatabaseContext> {
+        return if (context is MultiDatabaseContext) {
+            (context as MultiDatabaseContext).databaseContexts.values
+        } else {
+            listOf(toSingleDatabaseContext(context))
+        }
+    }
+
+    private suspend fun <T> scatter(parallelism: Int, read: suspend (SingleDatabaseContext) -> T): List<T> {
+        val semaphore = Semaphore(parallelism)
+        return coroutineScope {
+            singleDatabaseContexts().map { sc -> async { semaphore.withPermit { read(sc) } } }.awaitAll()
+        }
+    }
+
+    private fun <T> rxScatter(parallelism: Int, read: (SingleDatabaseContext) -> Single<T>): Single<List<T>> {
+        // subscribes to up to parallelism databases at a time, but keeps the order of the databases
+        return Flowable.fromIterable(singleDatabaseContexts())
+            .concatMapEager({ sc -> read(sc).toFlowable() }, parallelism, 1)
+            .toList()
+    }
+
+    /**
+     * Order by the field in a way [compareColumnValues] can reproduce: text is sorted by code point (collation "C"),
+     * fields whose database values are not comparable (e.g. json, arrays, geometric types) are rejected.
+     */
+    private fun mergeSortField(field: Field<*>, ascending: Boolean): SortField<*> {
+        val type = field.dataType.sqlDataType?.type ?: field.type
+        if (type.isArray || !Comparable::class.java.isAssignableFrom(type)) {
+            throw ValidationException("${field.name} can't be used to order rows across databases (${type.name})")
+        }
+        val ordered = if (type == String::class.java) field.collate("C") else field
+        return if (ascending) ordered.asc() else ordered.desc()
+    }
+
+    /**
+     * The order of [pageAcrossAllQuery] (the order fields, then the id descending) with the null ordering of
+     * PostgreSQL (nulls are greater than any value).
+     */
+    private fun pageComparator(orderBy: List<OrderDTO>): Comparator<Row> {
+        val idField = primaryKeyField<Any>() ?: throw RuntimeException("primary key field required for ${table().name}")
+        val columns = orderBy.map { getDbField(it.field).name to (it.direction == SortDirection.ASC) } +
+            (idField.name to false)
+        return Comparator { a, b ->
+            for ((column, ascending) in columns) {
+                val result = compareColumnValues(a.getValue(column), b.getValue(column))
+                if (result != 0) {
+                    return@Comparator if (ascending) result else -result
+                }
+            }
+            0
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun compareColumnValues(a: Any?, b: Any?): Int {
+        return when {
+            a == null -> if (b == null) 0 else 1
+            b == null -> -1
+            // the "C" collation compares the bytes of the UTF-8 encoding, i.e. the code points
+            a is String && b is String -> compareCodePoints(a, b)
+            // PostgreSQL compares uuids by their unsigned bytes
+            a is UUID && b is UUID -> {
+                val result = java.lang.Long.compareUnsigned(a.mostSignificantBits, b.mostSignificantBits)
+                if (result != 0) result else java.lang.Long.compareUnsigned(a.leastSignificantBits, b.leastSignificantBits)
+            }
+            else -> (a as Comparable<Any>).compareTo(b)
+        }
+    }
+
+    private fun compareCodePoints(a: String, b: String): Int {
+        var i = 0
+        var j = 0
+        while (i < a.length && j < b.length) {
+            val x = a.codePointAt(i)
+            val y = b.codePointAt(j)
+            if (x != y) {
+                return x.compareTo(y)
+            }
+            i += Character.charCount(x)
+            j += Character.charCount(y)
+        }
+        return (a.length - i).compareTo(b.length - j)
+    }
+
     // ----------- CRUD helper methods
 
     fun tsVector(language: String, text: String): Field<Any> {
@@ -1224,4 +1894,15 @@ protected constructor(
     fun getSearchConditionOr(currentCondition: Condition?, newCondition: Condition): Condition {
         return DaoHelperCommon.getSearchConditionOr(currentCondition, newCondition)
     }
+
+    companion object {
+        /** name of the placeholder schema that is mapped to the configured schema */
+        const val SCHEMA_PLACEHOLDER = "_SCHEMA_"
+
+        /** default number of rows fetched at a time by readStream */
+        const val DEFAULT_FETCH_SIZE = 500
+
+        /** default number of databases that are read concurrently by the scatter-gather reads */
+        const val SCATTER_PARALLELISM = 8
+    }
 }
@@ -2,17 +2,37 @@
 
 package io.en4ble.pgaccess
 
+import io.en4ble.pgaccess.cache.InvalidationBus
+import io.en4ble.pgaccess.cache.ResultCache
 import io.en4ble.pgaccess.exceptions.MultiClientException
+import io.en4ble.pgaccess.metrics.DatabaseMetrics
+import io.en4ble.pgaccess.metrics.PoolMonitor
+import io.en4ble.pgaccess.metrics.PoolUsage
+import io.en4ble.pgaccess.metrics.QueryStats
+import io.en4ble.pgaccess.metrics.SlowQueryLog
+import io.en4ble.pgaccess.util.DaoHelperCommon
+import io.en4ble.pgaccess.util.QueryCache
+import io.en4ble.pgaccess.util.SingleFlight
+import io.reactivex.Completable
+import io.reactivex.Scheduler
 import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
 import io.vertx.kotlin.coroutines.await
 import io.vertx.pgclient.PgConnectOptions
 import io.vertx.pgclient.PgPool
 import io.vertx.pgclient.SslMode
+import io.vertx.reactivex.core.RxHelper
 import io.vertx.reactivex.core.Vertx
 import io.vertx.reactivex.sqlclient.SqlClient
+import io.vertx.sqlclient.Pool
 import io.vertx.sqlclient.PoolOptions
 import io.vertx.sqlclient.SqlConnection
 import io.vertx.sqlclient.Transaction
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.withContext
 import org.jooq.Configuration
 import org.jooq.DSLContext
 import org.jooq.SQLDialect
@@ -24,7 +44,14 @@ import org.jooq.impl.CatalogImpl
 import org.jooq.impl.DSL
 import org.jooq.impl.SchemaImpl
 import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 import javax.validation.Validator
+import kotlin.coroutines.coroutineContext
 
 interface DatabaseContext {
     companion object {
@@ -63,12 +90,35 @@ interface DatabaseContext {
 
     fun sqlClient(): SqlClient
 
+    /**
+     * Close the pools and the other connections of the context.
+     */
+    fun close(): Completable
+
     suspend fun beginTx(): Pair<SqlConnection, Transaction>
 
     suspend fun commitTx(connection: SqlConnection, transaction: Transaction)
 
     suspend fun rollbackTx(connection: SqlConnection, transaction: Transaction)
 
+    /**
+     * Run the block in a transaction that is committed when the block completes and rolled back if it throws.
+     * The DAOs pick the connection of the transaction up from the coroutine context, see
+     * [SingleDatabaseContext.withTransaction].
+     */
+    suspend fun <T> withTransaction(
+        options: TransactionOptions = TransactionOptions.DEFAULT,
+        block: suspend CoroutineScope.() -> T
+    ): T {
+        return getSingleDatabaseContext(this).withTransaction(options, block)
+    }
+
+    /**
+     * Run the block in a savepoint of the transaction of the coroutine, see [SingleDatabaseContext.withSavepoint].
+     */
+    suspend fun <T> withSavepoint(block: suspend CoroutineScope.() -> T): T {
+        return getSingleDatabaseContext(this).withSavepoint(block)
+    }
 }
 
 @Suppress("MemberVisibilityCanBePrivate", "unused")
@@ -82,6 +132,10 @@ interface MultiDatabaseContext : DatabaseContext {
 
     fun hasClientId(clientId: String) = databaseContexts.containsKey(clientId)
 
+    override fun close(): Completable {
+        return Completable.merge(databaseContexts.values.map { it.close() })
+    }
+
     private fun getDsl(): DSLContext {
         // even when using multiple databases, they still have to use the same database DSL (it's all Postgresql)
         // so it's save to use the first entry for all
@@ -126,6 +180,13 @@ interface MultiDatabaseContext : DatabaseContext {
         context(clientId).rollbackTx(connection, transaction)
     }
 
+    /**
+     * Report the metrics of all contexts, tagged with their client id.
+     */
+    fun metrics(metrics: DatabaseMetrics) {
+        databaseContexts.forEach { (clientId, context) -> context.metrics(metrics, clientId) }
+    }
+
     override fun config(): DatabaseConfig {
         throw NotImplementedException("config(clientId:String)")
     }
@@ -173,9 +234,56 @@ open class SingleDatabaseContext(
 
     private val sqlClient: SqlClient
 
+    private val queryCache = QueryCache(config.queryCacheSize)
+
+    private val statementMode = config.effectiveStatementMode
+
+    private val singleFlight = if (config.singleFlight) SingleFlight() else null
+
+    private val queryStats = if (config.queryStats) QueryStats(config.queryStatsMaxShapes) else null
+
+    private val writeListeners = CopyOnWriteArrayList<WriteListener>()
+
+    private val queryListeners = CopyOnWriteArrayList<QueryListener>()
+
+    private val resultCache = if (config.resultCacheSize > 0) {
+        ResultCache(config.resultCacheSize, config.resultCacheMaxRows).also { cache ->
+            writeListeners.add(WriteListener { cache.invalidateTable(it) })
+        }
+    } else {
+        null
+    }
+
+    // tables (and keys) written by open transactions, notified again after the commit
+    // (when other connections see the changes)
+    private val transactionWrites =
+        Collections.synchronizedMap(WeakHashMap<io.vertx.sqlclient.SqlClient, MutableMap<String?, MutableSet<Any>?>>())
+
+    private val invalidationBus: InvalidationBus?
+
+    private val slowQueryLog: SlowQueryLog?
+
+    @Volatile
+    private var poolMonitor: PoolMonitor? = null
+
+    // sql of cached statements that had to be prepared again (e.g. after a schema migration), see replan().
+    // Bounded like the statement cache of a connection, evicted statements are prepared with their sql again.
+    private val replannedStatements = object : LinkedHashMap<String, String>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, String>?): Boolean {
+            return size > config.preparedStatementCacheSize
+        }
+    }
+
+    @Volatile
+    private var replanned = false
+    private val replanCount = AtomicInteger()
+
+    // number of savepoints set by open transactions, savepoint names only have to be unique within a transaction
+    private val savepoints = Collections.synchronizedMap(WeakHashMap<io.vertx.sqlclient.SqlClient, AtomicLong>())
+
     private val dsl: DSLContext = DSL.using(
         SQLDialect.POSTGRES,
-        if (config.preparedStatements) {
+        if (statementMode != StatementMode.STATIC) {
             Settings().withStatementType(StatementType.PREPARED_STATEMENT)
         } else {
             Settings().withStatementType(StatementType.STATIC_STATEMENT)
@@ -205,9 +313,66 @@ open class SingleDatabaseContext(
 
     init {
         this.sqlClient = initSqlClient()
+        this.invalidationBus = initInvalidationBus()
+        this.slowQueryLog = initSlowQueryLog()
+        queryStats?.let { queryListeners.add(it) }
+        slowQueryLog?.let { queryListeners.add(it) }
     }
 
     private fun initSqlClient(): SqlClient {
+        return createPool(connectOptions())
+    }
+
+    protected fun createPool(connectOptions: PgConnectOptions, maxSize: Int = config.maxPoolSize): SqlClient {
+        val poolOptions = PoolOptions().setMaxSize(maxSize)
+        return if (vertx != null) {
+            io.vertx.reactivex.pgclient.PgPool.pool(vertx, connectOptions, poolOptions)
+        } else {
+            io.vertx.reactivex.pgclient.PgPool.pool(connectOptions, poolOptions)
+        }
+    }
+
+    private fun initInvalidationBus(): InvalidationBus? {
+        val channel = config.invalidationChannel ?: return null
+        if (vertx == null) {
+            LOG.warn("invalidation channel {} requires a Vertx instance, cross-node invalidation is disabled", channel)
+            return null
+        }
+        val direct = config.invalidationConnection
+        if (direct == null && config.pooler) {
+            LOG.warn("invalidation channel {} requires an invalidationConnection that bypasses the pooler, " +
+                "cross-node invalidation is disabled", channel)
+            return null
+        }
+        val options = connectOptions()
+        if (direct != null) {
+            options.setHost(direct.host)
+                .setPort(direct.port)
+                .setDatabase(direct.database)
+                .setUser(direct.username)
+                .setPassword(direct.password)
+        }
+        return InvalidationBus(vertx.delegate, options, channel, sqlClient.delegate) { table, keys ->
+            notifyWrite(table, keys)
+        }
+    }
+
+    private fun initSlowQueryLog(): SlowQueryLog? {
+        if (config.slowQueryThresholdMillis <= 0) {
+            return null
+        }
+        // plans are fetched on their own connection, so that they never wait for (or block) the pool
+        val explainClient = if (config.slowQueryExplainRate > 0) createPool(connectOptions(), 1).delegate else null
+        return SlowQueryLog(
+            config.slowQueryThresholdMillis,
+            config.slowQueryLogSize,
+            config.slowQueryExplainRate,
+            config.slowQueryExplainAnalyze,
+            explainClient
+        )
+    }
+
+    protected fun connectOptions(): PgConnectOptions {
         val connectOptions = PgConnectOptions()
             .setHost(config.host)
             .setPort(config.port)
@@ -224,16 +389,15 @@ open class SingleDatabaseContext(
                 }
             )
             .setTrustAll(true)
+            // named statements are cached per connection, otherwise the unnamed statement is used
+            .setCachePreparedStatements(statementMode == StatementMode.CACHED)
+            .setPreparedStatementCacheMaxSize(config.preparedStatementCacheSize)
+            .setPipeliningLimit(config.pipeliningLimit)
         // Removes intervalStyle from default properties.
         // Setting this property causes connection attempts with PGBouncer pool to fail with "unsupported startup parameter: intervalStyle"
         // Since PgConnectOptions uses PostgreSQLs default value we can safely remove it.
         connectOptions.properties.remove("intervalStyle")
-        val poolOptions = PoolOptions().setMaxSize(config.maxPoolSize)
-        return if (vertx != null) {
-            io.vertx.reactivex.pgclient.PgPool.pool(vertx, connectOptions, poolOptions)
-        } else {
-            io.vertx.reactivex.pgclient.PgPool.pool(connectOptions, poolOptions)
-        }
+        return connectOptions
     }
 
     override fun config(): DatabaseConfig {
@@ -252,17 +416,381 @@ open class SingleDatabaseContext(
         return sqlClient
     }
 
+    /**
+     * Close the pool, the subscription of the [invalidationBus] and the connection of the [slowQueryLog].
+     * Statements still running may fail.
+     */
+    override fun close(): Completable {
+        return Completable.defer {
+            invalidationBus?.close()
+            slowQueryLog?.close()
+            sqlClient.rxClose()
+        }
+    }
+
+    /**
+     * The client used for statements that are run without an explicit client (e.g. by the read methods of the DAOs),
+     * the pool of the database. [ReplicatedDatabaseContext] sends the selects to the replicas.
+     */
+    open fun routingClient(): SqlClient {
+        return sqlClient
+    }
+
+    /**
+     * Cache of the query plans (final sql and parameter conversions) of the queries run with this context.
+     */
+    fun queryCache(): QueryCache {
+        return queryCache
+    }
+
+    /**
+     * Deduplication of identical reads, null if not enabled in the config.
+     */
+    fun singleFlight(): SingleFlight? {
+        return singleFlight
+    }
+
+    /**
+     * Statistics of the executed statements by shape, null if not enabled in the config.
+     */
+    fun queryStats(): QueryStats? {
+        return queryStats
+    }
+
+    /**
+     * The most recent slow statements, null if not enabled in the config.
+     */
+    fun slowQueryLog(): SlowQueryLog? {
+        return slowQueryLog
+    }
+
+    /**
+     * Cache of select results, null if not enabled in the config.
+     */
+    fun resultCache(): ResultCache? {
+        return resultCache
+    }
+
+    /**
+     * Distribution of the writes to other nodes, null if no invalidation channel is configured.
+     */
+    fun invalidationBus(): InvalidationBus? {
+        return invalidationBus
+    }
+
+    /**
+     * Report the usage of the pool and the duration of the transactions to the metrics.
+     * @param clientId the tag of the metrics of this context
+     */
+    fun metrics(metrics: DatabaseMetrics, clientId: String = DatabaseContext.DEFAULT_CLIENT_ID) {
+        val monitor = PoolMonitor(clientId, config.maxPoolSize, metrics)
+        poolMonitor = monitor
+        // the handler must close the connection to hand it over to the pool
+        (sqlClient.delegate as Pool).connectHandler { connection ->
+            poolMonitor?.connectionCreated(connection)
+            connection.close()
+        }
+        metrics.register(clientId) { monitor.usage() }
+    }
+
+    /**
+     * Usage of the pool, null if no metrics are attached.
+     */
+    fun poolUsage(): PoolUsage? {
+        return poolMonitor?.usage()
+    }
+
+    internal fun poolMonitor(): PoolMonitor? {
+        return poolMonitor
+    }
+
+    fun addQueryListener(listener: QueryListener) {
+        queryListeners.add(listener)
+    }
+
+    fun removeQueryListener(listener: QueryListener) {
+        queryListeners.remove(listener)
+    }
+
+    internal fun queryListeners(): List<QueryListener> {
+        return queryListeners
+    }
+
+    fun addWriteListener(listener: WriteListener) {
+        writeListeners.add(listener)
+    }
+
+    fun removeWriteListener(listener: WriteListener) {
+        writeListeners.remove(listener)
+    }
+
+    /**
+     * Notify the write listeners (and other nodes) if the sql is an insert, update or delete.
+     * @param keys the primary keys of the written rows if known
+     */
+    internal fun written(sql: String, client: io.vertx.sqlclient.SqlClient, keys: Collection<Any>? = null) {
+        if ((writeListeners.isEmpty() && invalidationBus == null) || !DaoHelperCommon.isWrite(sql)) {
+            return
+        }
+        val table = DaoHelperCommon.writtenTable(sql)
+        if (!DaoHelperCommon.isPooled(client)) {
+            synchronized(transactionWrites) {
+                val tables = transactionWrites.getOrPut(client) { HashMap() }
+                if (!tables.containsKey(table)) {
+                    tables[table] = keys?.toHashSet()
+                } else if (keys == null) {
+                    tables[table] = null
+                } else {
+                    tables[table]?.addAll(keys)
+                }
+            }
+        } else {
+            // writes in transactions are published once with the commit
+            invalidationBus?.publish(mapOf(table to keys))
+        }
+        notifyWrite(table, keys)
+    }
+
+    private fun notifyWrite(table: String?, keys: Collection<Any>?) {
+        for (listener in writeListeners) {
+            try {
+                listener.written(table, keys)
+            } catch (e: Exception) {
+                LOG.warn("write listener failed", e)
+            }
+        }
+    }
+
+    private fun committed(connection: io.vertx.sqlclient.SqlClient) {
+        val tables = transactionWrites.remove(connection) ?: return
+        tables.forEach { (table, keys) -> notifyWrite(table, keys) }
+    }
+
+    /**
+     * The notification of the other nodes about the writes of the transaction: it is sent on the connection of the
+     * transaction before the commit, so that it is delivered if (and only if) the transaction commits.
+     */
+    private fun transactionNotification(connection: io.vertx.sqlclient.SqlClient): String? {
+        val bus = invalidationBus ?: return null
+        val tables = synchronized(transactionWrites) { transactionWrites[connection] } ?: return null
+        return bus.notification(tables)
+    }
+
+    fun statementMode(): StatementMode {
+        return statementMode
+    }
+
+    /**
+     * The sql to use for a statement, which differs from the given sql if the statement had to be prepared again.
+     */
+    internal fun statementSql(sql: String): String {
+        if (!replanned) {
+            return sql
+        }
+        return synchronized(replannedStatements) { replannedStatements[sql] } ?: sql
+    }
+
+    /**
+     * Cached statements fail with "cached plan must not change result type" if the result type of the statement
+     * changed (e.g. after a schema migration). Since the statement cache of a connection is keyed by the sql,
+     * the statement gets a new sql (by adding a comment) that is prepared again on each connection.
+     */
+    internal fun replan(sql: String): String {
+        val replanned = "$sql /* replan ${replanCount.incrementAndGet()} */"
+        synchronized(replannedStatements) { replannedStatements[sql] = replanned }
+        this.replanned = true
+        LOG.info("re-preparing statement after change of result type: {}", sql)
+        return replanned
+    }
+
     override suspend fun beginTx(): Pair<SqlConnection, Transaction> {
+        return beginTx(TransactionOptions.DEFAULT)
+    }
+
+    /**
+     * Begin a transaction with the given options, the SET TRANSACTION statement is pipelined with the BEGIN.
+     */
+    suspend fun beginTx(options: TransactionOptions): Pair<SqlConnection, Transaction> {
         logBeginTx()
-        val connection = (sqlClient.delegate as PgPool).connection.await()
-        return connection to connection.begin().await()
+        val monitor = poolMonitor
+        val start = monitor?.acquireStarted() ?: 0
+        val connection = try {
+            (sqlClient.delegate as PgPool).connection.await()
+        } catch (e: Exception) {
+            monitor?.acquireFailed(e)
+            throw e
+        }
+        monitor?.acquired(connection, start)
+        try {
+            val begin = connection.begin()
+            val set = options.sql?.let { connection.query(it).execute() }
+            val transaction = begin.await()
+            set?.await()
+            return connection to transaction
+        } catch (e: Exception) {
+            withContext(NonCancellable) {
+                monitor?.released(connection, false)
+                connection.close().await()
+            }
+            throw e
+        }
+    }
+
+    /**
+     * Run the block in a transaction that is committed when the block completes and rolled back if it throws
+     * (or is cancelled). The transaction is added to the coroutine context, so that the DAOs run all statements
+     * of the block that are run without an explicit client on its connection, there is no need to pass the
+     * connection to the DAO methods:
+     * ```
+     * context.withTransaction {
+     *     val conference = conferenceDao.createReturning(dto)
+     *     speakerDao.createBatch(speakers(conference))
+     * }
+     * ```
+     * A nested call joins the transaction of the enclosing call (its options are ignored, it is retried as part
+     * of the enclosing transaction). With [TransactionOptions.retry] the block is run again in a new transaction
+     * after serialization failures and deadlocks.
+     * NOTE: the rx methods of the DAOs don't see the coroutine context, pass the connection to them.
+     */
+    override suspend fun <T> withTransaction(
+        options: TransactionOptions,
+        block: suspend CoroutineScope.() -> T
+    ): T {
+        val current = coroutineContext[TransactionContext]
+        if (current != null && current.context === this) {
+            return coroutineScope(block)
+        }
+        val retry = options.retry ?: return runTransaction(options, block)
+        retry.budget.deposit()
+        var attempt = 1
+        while (true) {
+            val start = System.nanoTime()
+            try {
+                return runTransaction(options, block)
+            } catch (e: Exception) {
+                val backoff = retryBackoff(retry, e, attempt) ?: throw e
+                delay(backoff.second)
+                retried(retry, backoff.first, System.nanoTime() - start, attempt)
+                attempt++
+            }
+        }
+    }
+
+    /**
+     * The SQLSTATE of the error and the backoff before the next attempt if the transaction is run again, null if
+     * the error is passed on.
+     */
+    private fun retryBackoff(retry: RetryPolicy, e: Throwable, attempt: Int): Pair<String, Long>? {
+        val sqlState = retry.retryableSqlState(e) ?: return null
+        val reason = when {
+            attempt >= retry.maxAttempts -> "attempts"
+            !retry.budget.withdraw() -> "budget"
+            else -> return sqlState to retry.backoffMillis(attempt)
+        }
+        retry.recordRejected()
+        poolMonitor?.retryRejected(sqlState, reason)
+        LOG.debug("transaction failed with {} after {} attempts, not retrying ({})", sqlState, attempt, reason)
+        return null
+    }
+
+    private fun retried(retry: RetryPolicy, sqlState: String, wastedNanos: Long, attempt: Int) {
+        retry.recordRetry(wastedNanos)
+        poolMonitor?.retried(sqlState, wastedNanos)
+        LOG.debug("retrying transaction after {} (attempt {})", sqlState, attempt + 1)
+    }
+
+    private suspend fun <T> runTransaction(options: TransactionOptions, block: suspend CoroutineScope.() -> T): T {
+        val (connection, transaction) = beginTx(options)
+        val result = try {
+            withContext(TransactionContext(this, connection, transaction, options), block)
+        } catch (e: Throwable) {
+            withContext(NonCancellable) {
+                try {
+                    rollbackTx(connection, transaction)
+                } catch (rollbackError: Exception) {
+                    e.addSuppressed(rollbackError)
+                }
+            }
+            throw e
+        }
+        withContext(NonCancellable) {
+            commitTx(connection, transaction)
+        }
+        return result
+    }
+
+    /**
+     * Run the block in a nested scope of the transaction of the coroutine (see [withTransaction]): a savepoint is
+     * set before the block and released when the block completes. If the block (or the release) throws, the
+     * transaction is rolled back to the savepoint and the exception is rethrown. The transaction stays usable, so
+     * that the caller can skip or retry the failed part without redoing the whole transaction:
+     * ```
+     * context.withTransaction {
+     *     for (item in items) {
+     *         try {
+     *             context.withSavepoint { process(item) }
+     *         } catch (e: Exception) {
+     *             failed.add(item)
+     *         }
+     *     }
+     * }
+     * ```
+     * Without a transaction in the coroutine the block runs in a new transaction.
+     */
+    override suspend fun <T> withSavepoint(block: suspend CoroutineScope.() -> T): T {
+        val connection = TransactionContext.connection(this)
+            ?: return withTransaction(TransactionOptions.DEFAULT, block)
+        return withSavepoint(connection, block)
+    }
+
+    /**
+     * Run the block in a savepoint of the transaction of the given connection (see [beginTx]), like
+     * [withSavepoint] without a connection.
+     */
+    suspend fun <T> withSavepoint(connection: SqlConnection, block: suspend CoroutineScope.() -> T): T {
+        val name = savepointName(connection)
+        // the block must not run if the savepoint can't be set, it couldn't be rolled back separately
+        connection.query("SAVEPOINT $name").execute().await()
+        try {
+            val result = coroutineScope(block)
+            connection.query("RELEASE SAVEPOINT $name").execute().await()
+            return result
+        } catch (e: Throwable) {
+            withContext(NonCancellable) {
+                try {
+                    connection.query("ROLLBACK TO SAVEPOINT $name").execute().await()
+                } catch (rollbackError: Exception) {
+                    e.addSuppressed(rollbackError)
+                }
+            }
+            throw e
+        }
     }
 
     override suspend fun commitTx(connection: SqlConnection, transaction: Transaction) {
         logCommitTx()
+        var committed = false
         try {
+            transactionNotification(connection)?.let { sql ->
+                try {
+                    connection.query(sql).execute().await()
+                } catch (e: Exception) {
+                    // the failed statement aborted the transaction
+                    try {
+                        transaction.rollback().await()
+                    } catch (rollbackError: Exception) {
+                        e.addSuppressed(rollbackError)
+                    }
+                    throw e
+                }
+            }
             transaction.commit().await()
+            committed = true
+            committed(connection)
         } finally {
+            transactionWrites.remove(connection)
+            savepoints.remove(connection)
+            poolMonitor?.released(connection, committed)
             connection.close().await()
         }
     }
@@ -272,42 +800,234 @@ open class SingleDatabaseContext(
         try {
             transaction.rollback().await()
         } finally {
+            transactionWrites.remove(connection)
+            savepoints.remove(connection)
+            poolMonitor?.released(connection, false)
             connection.close().await()
         }
     }
 
     fun rxBeginTx(): Single<Pair<io.vertx.reactivex.sqlclient.SqlConnection, io.vertx.reactivex.sqlclient.Transaction>> {
-        return (sqlClient as io.vertx.reactivex.pgclient.PgPool).rxGetConnection()
-            .flatMap { connection ->
+        return rxBeginTx(TransactionOptions.DEFAULT)
+    }
+
+    /**
+     * Begin a transaction with the given options on a connection from the pool.
+     * End it with [rxCommit] or [rxRollback] (or use [rxInTransaction]).
+     */
+    fun rxBeginTx(
+        options: TransactionOptions
+    ): Single<Pair<io.vertx.reactivex.sqlclient.SqlConnection, io.vertx.reactivex.sqlclient.Transaction>> {
+        return Single.defer {
+            logBeginTx()
+            val monitor = poolMonitor
+            val start = monitor?.acquireStarted() ?: 0
+            (sqlClient as io.vertx.reactivex.pgclient.PgPool).rxGetConnection()
+                .doOnSuccess { monitor?.acquired(it.delegate, start) }
+                .doOnError { monitor?.acquireFailed(it) }
+        }.flatMap { connection ->
+            val sql = options.sql
+            // both are subscribed right away, so the SET TRANSACTION is pipelined with the BEGIN
+            val begin = if (sql == null) {
                 connection.rxBegin()
-                    .map { connection to it }
+            } else {
+                Single.zip(connection.rxBegin(), connection.query(sql).rxExecute()) { transaction, _ -> transaction }
+            }
+            begin.map { connection to it }
+                .onErrorResumeNext { e: Throwable -> rxRelease(connection, false).andThen(Single.error(e)) }
+        }
+    }
+
+    /**
+     * Run the chain of the block in a transaction on a connection from the pool. The transaction is committed
+     * after the chain succeeded and rolled back if it failed (or was disposed), the returned single completes
+     * after the outcome is known and the connection was returned to the pool:
+     * ```
+     * context.rxInTransaction { connection ->
+     *     conferenceDao.rxCreateReturning(dto, connection, null)
+     *         .flatMap { speakerDao.rxCreateBatch(speakers(it), connection) }
+     * }
+     * ```
+     * With [TransactionOptions.retry] the block is called again in a new transaction after serialization
+     * failures and deadlocks (the backoff runs on the context of the Vertx instance).
+     */
+    fun <T> rxInTransaction(
+        options: TransactionOptions = TransactionOptions.DEFAULT,
+        block: (io.vertx.reactivex.sqlclient.SqlConnection) -> Single<T>
+    ): Single<T> {
+        val retry = options.retry ?: return rxRunTransaction(options, block)
+        return Single.defer {
+            retry.budget.deposit()
+            rxAttempt(retry, options, block, 1)
+        }
+    }
+
+    private fun <T> rxAttempt(
+        retry: RetryPolicy,
+        options: TransactionOptions,
+        block: (io.vertx.reactivex.sqlclient.SqlConnection) -> Single<T>,
+        attempt: Int
+    ): Single<T> {
+        return Single.defer {
+            val start = System.nanoTime()
+            rxRunTransaction(options, block).onErrorResumeNext { e: Throwable ->
+                val backoff = retryBackoff(retry, e, attempt) ?: return@onErrorResumeNext Single.error(e)
+                Single.timer(backoff.second, TimeUnit.MILLISECONDS, retryScheduler()).flatMap {
+                    retried(retry, backoff.first, System.nanoTime() - start, attempt)
+                    rxAttempt(retry, options, block, attempt + 1)
+                }
+            }
+        }
+    }
+
+    private fun retryScheduler(): Scheduler {
+        return vertx?.let { RxHelper.scheduler(it) } ?: Schedulers.computation()
+    }
+
+    private fun <T> rxRunTransaction(
+        options: TransactionOptions,
+        block: (io.vertx.reactivex.sqlclient.SqlConnection) -> Single<T>
+    ): Single<T> {
+        return rxBeginTx(options).flatMap { (connection, transaction) ->
+            val ended = AtomicBoolean()
+            Single.defer { block(connection) }
+                .onErrorResumeNext { e: Throwable ->
+                    rxEndOnce(ended) { rxRollback(connection, transaction) }
+                        .doOnError { e.addSuppressed(it) }
+                        .onErrorComplete()
+                        .andThen(Single.error(e))
+                }
+                .flatMap { result -> rxEndOnce(ended) { rxCommit(connection, transaction) }.toSingleDefault(result) }
+                .doOnDispose {
+                    rxEndOnce(ended) { rxRollback(connection, transaction) }
+                        .subscribe({}, { LOG.warn("rollback of disposed transaction failed", it) })
+                }
+        }
+    }
+
+    /**
+     * Run the chain of the block in a savepoint of the transaction of the connection (see [rxInTransaction]).
+     * The savepoint is released when the chain succeeds. If it (or the release) fails, the transaction is rolled
+     * back to the savepoint and the error is passed on, the transaction stays usable (e.g. to skip or retry the
+     * failed part).
+     */
+    fun <T> rxInSavepoint(
+        connection: io.vertx.reactivex.sqlclient.SqlConnection,
+        block: (io.vertx.reactivex.sqlclient.SqlConnection) -> Single<T>
+    ): Single<T> {
+        return Single.defer {
+            val name = savepointName(connection.delegate)
+            connection.query("SAVEPOINT $name").rxExecute().flatMap {
+                Single.defer { block(connection) }
+                    .flatMap { result -> connection.query("RELEASE SAVEPOINT $name").rxExecute().map { result } }
+                    .onErrorResumeNext { e: Throwable ->
+                        connection.query("ROLLBACK TO SAVEPOINT $name").rxExecute()
+                            .ignoreElement()
+                            .doOnError { e.addSuppressed(it) }
+                            .onErrorComplete()
+                            .andThen(Single.error(e))
+                    }
             }
+        }
+    }
+
+    /**
+     * Commit the transaction, the connection is returned to the pool after the commit finished (or failed).
+     */
+    fun rxCommit(
+        connection: io.vertx.reactivex.sqlclient.SqlConnection,
+        transaction: io.vertx.reactivex.sqlclient.Transaction
+    ): Completable {
+        return Completable.defer {
+            logCommitTx()
+            val notification = transactionNotification(connection.delegate)?.let { sql ->
+                connection.query(sql).rxExecute().ignoreElement().onErrorResumeNext { e: Throwable ->
+                    // the failed statement aborted the transaction
+                    transaction.rxRollback()
+                        .doOnError { e.addSuppressed(it) }
+                        .onErrorComplete()
+                        .andThen(Completable.error(e))
+                }
+            } ?: Completable.complete()
+            val commit = notification.andThen(Completable.defer { transaction.rxCommit() })
+            rxEnd(connection, commit.doOnComplete { committed(connection.delegate) }, true)
+        }
     }
 
+    /**
+     * Roll back the transaction, the connection is returned to the pool after the rollback finished (or failed).
+     */
+    fun rxRollback(
+        connection: io.vertx.reactivex.sqlclient.SqlConnection,
+        transaction: io.vertx.reactivex.sqlclient.Transaction
+    ): Completable {
+        return Completable.defer {
+            logRollbackTx()
+            rxEnd(connection, transaction.rxRollback(), false)
+        }
+    }
+
+    @Deprecated(
+        "returns before the commit finished and hides its failure, use rxCommit or rxInTransaction",
+        ReplaceWith("rxCommit(connection, transaction)")
+    )
     fun rxCommitTx(
         connection: io.vertx.reactivex.sqlclient.SqlConnection,
         transaction: io.vertx.reactivex.sqlclient.Transaction
     ) {
-        logCommitTx()
-        try {
-            transaction.commit()
-        } finally {
-            connection.close()
-        }
+        rxCommit(connection, transaction).subscribe({}, { LOG.error("commit failed", it) })
     }
 
+    @Deprecated(
+        "returns before the rollback finished and hides its failure, use rxRollback or rxInTransaction",
+        ReplaceWith("rxRollback(connection, transaction)")
+    )
     fun rxRollbackTx(
         connection: io.vertx.reactivex.sqlclient.SqlConnection,
         transaction: io.vertx.reactivex.sqlclient.Transaction
     ) {
-        logRollbackTx()
-        try {
-            transaction.rollback()
-        } finally {
-            connection.close()
+        rxRollback(connection, transaction).subscribe({}, { LOG.warn("rollback failed", it) })
+    }
+
+    /**
+     * Ends a transaction once: the commit and the rollback on dispose may race.
+     */
+    internal fun rxEndOnce(ended: AtomicBoolean, end: () -> Completable): Completable {
+        return Completable.defer { if (ended.compareAndSet(false, true)) end() else Completable.complete() }
+    }
+
+    /**
+     * Wait for the end of the transaction, then return the connection to the pool and complete with the outcome
+     * of the end.
+     */
+    private fun rxEnd(
+        connection: io.vertx.reactivex.sqlclient.SqlConnection,
+        end: Completable,
+        commit: Boolean
+    ): Completable {
+        return end.materialize<Any>().flatMapCompletable { outcome ->
+            val error = outcome.error
+            rxRelease(connection, commit && error == null)
+                .andThen(if (error == null) Completable.complete() else Completable.error(error))
+        }
+    }
+
+    private fun rxRelease(connection: io.vertx.reactivex.sqlclient.SqlConnection, committed: Boolean): Completable {
+        return Completable.defer {
+            transactionWrites.remove(connection.delegate)
+            savepoints.remove(connection.delegate)
+            poolMonitor?.released(connection.delegate, committed)
+            connection.rxClose()
+                .doOnError { LOG.warn("closing the connection failed", it) }
+                .onErrorComplete()
         }
     }
 
+    private fun savepointName(connection: io.vertx.sqlclient.SqlClient): String {
+        val count = synchronized(savepoints) { savepoints.getOrPut(connection) { AtomicLong() } }
+        return "pgaccess_sp_${count.incrementAndGet()}"
+    }
+
     private fun logBeginTx() {
         LOG.debug("Beginning new transaction")
     }
@@ -0,0 +1,33 @@
+package io.en4ble.pgaccess
+
+import org.slf4j.LoggerFactory
+
+/**
+ * Logs the executed statements with their parameters (debug) and failed statements (warn).
+ * The parameters are only rendered if the level is enabled.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused")
+class LoggingQueryListener : QueryListener {
+    private val LOG by lazy { LoggerFactory.getLogger(LoggingQueryListener::class.java) }
+
+    override fun completed(event: QueryEvent) {
+        if (LOG.isDebugEnabled) {
+            LOG.debug(
+                "{} {} ms, {} rows: {}",
+                if (event.inTransaction) "[Tx]" else "[NoTx]",
+                event.durationNanos / 1_000_000,
+                event.rows,
+                event.sqlWithParameters()
+            )
+        }
+    }
+
+    override fun failed(event: QueryEvent, error: Throwable) {
+        if (LOG.isWarnEnabled) {
+            val millis = event.durationNanos / 1_000_000
+            LOG.warn("{} failed after {} ms: {}", error.message, millis, event.sqlWithParameters())
+        }
+    }
+}
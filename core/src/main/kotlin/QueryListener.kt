@@ -0,0 +1,152 @@
+package io.en4ble.pgaccess
+
+import io.en4ble.pgaccess.util.DaoHelperCommon
+import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.RowSet
+import io.vertx.sqlclient.Tuple
+import org.slf4j.LoggerFactory
+
+/**
+ * Notified about the lifecycle of the statements run by the DAOs with a [SingleDatabaseContext]
+ * (see [SingleDatabaseContext.addQueryListener]), e.g. for logging, metrics or tracing.
+ * No events are created if no listener is registered. Listeners are called on the event loop and must not block.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused")
+interface QueryListener {
+    /** The statement is about to be sent. */
+    fun started(event: QueryEvent) {}
+
+    /**
+     * The statement was prepared and a cursor was opened with its parameters. Only called for streamed statements,
+     * which prepare the statement in a round trip of its own.
+     */
+    fun bound(event: QueryEvent) {}
+
+    /**
+     * The first row of the result arrived. Only called for streamed statements, other statements receive the whole
+     * result at once (see [QueryEvent.firstRow] in [completed]).
+     */
+    fun firstRow(event: QueryEvent, row: Row) {}
+
+    fun completed(event: QueryEvent) {}
+
+    fun failed(event: QueryEvent, error: Throwable) {}
+}
+
+/**
+ * A statement run by the DAOs. Listeners can attach their own state (e.g. a span) with [put].
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class QueryEvent internal constructor(
+    /** the sql with '$n' placeholders (or the values for static statements) */
+    val sql: String,
+    val params: Tuple?,
+    val update: Boolean,
+    val inTransaction: Boolean,
+    /** the number of parameter sets sent with a batch statement (1 for other statements, [params] is null) */
+    val batchSize: Int,
+    private val listeners: List<QueryListener>
+) {
+    private val LOG by lazy { LoggerFactory.getLogger(QueryListener::class.java) }
+
+    val startNanos: Long = System.nanoTime()
+
+    /** duration of the execution, set on completion or failure */
+    var durationNanos: Long = 0
+        private set
+
+    /** rows returned (or affected by an update, by all parameter sets of a batch), set on completion */
+    var rows: Int = 0
+        private set
+
+    /** the first row of the result, null if there was none (yet) */
+    var firstRow: Row? = null
+        private set
+
+    private var attributes: MutableMap<String, Any>? = null
+
+    /**
+     * The sql including the parameters, only rendered when called.
+     */
+    fun sqlWithParameters(): String {
+        return if (params == null) sql else DaoHelperCommon.getQueryForLogging(sql, params)
+    }
+
+    fun put(key: String, value: Any) {
+        val map = attributes ?: HashMap<String, Any>().also { attributes = it }
+        map[key] = value
+    }
+
+    fun get(key: String): Any? {
+        return attributes?.get(key)
+    }
+
+    internal fun start() {
+        notify { it.started(this) }
+    }
+
+    internal fun bound() {
+        notify { it.bound(this) }
+    }
+
+    internal fun row(row: Row) {
+        if (firstRow == null) {
+            firstRow = row
+            notify { it.firstRow(this, row) }
+        }
+    }
+
+    internal fun completed(result: RowSet<Row>) {
+        if (result.size() > 0) {
+            firstRow = result.iterator().next()
+        }
+        completed(result.rowCount())
+    }
+
+    internal fun completed(rows: Int) {
+        this.rows = rows
+        durationNanos = System.nanoTime() - startNanos
+        notify { it.completed(this) }
+    }
+
+    internal fun failed(error: Throwable) {
+        durationNanos = System.nanoTime() - startNanos
+        notify { it.failed(this, error) }
+    }
+
+    private inline fun notify(event: (QueryListener) -> Unit) {
+        for (listener in listeners) {
+            try {
+                event(listener)
+            } catch (e: Exception) {
+                LOG.warn("query listener failed", e)
+            }
+        }
+    }
+
+    companion object {
+        /**
+         * The event of a statement if any listener is registered with the context (which is notified that
+         * the statement started), null otherwise.
+         */
+        internal fun start(
+            sql: String,
+            params: Tuple?,
+            update: Boolean,
+            client: io.vertx.sqlclient.SqlClient,
+            context: SingleDatabaseContext,
+            batchSize: Int = 1
+        ): QueryEvent? {
+            val listeners = context.queryListeners()
+            if (listeners.isEmpty()) {
+                return null
+            }
+            val inTransaction = !DaoHelperCommon.isPooled(client)
+            return QueryEvent(sql, params, update, inTransaction, batchSize, listeners).also { it.start() }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package io.en4ble.pgaccess
+
+import io.en4ble.pgaccess.util.ReadRoutingClient
+import io.reactivex.Completable
+import io.vertx.pgclient.PgConnectOptions
+import io.vertx.reactivex.core.Vertx
+import io.vertx.reactivex.sqlclient.SqlClient
+import io.vertx.sqlclient.Pool
+import org.slf4j.LoggerFactory
+import java.util.concurrent.atomic.AtomicInteger
+import javax.validation.Validator
+
+/**
+ * [SingleDatabaseContext] with read replicas ([DatabaseConfig.replicaHosts]). Selects that are run without an
+ * explicit client (e.g. by the read methods of the DAOs) are sent to the replicas (round robin), all other
+ * statements and transactions use the primary ([sqlClient]).
+ * Selects that lock rows or call volatile built-in functions (nextval, random ...) and selects marked with a
+ * "/*NO LOAD BALANCE*/" comment (e.g. calling volatile functions of the application) are sent to the primary.
+ * Replicas that lag behind by more than [DatabaseConfig.maxReplicaLagMillis] (or can't be reached, or stopped
+ * streaming from the primary) are not used until they caught up, if no replica can be used the primary is read.
+ * The lag is checked periodically on the Vertx instance: without one the replicas are never used.
+ *
+ * To read from the primary (e.g. to read your own writes) pass [sqlClient] to the methods taking a client,
+ * to read from a replica explicitly pass [replicaClient].
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+open class ReplicatedDatabaseContext(
+    vertx: Vertx?,
+    config: DatabaseConfig,
+    validator: Validator? = null
+) : SingleDatabaseContext(vertx, config, validator) {
+    private val LOG by lazy { LoggerFactory.getLogger(ReplicatedDatabaseContext::class.java) }
+
+    private class Replica(val host: String, val pool: Pool) {
+        /** lag in milliseconds, null if the replica could not be reached (or was not checked yet) */
+        @Volatile
+        var lag: Long? = null
+    }
+
+    private val replicas = config.replicaHosts.map { Replica(it, createPool(replicaOptions(it)).delegate as Pool) }
+    private val next = AtomicInteger()
+
+    private val routingClient = SqlClient.newInstance(ReadRoutingClient(sqlClient().delegate) { readPool() })
+
+    @Volatile
+    private var lagTimer: Long? = null
+
+    constructor(vertx: Vertx, config: DatabaseConfig) : this(vertx, config, null)
+    constructor(config: DatabaseConfig) : this(null, config)
+
+    init {
+        if (replicas.isEmpty()) {
+            LOG.warn("no replica hosts configured, all reads use the primary")
+        } else if (vertx == null) {
+            LOG.warn("the replication lag can't be checked without a Vertx instance, all reads use the primary")
+        } else {
+            checkLag()
+            lagTimer = vertx.setPeriodic(config.replicaLagCheckMillis) { checkLag() }
+        }
+    }
+
+    private fun replicaOptions(host: String): PgConnectOptions {
+        val options = connectOptions()
+        val separator = host.lastIndexOf(':')
+        return if (separator > 0) {
+            options.setHost(host.substring(0, separator)).setPort(host.substring(separator + 1).toInt())
+        } else {
+            options.setHost(host)
+        }
+    }
+
+    /**
+     * Stop the checks of the replication lag and close the pools of the replicas and the primary.
+     */
+    override fun close(): Completable {
+        return Completable.defer {
+            lagTimer?.let { vertx?.cancelTimer(it) }
+            Completable.merge(replicas.map { SqlClient.newInstance(it.pool).rxClose() }).andThen(super.close())
+        }
+    }
+
+    override fun routingClient(): SqlClient {
+        return routingClient
+    }
+
+    /**
+     * A replica that can be used for reads (the primary if none can be used).
+     */
+    fun replicaClient(): SqlClient {
+        return SqlClient.newInstance(readPool())
+    }
+
+    /**
+     * The replication lag of each replica in milliseconds (null if it could not be reached or checked).
+     */
+    fun replicaLag(): Map<String, Long?> {
+        return replicas.associate { it.host to it.lag }
+    }
+
+    private fun readPool(): io.vertx.sqlclient.SqlClient {
+        val maxLag = config().maxReplicaLagMillis
+        val available = replicas.filter { it.lag?.let { lag -> lag <= maxLag } == true }
+        if (available.isEmpty()) {
+            return sqlClient().delegate
+        }
+        return available[Math.floorMod(next.getAndIncrement(), available.size)].pool
+    }
+
+    private fun checkLag() {
+        for (replica in replicas) {
+            replica.pool.query(LAG_SQL).execute().onComplete {
+                val maxLag = config().maxReplicaLagMillis
+                val lag: Long? = if (it.succeeded()) it.result().firstOrNull()?.getLong(0) else null
+                if (it.failed()) {
+                    LOG.warn("could not check the replication lag of {}: {}", replica.host, it.cause().message)
+                } else if (lag == null && replica.lag != null) {
+                    LOG.warn("replica {} does not stream from the primary, reading from other hosts", replica.host)
+                } else if (lag != null && lag > maxLag && (replica.lag ?: 0) <= maxLag) {
+                    LOG.warn("replica {} lags behind by {} ms, reading from other hosts", replica.host, lag)
+                }
+                replica.lag = lag
+            }
+        }
+    }
+
+    companion object {
+        // A replica that streams from the primary and replayed everything it received is up to date, even if the last
+        // replayed transaction is old. Otherwise the lag is the age of the last replayed transaction (null if none was
+        // replayed yet). The WAL receiver row is visible to every user, its status only with pg_read_all_stats.
+        private const val LAG_SQL = "select case when coalesce((select coalesce(status, 'streaming') = 'streaming' " +
+            "from pg_stat_wal_receiver), false) and pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 " +
+            "else extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000 end::bigint"
+    }
+}
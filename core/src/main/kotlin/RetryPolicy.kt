@@ -0,0 +1,130 @@
+package io.en4ble.pgaccess
+
+import io.vertx.pgclient.PgException
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.min
+
+/**
+ * Retries of transactions that failed because of concurrent transactions, serialization failures (40001) and
+ * deadlocks (40P01) by default. The whole transaction (the block of [SingleDatabaseContext.withTransaction] or the
+ * chain of [SingleDatabaseContext.rxInTransaction]) is run again, so it must not have side effects outside of the
+ * database. Set it with [TransactionOptions.retry] and share one policy between transactions, so that the
+ * [budget] applies to all of them:
+ * ```
+ * val serializable = TransactionOptions(IsolationLevel.SERIALIZABLE, retry = RetryPolicy())
+ * context.withTransaction(serializable) { ... }
+ * ```
+ * @param maxAttempts attempts including the first one
+ * @param initialBackoffMillis maximum backoff before the first retry, doubled for every further retry
+ * (full jitter: the actual backoff is random between 0 and the maximum, so that the retries of the transactions
+ * that failed together are spread)
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class RetryPolicy(
+    val maxAttempts: Int = 5,
+    val initialBackoffMillis: Long = 5,
+    val maxBackoffMillis: Long = 1000,
+    val budget: RetryBudget = RetryBudget(),
+    val retryableSqlStates: Set<String> = DEFAULT_SQL_STATES
+) {
+    private val retries = AtomicLong()
+    private val rejected = AtomicLong()
+    private val wastedNanos = AtomicLong()
+
+    init {
+        require(maxAttempts > 0) { "maxAttempts must be positive" }
+    }
+
+    /** The SQLSTATE of the error if the transaction may be run again, null otherwise. */
+    fun retryableSqlState(e: Throwable): String? {
+        var cause: Throwable? = e
+        while (cause != null) {
+            if (cause is PgException) {
+                val code = cause.code
+                return if (code != null && retryableSqlStates.contains(code)) code else null
+            }
+            cause = cause.cause
+        }
+        return null
+    }
+
+    /** The backoff before the given retry (1 for the first retry). */
+    fun backoffMillis(retry: Int): Long {
+        val max = min(maxBackoffMillis, initialBackoffMillis shl min(retry - 1, MAX_SHIFT))
+        return if (max <= 0) 0 else ThreadLocalRandom.current().nextLong(max + 1)
+    }
+
+    /** Number of retries. */
+    fun retries(): Long {
+        return retries.get()
+    }
+
+    /** Number of retryable failures that were not retried (all attempts used or budget exhausted). */
+    fun rejected(): Long {
+        return rejected.get()
+    }
+
+    /** Time spent in failed attempts and backoffs. */
+    fun wastedNanos(): Long {
+        return wastedNanos.get()
+    }
+
+    internal fun recordRetry(wastedNanos: Long) {
+        retries.incrementAndGet()
+        this.wastedNanos.addAndGet(wastedNanos)
+    }
+
+    internal fun recordRejected() {
+        rejected.incrementAndGet()
+    }
+
+    companion object {
+        const val SERIALIZATION_FAILURE = "40001"
+        const val DEADLOCK_DETECTED = "40P01"
+        val DEFAULT_SQL_STATES = setOf(SERIALIZATION_FAILURE, DEADLOCK_DETECTED)
+
+        private const val MAX_SHIFT = 30
+    }
+}
+
+/**
+ * Limits the retries to a [ratio] of the transactions, so that retries can't multiply the load when the
+ * database is overloaded or most transactions conflict. Every transaction deposits [ratio] tokens, every retry
+ * takes one, up to [maxTokens] can be saved for bursts (the budget starts full).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class RetryBudget(val ratio: Double = 0.2, val maxTokens: Int = 100) {
+    // thousandths of a token
+    private val balance = AtomicLong(maxTokens * SCALE)
+    private val tokensPerTransaction = (ratio * SCALE).toLong()
+
+    internal fun deposit() {
+        balance.updateAndGet { min(it + tokensPerTransaction, maxTokens * SCALE) }
+    }
+
+    internal fun withdraw(): Boolean {
+        while (true) {
+            val current = balance.get()
+            if (current < SCALE) {
+                return false
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true
+            }
+        }
+    }
+
+    /** The number of retries that can be made right now. */
+    fun available(): Long {
+        return balance.get() / SCALE
+    }
+
+    companion object {
+        private const val SCALE = 1000L
+    }
+}
@@ -0,0 +1,64 @@
+package io.en4ble.pgaccess
+
+import io.en4ble.pgaccess.exceptions.MultiClientException
+import io.en4ble.pgaccess.metrics.DatabaseMetrics
+import io.en4ble.pgaccess.sharding.ShardKey
+import io.en4ble.pgaccess.sharding.ShardResolver
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.coroutines.coroutineContext
+
+/**
+ * [MultiDatabaseContext] that spreads the data over shards (one [SingleDatabaseContext] per shard, by client id).
+ * The shard of the current coroutine is resolved from its [ShardKey] (e.g. the tenant id) with the [resolver],
+ * the reactive methods of the DAOs take the client id of the shard (see [clientId]).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+open class ShardedDatabaseContext(
+    shards: Map<String, SingleDatabaseContext>,
+    val resolver: ShardResolver
+) : MultiDatabaseContext {
+    private val shards = ConcurrentHashMap(shards)
+
+    @Volatile
+    private var metrics: DatabaseMetrics? = null
+
+    override val databaseContexts: Map<String, SingleDatabaseContext>
+        get() = shards
+
+    override suspend fun currentClientId(): String {
+        val shardKey = coroutineContext[ShardKey]
+            ?: throw MultiClientException("no shard key found, use withContext(ShardKey(key))")
+        return clientId(shardKey.value)
+    }
+
+    override suspend fun current(): SingleDatabaseContext {
+        return context(currentClientId())
+    }
+
+    /** The client id of the shard of the key. */
+    fun clientId(key: Any): String {
+        return resolver.shard(key)
+    }
+
+    /** The context of the shard of the key. */
+    fun shard(key: Any): SingleDatabaseContext {
+        return context(clientId(key))
+    }
+
+    override fun metrics(metrics: DatabaseMetrics) {
+        this.metrics = metrics
+        super.metrics(metrics)
+    }
+
+    /**
+     * Add a shard. With a [io.en4ble.pgaccess.sharding.ConsistentHashShardResolver] only the keys that now belong
+     * to the new shard move (their data must be migrated by the application).
+     */
+    fun addShard(clientId: String, context: SingleDatabaseContext) {
+        metrics?.let { context.metrics(it, clientId) }
+        shards[clientId] = context
+        resolver.addShard(clientId)
+    }
+}
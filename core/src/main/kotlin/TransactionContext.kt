@@ -0,0 +1,87 @@
+package io.en4ble.pgaccess
+
+import io.vertx.sqlclient.SqlConnection
+import io.vertx.sqlclient.Transaction
+import kotlin.coroutines.AbstractCoroutineContextElement
+import kotlin.coroutines.CoroutineContext
+import kotlin.coroutines.coroutineContext
+
+/**
+ * Isolation levels of PostgreSQL (READ UNCOMMITTED behaves like READ COMMITTED and is not listed).
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+enum class IsolationLevel(val sql: String) {
+    READ_COMMITTED("READ COMMITTED"),
+    REPEATABLE_READ("REPEATABLE READ"),
+    SERIALIZABLE("SERIALIZABLE")
+}
+
+/**
+ * Options of a transaction started with [SingleDatabaseContext.withTransaction].
+ * @param isolation the isolation level, the default of the database if null
+ * @param readOnly rejects writes, allows PostgreSQL to skip some locking (and serializable reads to not be aborted
+ * when combined with [deferrable])
+ * @param deferrable a serializable read only transaction waits until it can run without any risk of serialization
+ * failures
+ * @param retry runs the transaction again after serialization failures and deadlocks, see [RetryPolicy]
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+data class TransactionOptions(
+    val isolation: IsolationLevel? = null,
+    val readOnly: Boolean = false,
+    val deferrable: Boolean = false,
+    val retry: RetryPolicy? = null
+) {
+    /** The SET TRANSACTION statement for the options, null for the defaults. */
+    internal val sql: String? = if (isolation == null && !readOnly && !deferrable) {
+        null
+    } else {
+        StringBuilder("SET TRANSACTION").apply {
+            isolation?.let { append(" ISOLATION LEVEL ").append(it.sql) }
+            if (readOnly) append(" READ ONLY")
+            if (deferrable) append(" DEFERRABLE")
+        }.toString()
+    }
+
+    companion object {
+        val DEFAULT = TransactionOptions()
+        val READ_ONLY = TransactionOptions(readOnly = true)
+    }
+}
+
+/**
+ * The transaction of the current coroutine, added by [SingleDatabaseContext.withTransaction].
+ * The DAOs run all statements of the coroutine (that are run without an explicit client) on its connection.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class TransactionContext internal constructor(
+    val context: SingleDatabaseContext,
+    val connection: SqlConnection,
+    val transaction: Transaction,
+    val options: TransactionOptions
+) : AbstractCoroutineContextElement(TransactionContext) {
+    companion object Key : CoroutineContext.Key<TransactionContext> {
+        /**
+         * The connection of the transaction of the current coroutine if it was started by the given context (or the
+         * database of a [MultiDatabaseContext] the coroutine currently uses).
+         */
+        internal suspend fun connection(context: DatabaseContext): SqlConnection? {
+            val current = coroutineContext[TransactionContext] ?: return null
+            val resolved = when (context) {
+                is SingleDatabaseContext -> context
+                is MultiDatabaseContext -> {
+                    if (context.databaseContexts.values.none { it === current.context }) return null
+                    context.current()
+                }
+                else -> return null
+            }
+            return if (current.context === resolved) current.connection else null
+        }
+    }
+
+    override fun toString(): String {
+        return "TransactionContext($options)"
+    }
+}
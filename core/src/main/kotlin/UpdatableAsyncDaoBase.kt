@@ -1,11 +1,16 @@
 package io.en4ble.pgaccess
 
+import io.en4ble.pgaccess.DatabaseContext.Companion.getSingleDatabaseContext
 import io.en4ble.pgaccess.DatabaseContext.Companion.toSingleDatabaseContext
+import io.en4ble.pgaccess.cache.EntityCache
+import io.en4ble.pgaccess.cache.EntityKey
 import io.en4ble.pgaccess.dto.PagingDTO
 import io.en4ble.pgaccess.mappers.JooqMapper
+import io.en4ble.pgaccess.util.BatchStatement
 import io.en4ble.pgaccess.util.DaoHelper
 import io.en4ble.pgaccess.util.DaoHelperCommon
 import io.en4ble.pgaccess.util.RxDaoHelper
+import io.en4ble.pgaccess.util.TableStatements
 import io.reactivex.Single
 import io.vertx.reactivex.sqlclient.SqlClient
 import io.vertx.sqlclient.Row
@@ -13,6 +18,8 @@ import io.vertx.sqlclient.RowSet
 import org.jooq.*
 import java.time.LocalDateTime
 import java.time.LocalDateTime.now
+import java.util.*
+import kotlin.coroutines.coroutineContext
 
 /** @author Mark Hofmann (mark@en4ble.io)
  */
@@ -29,6 +36,510 @@ constructor(
         return null
     }
 
+    // ----------- entity cache (opt-in)
+
+    @Volatile
+    private var entityCache: EntityCache? = null
+    private val tableName = DaoHelperCommon.qualifiedName(table)
+    private val cacheInvalidation = object : WriteListener {
+        override fun written(table: String?) {
+            written(table, null)
+        }
+
+        override fun written(table: String?, keys: Collection<Any>?) {
+            val name = tableName
+            if (table == name && keys != null) {
+                entityCache?.invalidateKeys(name, keys)
+            } else if (table == null || table == name) {
+                entityCache?.invalidateTable(name)
+            }
+        }
+    }
+
+    /**
+     * Serve the lookups by primary key (readOneBy, readOptionalBy and readBy of the key column) from the given cache.
+     * Writes to the table (also by other DAOs using the same database context) invalidate the cached entities,
+     * reads in a transaction ([SingleDatabaseContext.withTransaction]) bypass the cache. Use null to disable the cache.
+     */
+    fun entityCache(cache: EntityCache?) {
+        singleDatabaseContexts().forEach { it.removeWriteListener(cacheInvalidation) }
+        entityCache = cache
+        if (cache != null) {
+            singleDatabaseContexts().forEach { it.addWriteListener(cacheInvalidation) }
+        }
+    }
+
+    fun entityCache(): EntityCache? {
+        return entityCache
+    }
+
+    /**
+     * Reads in a transaction bypass the cache: they have to see the uncommitted writes of the transaction (which
+     * invalidate the cache only after the commit) and must not cache them.
+     */
+    private suspend fun inTransaction(): Boolean {
+        return coroutineContext[TransactionContext] != null
+    }
+
+    private suspend fun cacheKey(id: Any): EntityKey {
+        val clientId = (context as? MultiDatabaseContext)?.currentClientId()
+        return EntityKey(tableName, id, clientId)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    protected suspend fun cachedOne(id: Any, load: suspend () -> DTO): DTO {
+        val cache = entityCache?.takeUnless { inTransaction() } ?: return load()
+        val key = cacheKey(id)
+        cache.get(key)?.let { return it as DTO }
+        val token = cache.token()
+        val start = System.nanoTime()
+        val dto = load()
+        cache.recordLoad(System.nanoTime() - start)
+        cache.put(key, dto as Any, token)
+        return dto
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    protected suspend fun cachedOptional(id: Any, load: suspend () -> Optional<DTO>): Optional<DTO> {
+        val cache = entityCache?.takeUnless { inTransaction() } ?: return load()
+        val key = cacheKey(id)
+        cache.get(key)?.let { return Optional.of(it as DTO) }
+        val token = cache.token()
+        val start = System.nanoTime()
+        val dto = load()
+        cache.recordLoad(System.nanoTime() - start)
+        dto.ifPresent { cache.put(key, it as Any, token) }
+        return dto
+    }
+
+    /**
+     * @return the cached and loaded dtos in the order of the ids (ids that don't exist are left out)
+     */
+    @Suppress("UNCHECKED_CAST")
+    protected suspend fun <K : Any> cachedList(
+        ids: List<K>,
+        keyOf: (DTO) -> K?,
+        load: suspend (List<K>) -> List<DTO>
+    ): List<DTO> {
+        val cache = entityCache?.takeUnless { inTransaction() } ?: return load(ids)
+        val clientId = (context as? MultiDatabaseContext)?.currentClientId()
+        val found = LinkedHashMap<K, DTO>()
+        val missing = ids.distinct().filter { id ->
+            val dto = cache.get(EntityKey(tableName, id, clientId)) as DTO?
+            if (dto != null) {
+                found[id] = dto
+            }
+            dto == null
+        }
+        if (missing.isNotEmpty()) {
+            val token = cache.token()
+            val start = System.nanoTime()
+            val loaded = load(missing)
+            cache.recordLoad(System.nanoTime() - start)
+            for (dto in loaded) {
+                val id = keyOf(dto) ?: continue
+                found[id] = dto
+                cache.put(EntityKey(tableName, id, clientId), dto as Any, token)
+            }
+        }
+        return ids.distinct().mapNotNull { found[it] }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    protected fun rxCachedOne(id: Any, clientId: String?, load: () -> Single<DTO>): Single<DTO> {
+        val cache = entityCache ?: return load()
+        val key = EntityKey(tableName, id, clientId)
+        return Single.defer {
+            val cached = cache.get(key)
+            if (cached != null) {
+                Single.just(cached as DTO)
+            } else {
+                val token = cache.token()
+                val start = System.nanoTime()
+                load().doOnSuccess {
+                    cache.recordLoad(System.nanoTime() - start)
+                    cache.put(key, it as Any, token)
+                }
+            }
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    protected fun rxCachedOptional(
+        id: Any,
+        clientId: String?,
+        load: () -> Single<Optional<DTO>>
+    ): Single<Optional<DTO>> {
+        val cache = entityCache ?: return load()
+        val key = EntityKey(tableName, id, clientId)
+        return Single.defer {
+            val cached = cache.get(key)
+            if (cached != null) {
+                Single.just(Optional.of(cached as DTO))
+            } else {
+                val token = cache.token()
+                val start = System.nanoTime()
+                load().doOnSuccess { dto ->
+                    cache.recordLoad(System.nanoTime() - start)
+                    dto.ifPresent { cache.put(key, it as Any, token) }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the cached and loaded dtos in the order of the ids (ids that don't exist are left out)
+     */
+    @Suppress("UNCHECKED_CAST")
+    protected fun <K : Any> rxCachedList(
+        ids: List<K>,
+        clientId: String?,
+        keyOf: (DTO) -> K?,
+        load: (List<K>) -> Single<List<DTO>>
+    ): Single<List<DTO>> {
+        val cache = entityCache ?: return load(ids)
+        return Single.defer {
+            val found = LinkedHashMap<K, DTO>()
+            val missing = ids.distinct().filter { id ->
+                val dto = cache.get(EntityKey(tableName, id, clientId)) as DTO?
+                if (dto != null) {
+                    found[id] = dto
+                }
+                dto == null
+            }
+            if (missing.isEmpty()) {
+                Single.just(ids.distinct().mapNotNull { found[it] })
+            } else {
+                val token = cache.token()
+                val start = System.nanoTime()
+                load(missing).map { loaded ->
+                    cache.recordLoad(System.nanoTime() - start)
+                    for (dto in loaded) {
+                        val id = keyOf(dto) ?: continue
+                        found[id] = dto
+                        cache.put(EntityKey(tableName, id, clientId), dto as Any, token)
+                    }
+                    ids.distinct().mapNotNull { found[it] }
+                }
+            }
+        }
+    }
+
+    // ----------- batch methods (one executeBatch per combination of non-null columns)
+
+    /** The insert/update/delete statements of the table, implemented by the generated DAOs. */
+    protected abstract fun tableStatements(): TableStatements
+
+    /** The database values of all columns of the dto, implemented by the generated DAOs. */
+    protected abstract fun createValues(dto: DTO): Array<Any?>
+
+    /** The database values of the primary key columns, implemented by the generated DAOs. */
+    protected abstract fun keyValues(id: ID): Array<Any?>
+
+    /**
+     * Insert the dtos using batches of prepared statements. Null values are omitted (so that the defaults apply).
+     * Note that the rows are only inserted atomically when using a transaction.
+     * @return the number of inserted rows per dto
+     */
+    suspend fun createBatch(dtos: List<DTO>): List<Int> {
+        val statements = tableStatements().insertBatch(createBatchValues(dtos))
+        return rowCounts(DaoHelper.batch(statements, dtos.size, context))
+    }
+
+    suspend fun createBatch(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): List<Int> {
+        val statements = tableStatements().insertBatch(createBatchValues(dtos))
+        return rowCounts(DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context)))
+    }
+
+    fun rxCreateBatch(dtos: List<DTO>, clientId: String? = null): Single<List<Int>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxCreateBatch(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxCreateBatch(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<List<Int>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = tableStatements().insertBatch(createBatchValues(dtos))
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { rxRowCounts(it) }
+    }
+
+    /**
+     * Insert the dtos using batches of prepared statements, returning the created rows in the order of the dtos.
+     * Note that the rows are only inserted atomically when using a transaction.
+     */
+    suspend fun createBatchReturning(dtos: List<DTO>): List<DTO> {
+        val statements = tableStatements().insertBatch(createBatchValues(dtos), returning = true)
+        return DaoHelper.batch(statements, dtos.size, context).filterNotNull().flatMap { map(it) }
+    }
+
+    suspend fun createBatchReturning(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): List<DTO> {
+        val statements = tableStatements().insertBatch(createBatchValues(dtos), returning = true)
+        return DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context))
+            .filterNotNull().flatMap { map(it) }
+    }
+
+    fun rxCreateBatchReturning(dtos: List<DTO>, clientId: String? = null): Single<List<DTO>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxCreateBatchReturning(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxCreateBatchReturning(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<List<DTO>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = tableStatements().insertBatch(createBatchValues(dtos), returning = true)
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { results ->
+            results.filterNotNull().flatMap { map(it) }
+        }
+    }
+
+    /**
+     * Update the rows identified by the primary keys of the dtos, setting all non-null values.
+     * Dtos without values to update are skipped.
+     * Note that the rows are only updated atomically when using a transaction.
+     * @return the number of updated rows per dto
+     */
+    suspend fun updateBatch(dtos: List<DTO>): List<Int> {
+        val statements = tableStatements().updateBatch(dtos.map { createValues(it) })
+        return rowCounts(DaoHelper.batch(statements, dtos.size, context))
+    }
+
+    suspend fun updateBatch(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): List<Int> {
+        val statements = tableStatements().updateBatch(dtos.map { createValues(it) })
+        return rowCounts(DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context)))
+    }
+
+    fun rxUpdateBatch(dtos: List<DTO>, clientId: String? = null): Single<List<Int>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxUpdateBatch(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxUpdateBatch(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<List<Int>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = tableStatements().updateBatch(dtos.map { createValues(it) })
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { rxRowCounts(it) }
+    }
+
+    /**
+     * Update the rows identified by the primary keys of the dtos, returning the updated rows in the order of the dtos
+     * (rows that do not exist or dtos without values to update are left out).
+     * Note that the rows are only updated atomically when using a transaction.
+     */
+    suspend fun updateBatchReturning(dtos: List<DTO>): List<DTO> {
+        val statements = tableStatements().updateBatch(dtos.map { createValues(it) }, returning = true)
+        return DaoHelper.batch(statements, dtos.size, context).filterNotNull().flatMap { map(it) }
+    }
+
+    suspend fun updateBatchReturning(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): List<DTO> {
+        val statements = tableStatements().updateBatch(dtos.map { createValues(it) }, returning = true)
+        return DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context))
+            .filterNotNull().flatMap { map(it) }
+    }
+
+    fun rxUpdateBatchReturning(dtos: List<DTO>, clientId: String? = null): Single<List<DTO>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxUpdateBatchReturning(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxUpdateBatchReturning(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<List<DTO>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = tableStatements().updateBatch(dtos.map { createValues(it) }, returning = true)
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { results ->
+            results.filterNotNull().flatMap { map(it) }
+        }
+    }
+
+    /**
+     * Delete the rows with the given primary keys using a batch of prepared statements.
+     * Note that the rows are only deleted atomically when using a transaction.
+     * @return the number of deleted rows per id
+     */
+    suspend fun deleteBatch(ids: List<ID>): List<Int> {
+        val statement = tableStatements().deleteBatch(ids.map { keyValues(it) })
+        return rowCounts(DaoHelper.batch(listOf(statement), ids.size, context))
+    }
+
+    suspend fun deleteBatch(ids: List<ID>, client: io.vertx.sqlclient.SqlClient): List<Int> {
+        val statement = tableStatements().deleteBatch(ids.map { keyValues(it) })
+        return rowCounts(DaoHelper.batch(listOf(statement), ids.size, client, toSingleDatabaseContext(context)))
+    }
+
+    fun rxDeleteBatch(ids: List<ID>, clientId: String? = null): Single<List<Int>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxDeleteBatch(ids, sc.sqlClient(), clientId)
+    }
+
+    fun rxDeleteBatch(ids: List<ID>, client: SqlClient, clientId: String? = null): Single<List<Int>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statement = tableStatements().deleteBatch(ids.map { keyValues(it) })
+        return RxDaoHelper.batch(listOf(statement), ids.size, client, sc).map { rxRowCounts(it) }
+    }
+
+    /**
+     * Insert the dtos with a single statement that selects the rows from unnest (one array parameter per column).
+     * Columns that are null in all dtos are omitted (so that the defaults apply), a column that is set in any dto
+     * is inserted as null for the dtos where it is null. Tables with array columns can't use unnest, their rows are
+     * inserted with one prepared statement per row (executeBatch) instead, which has the same effect.
+     * @return the number of inserted rows
+     */
+    suspend fun createAll(dtos: List<DTO>): Int {
+        if (dtos.isEmpty()) {
+            return 0
+        }
+        val statements = insertAll(dtos, upsert = false, returning = false)
+        return DaoHelper.batch(statements, dtos.size, context).sumBy { it?.rowCount() ?: 0 }
+    }
+
+    suspend fun createAll(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): Int {
+        if (dtos.isEmpty()) {
+            return 0
+        }
+        val statements = insertAll(dtos, upsert = false, returning = false)
+        return DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context))
+            .sumBy { it?.rowCount() ?: 0 }
+    }
+
+    fun rxCreateAll(dtos: List<DTO>, clientId: String? = null): Single<Int> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxCreateAll(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxCreateAll(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<Int> {
+        if (dtos.isEmpty()) {
+            return Single.just(0)
+        }
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = insertAll(dtos, upsert = false, returning = false)
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { results ->
+            results.sumBy { it?.rowCount() ?: 0 }
+        }
+    }
+
+    suspend fun createAllReturning(dtos: List<DTO>): List<DTO> {
+        if (dtos.isEmpty()) {
+            return emptyList()
+        }
+        val statements = insertAll(dtos, upsert = false, returning = true)
+        return DaoHelper.batch(statements, dtos.size, context).filterNotNull().flatMap { map(it) }
+    }
+
+    suspend fun createAllReturning(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): List<DTO> {
+        if (dtos.isEmpty()) {
+            return emptyList()
+        }
+        val statements = insertAll(dtos, upsert = false, returning = true)
+        return DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context))
+            .filterNotNull().flatMap { map(it) }
+    }
+
+    fun rxCreateAllReturning(dtos: List<DTO>, clientId: String? = null): Single<List<DTO>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxCreateAllReturning(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxCreateAllReturning(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<List<DTO>> {
+        if (dtos.isEmpty()) {
+            return Single.just(emptyList())
+        }
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = insertAll(dtos, upsert = false, returning = true)
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { results ->
+            results.filterNotNull().flatMap { map(it) }
+        }
+    }
+
+    /**
+     * Insert the dtos like [createAll], updating rows with the same primary key instead (on conflict do update).
+     * Note that the update sets all columns that are set in any dto, i.e. a column that is null in a dto is set to
+     * NULL (and not left unchanged) if another dto has a value for it; use [updateBatch] to only update the set
+     * values. Since a statement can't update the same row twice, only the last of several dtos with the same primary
+     * key is upserted.
+     * @return the number of inserted or updated rows
+     */
+    suspend fun upsertAll(dtos: List<DTO>): Int {
+        if (dtos.isEmpty()) {
+            return 0
+        }
+        val statements = insertAll(dtos, upsert = true, returning = false)
+        return DaoHelper.batch(statements, dtos.size, context).sumBy { it?.rowCount() ?: 0 }
+    }
+
+    suspend fun upsertAll(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): Int {
+        if (dtos.isEmpty()) {
+            return 0
+        }
+        val statements = insertAll(dtos, upsert = true, returning = false)
+        return DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context))
+            .sumBy { it?.rowCount() ?: 0 }
+    }
+
+    fun rxUpsertAll(dtos: List<DTO>, clientId: String? = null): Single<Int> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxUpsertAll(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxUpsertAll(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<Int> {
+        if (dtos.isEmpty()) {
+            return Single.just(0)
+        }
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = insertAll(dtos, upsert = true, returning = false)
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { results ->
+            results.sumBy { it?.rowCount() ?: 0 }
+        }
+    }
+
+    suspend fun upsertAllReturning(dtos: List<DTO>): List<DTO> {
+        if (dtos.isEmpty()) {
+            return emptyList()
+        }
+        val statements = insertAll(dtos, upsert = true, returning = true)
+        return DaoHelper.batch(statements, dtos.size, context).filterNotNull().flatMap { map(it) }
+    }
+
+    suspend fun upsertAllReturning(dtos: List<DTO>, client: io.vertx.sqlclient.SqlClient): List<DTO> {
+        if (dtos.isEmpty()) {
+            return emptyList()
+        }
+        val statements = insertAll(dtos, upsert = true, returning = true)
+        return DaoHelper.batch(statements, dtos.size, client, toSingleDatabaseContext(context))
+            .filterNotNull().flatMap { map(it) }
+    }
+
+    fun rxUpsertAllReturning(dtos: List<DTO>, clientId: String? = null): Single<List<DTO>> {
+        val sc = getSingleDatabaseContext(context, clientId)
+        return rxUpsertAllReturning(dtos, sc.sqlClient(), clientId)
+    }
+
+    fun rxUpsertAllReturning(dtos: List<DTO>, client: SqlClient, clientId: String? = null): Single<List<DTO>> {
+        if (dtos.isEmpty()) {
+            return Single.just(emptyList())
+        }
+        val sc = getSingleDatabaseContext(context, clientId)
+        val statements = insertAll(dtos, upsert = true, returning = true)
+        return RxDaoHelper.batch(statements, dtos.size, client, sc).map { results ->
+            results.filterNotNull().flatMap { map(it) }
+        }
+    }
+
+    private fun insertAll(dtos: List<DTO>, upsert: Boolean, returning: Boolean): List<BatchStatement> {
+        return listOf(tableStatements().insertAll(createBatchValues(dtos), upsert, returning))
+    }
+
+    private fun createBatchValues(dtos: List<DTO>): List<Array<Any?>> {
+        return dtos.map {
+            validate(it)
+            createValues(it)
+        }
+    }
+
+    private fun rowCounts(results: List<RowSet<Row>?>): List<Int> {
+        return results.map { it?.rowCount() ?: 0 }
+    }
+
+    private fun rxRowCounts(
+        results: List<io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row>?>
+    ): List<Int> {
+        return results.map { it?.rowCount() ?: 0 }
+    }
+
     suspend fun delete(condition: Condition): Int {
         return DaoHelper.update(context.dsl().deleteFrom(table).where(condition), context)
     }
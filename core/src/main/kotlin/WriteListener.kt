@@ -0,0 +1,24 @@
+package io.en4ble.pgaccess
+
+/**
+ * Notified about inserts, updates and deletes that were run with a [SingleDatabaseContext]
+ * (e.g. to invalidate caches). Writes in a transaction are notified again after the commit.
+ * With an [io.en4ble.pgaccess.cache.InvalidationBus] the writes of other nodes are notified as well.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+fun interface WriteListener {
+    /**
+     * @param table the qualified name of the written table ("schema.table", see
+     * [io.en4ble.pgaccess.util.DaoHelperCommon.qualifiedName]) or null if it is unknown
+     */
+    fun written(table: String?)
+
+    /**
+     * @param keys the primary keys of the written rows if known (values of a single column key,
+     * as strings if written by another node), null if any row may have been written
+     */
+    fun written(table: String?, keys: Collection<Any>?) {
+        written(table)
+    }
+}
@@ -0,0 +1,68 @@
+package io.en4ble.pgaccess.cache
+
+/**
+ * Cache of entities (dtos) by primary key, see [io.en4ble.pgaccess.UpdatableAsyncDaoBase.entityCache].
+ * A cache can be shared by multiple DAOs since the keys contain the table.
+ * NOTE: cached dtos are shared between all readers and must not be modified.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+interface EntityCache {
+    fun get(key: EntityKey): Any?
+
+    /**
+     * A token that identifies the current state of the cache. It is taken before loading an entity and passed to
+     * [put], so that entities that were loaded while the cache was invalidated are not cached.
+     */
+    fun token(): Long
+
+    /**
+     * Cache the entity unless the cache was invalidated since the given token was taken.
+     */
+    fun put(key: EntityKey, value: Any, token: Long)
+
+    fun invalidate(key: EntityKey)
+
+    /** Remove all entities of the given table (qualified name, see [EntityKey.table]). */
+    fun invalidateTable(table: String)
+
+    /**
+     * Remove the entities of the given table with the given ids (compared by their string representation,
+     * since the ids of other nodes are received as strings).
+     */
+    fun invalidateKeys(table: String, ids: Collection<Any>) {
+        invalidateTable(table)
+    }
+
+    fun invalidateAll()
+
+    /** Record the time it took to load an entity that was not cached. */
+    fun recordLoad(nanos: Long)
+
+    fun stats(): EntityCacheStats
+}
+
+/**
+ * @param table the qualified name of the table ("schema.table" without quotes, e.g. "public.conference" for tables
+ * without schema), the name that is passed to [EntityCache.invalidateTable] and [EntityCache.invalidateKeys] when
+ * the table is written
+ * @param clientId the client id of the database when using a [io.en4ble.pgaccess.MultiDatabaseContext]
+ */
+data class EntityKey(val table: String, val id: Any, val clientId: String? = null)
+
+data class EntityCacheStats(
+    val hits: Long,
+    val misses: Long,
+    val evictions: Long,
+    val expirations: Long,
+    val invalidations: Long,
+    val size: Int,
+    val loads: Long,
+    val loadNanos: Long
+) {
+    val hitRatio: Double
+        get() = if (hits + misses == 0L) 0.0 else hits.toDouble() / (hits + misses)
+
+    val averageLoadMillis: Double
+        get() = if (loads == 0L) 0.0 else loadNanos / loads / 1_000_000.0
+}
@@ -0,0 +1,161 @@
+package io.en4ble.pgaccess.cache
+
+import io.en4ble.pgaccess.util.DaoHelperCommon
+import io.vertx.core.Vertx
+import io.vertx.core.json.JsonArray
+import io.vertx.core.json.JsonObject
+import io.vertx.pgclient.PgConnectOptions
+import io.vertx.pgclient.pubsub.PgSubscriber
+import io.vertx.sqlclient.SqlClient
+import io.vertx.sqlclient.Tuple
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Distributes the writes of this node to all nodes listening on the same [channel] (PostgreSQL LISTEN/NOTIFY),
+ * so that every node can drop the affected entries from its local caches.
+ * Messages contain the written tables and, if known, the primary keys of the written rows. Received messages are
+ * passed to [invalidate] (messages sent by this node are ignored, its caches are invalidated locally).
+ * Notifications sent while the subscription is interrupted are lost, therefore all caches are flushed
+ * (table null) when the subscription is established again.
+ * The subscription uses a connection of its own to [connectOptions], which must not go through a pooler in
+ * transaction mode (it would not keep the LISTEN of the session). Notifications are sent as static statements,
+ * which work with any statement mode and pooler.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class InvalidationBus(
+    private val vertx: Vertx,
+    connectOptions: PgConnectOptions,
+    val channel: String,
+    /** used to send the notifications of writes outside of transactions */
+    private val client: SqlClient,
+    private val invalidate: (table: String?, keys: Collection<Any>?) -> Unit
+) {
+    private val LOG by lazy { LoggerFactory.getLogger(InvalidationBus::class.java) }
+
+    val nodeId: String = UUID.randomUUID().toString()
+
+    private val published = AtomicLong()
+    private val received = AtomicLong()
+    private val flushes = AtomicLong()
+    private val subscriptions = AtomicInteger()
+
+    @Volatile
+    private var closed = false
+
+    private val subscriber = PgSubscriber.subscriber(vertx, connectOptions)
+        .reconnectPolicy { RECONNECT_DELAY_MS }
+
+    init {
+        subscriber.channel(channel)
+            .handler { received(it) }
+            .subscribeHandler {
+                if (subscriptions.incrementAndGet() > 1) {
+                    LOG.info("resubscribed to invalidation channel {}, flushing caches", channel)
+                    flush()
+                }
+            }
+        connect()
+    }
+
+    private fun connect() {
+        subscriber.connect().onFailure {
+            if (!closed) {
+                LOG.warn("could not subscribe to invalidation channel $channel, retrying", it)
+                vertx.setTimer(RECONNECT_DELAY_MS) { if (!closed) connect() }
+            }
+        }
+    }
+
+    /**
+     * Notify the other nodes about the writes (table to the keys of the written rows or null).
+     */
+    fun publish(writes: Map<String?, Collection<Any>?>) {
+        val sql = notification(writes) ?: return
+        client.query(sql).execute().onFailure {
+            LOG.warn("could not publish invalidation on channel $channel", it)
+        }
+    }
+
+    /**
+     * The statement that notifies the other nodes about the writes, null if there are none. Run it on the connection
+     * of a transaction before the commit: the notification is delivered with the commit (and dropped on rollback).
+     */
+    fun notification(writes: Map<String?, Collection<Any>?>): String? {
+        if (writes.isEmpty()) {
+            return null
+        }
+        var payload = encode(writes, true)
+        if (payload.toByteArray(Charsets.UTF_8).size > MAX_PAYLOAD) {
+            payload = encode(writes, false)
+            if (payload.toByteArray(Charsets.UTF_8).size > MAX_PAYLOAD) {
+                payload = encode(mapOf(null to null), false)
+            }
+        }
+        published.incrementAndGet()
+        return DaoHelperCommon.inlineParams("select pg_notify($1, $2)", Tuple.of(channel, payload))
+    }
+
+    private fun encode(writes: Map<String?, Collection<Any>?>, withKeys: Boolean): String {
+        val entries = JsonArray()
+        for ((table, keys) in writes) {
+            val entry = JsonObject().put("t", table)
+            if (withKeys && keys != null) {
+                entry.put("k", JsonArray(keys.map { it.toString() }))
+            }
+            entries.add(entry)
+        }
+        return JsonObject().put("n", nodeId).put("w", entries).encode()
+    }
+
+    private fun received(payload: String) {
+        val message = try {
+            JsonObject(payload)
+        } catch (e: Exception) {
+            LOG.warn("invalid invalidation message on channel {}: {}", channel, payload)
+            return
+        }
+        if (message.getString("n") == nodeId) {
+            return
+        }
+        received.incrementAndGet()
+        val writes = message.getJsonArray("w") ?: return
+        for (i in 0 until writes.size()) {
+            val write = writes.getJsonObject(i)
+            invalidate(write.getString("t"), write.getJsonArray("k")?.list?.map { it.toString() })
+        }
+    }
+
+    private fun flush() {
+        flushes.incrementAndGet()
+        invalidate(null, null)
+    }
+
+    fun connected(): Boolean {
+        return subscriber.actualConnection() != null
+    }
+
+    /**
+     * Stop listening (called by [io.en4ble.pgaccess.SingleDatabaseContext.close]).
+     */
+    fun close() {
+        closed = true
+        subscriber.close()
+    }
+
+    fun stats(): InvalidationBusStats {
+        return InvalidationBusStats(published.get(), received.get(), flushes.get(), connected())
+    }
+
+    companion object {
+        /** NOTIFY payloads must be shorter than 8000 bytes */
+        private const val MAX_PAYLOAD = 7999
+        private const val RECONNECT_DELAY_MS = 1000L
+    }
+}
+
+data class InvalidationBusStats(val published: Long, val received: Long, val flushes: Long, val connected: Boolean)
@@ -0,0 +1,113 @@
+package io.en4ble.pgaccess.cache
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * [EntityCache] with a maximum size (the least recently used entities are evicted) and a time to live.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class LruEntityCache(val maxSize: Int, val ttlMillis: Long) : EntityCache {
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+    private val expirations = AtomicLong()
+    private val invalidations = AtomicLong()
+    private val loads = AtomicLong()
+    private val loadNanos = AtomicLong()
+
+    private class Entry(val value: Any, val expires: Long)
+
+    private val entries = object : LinkedHashMap<EntityKey, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<EntityKey, Entry>?): Boolean {
+            val evict = size > maxSize
+            if (evict) {
+                evictions.incrementAndGet()
+            }
+            return evict
+        }
+    }
+
+    override fun get(key: EntityKey): Any? {
+        val entry = synchronized(entries) {
+            val entry = entries[key]
+            if (entry != null && entry.expires < System.currentTimeMillis()) {
+                entries.remove(key)
+                expirations.incrementAndGet()
+                null
+            } else {
+                entry
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet()
+            return null
+        }
+        hits.incrementAndGet()
+        return entry.value
+    }
+
+    override fun token(): Long {
+        return invalidations.get()
+    }
+
+    override fun put(key: EntityKey, value: Any, token: Long) {
+        if (maxSize <= 0) {
+            return
+        }
+        synchronized(entries) {
+            // checked inside the lock, invalidations increment the counter while holding it
+            if (token == invalidations.get()) {
+                entries[key] = Entry(value, System.currentTimeMillis() + ttlMillis)
+            }
+        }
+    }
+
+    override fun invalidate(key: EntityKey) {
+        synchronized(entries) {
+            invalidations.incrementAndGet()
+            entries.remove(key)
+        }
+    }
+
+    override fun invalidateTable(table: String) {
+        synchronized(entries) {
+            invalidations.incrementAndGet()
+            entries.keys.removeIf { it.table == table }
+        }
+    }
+
+    override fun invalidateKeys(table: String, ids: Collection<Any>) {
+        val names = ids.mapTo(HashSet()) { it.toString() }
+        synchronized(entries) {
+            invalidations.incrementAndGet()
+            entries.keys.removeIf { it.table == table && it.id.toString() in names }
+        }
+    }
+
+    override fun invalidateAll() {
+        synchronized(entries) {
+            invalidations.incrementAndGet()
+            entries.clear()
+        }
+    }
+
+    override fun recordLoad(nanos: Long) {
+        loads.incrementAndGet()
+        loadNanos.addAndGet(nanos)
+    }
+
+    override fun stats(): EntityCacheStats {
+        return EntityCacheStats(
+            hits.get(),
+            misses.get(),
+            evictions.get(),
+            expirations.get(),
+            invalidations.get(),
+            synchronized(entries) { entries.size },
+            loads.get(),
+            loadNanos.get()
+        )
+    }
+}
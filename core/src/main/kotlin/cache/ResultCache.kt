@@ -0,0 +1,161 @@
+package io.en4ble.pgaccess.cache
+
+import io.en4ble.pgaccess.util.StatementKey
+import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.RowSet
+import io.vertx.sqlclient.Tuple
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Cache of the results of selects, keyed by the final sql and the bind values. The cache holds at most
+ * [maxEntries] results with at most [maxRows] rows in total, the least recently used results are evicted.
+ * Results are tagged with the qualified names of the tables they depend on (see [CachePolicy]) and dropped when one
+ * of them is written, writes to other tables don't keep concurrently loaded results from being cached.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class ResultCache(val maxEntries: Int, val maxRows: Int) {
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+    private val expirations = AtomicLong()
+    private val invalidations = AtomicLong()
+    private var rows = 0
+
+    // the invalidation (counter value) that last dropped the results of the table / of all tables
+    private val tableInvalidations = HashMap<String, Long>()
+    private var allInvalidation = 0L
+
+    private class Entry(val result: RowSet<Row>, val tables: Set<String>, val expires: Long)
+
+    private val entries = object : LinkedHashMap<StatementKey, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<StatementKey, Entry>): Boolean {
+            val evict = size > maxEntries || rows > maxRows
+            if (evict) {
+                rows -= eldest.value.result.size()
+                evictions.incrementAndGet()
+            }
+            return evict
+        }
+    }
+
+    /**
+     * @return the cached result or null if the result is not cached (or expired)
+     */
+    fun get(sql: String, params: Tuple?): RowSet<Row>? {
+        val key = StatementKey(sql, params)
+        val entry = synchronized(entries) {
+            val entry = entries[key]
+            if (entry != null && entry.expires < System.currentTimeMillis()) {
+                remove(key)
+                expirations.incrementAndGet()
+                null
+            } else {
+                entry
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet()
+            return null
+        }
+        hits.incrementAndGet()
+        return entry.result
+    }
+
+    /**
+     * A token to pass to [put], taken before executing the statement:
+     * results are not cached when one of the tables they depend on was written in between.
+     */
+    fun token(): Long {
+        return invalidations.get()
+    }
+
+    fun put(sql: String, params: Tuple?, result: RowSet<Row>, policy: CachePolicy, token: Long) {
+        val size = result.size()
+        if (maxEntries <= 0 || policy.ttlMillis <= 0 || size > maxRows) {
+            return
+        }
+        val key = StatementKey(sql, params)
+        synchronized(entries) {
+            if (allInvalidation > token || policy.tables.any { (tableInvalidations[it] ?: 0L) > token }) {
+                return
+            }
+            remove(key)
+            rows += size
+            entries[key] = Entry(result, policy.tables, System.currentTimeMillis() + policy.ttlMillis)
+            // removeEldestEntry only evicts one entry per put
+            val iterator = entries.values.iterator()
+            while (rows > maxRows && iterator.hasNext()) {
+                rows -= iterator.next().result.size()
+                iterator.remove()
+                evictions.incrementAndGet()
+            }
+        }
+    }
+
+    /**
+     * Drop the results that depend on the table, all results if the table is null (unknown).
+     */
+    fun invalidateTable(table: String?) {
+        synchronized(entries) {
+            val invalidation = invalidations.incrementAndGet()
+            if (table == null) {
+                allInvalidation = invalidation
+                entries.clear()
+                rows = 0
+            } else {
+                tableInvalidations[table] = invalidation
+                val iterator = entries.values.iterator()
+                while (iterator.hasNext()) {
+                    val entry = iterator.next()
+                    if (table in entry.tables) {
+                        rows -= entry.result.size()
+                        iterator.remove()
+                    }
+                }
+            }
+        }
+    }
+
+    fun invalidateAll() {
+        invalidateTable(null)
+    }
+
+    fun stats(): ResultCacheStats {
+        return synchronized(entries) {
+            ResultCacheStats(
+                hits.get(),
+                misses.get(),
+                evictions.get(),
+                expirations.get(),
+                invalidations.get(),
+                entries.size,
+                rows
+            )
+        }
+    }
+
+    private fun remove(key: StatementKey) {
+        entries.remove(key)?.let { rows -= it.result.size() }
+    }
+}
+
+/**
+ * How long a result is cached and the qualified names ("schema.table") of the tables it depends on:
+ * writes to one of the tables invalidate the result.
+ */
+data class CachePolicy(val ttlMillis: Long, val tables: Set<String>)
+
+data class ResultCacheStats(
+    val hits: Long,
+    val misses: Long,
+    val evictions: Long,
+    val expirations: Long,
+    val invalidations: Long,
+    val size: Int,
+    val rows: Int
+) {
+    val hitRatio: Double
+        get() = if (hits + misses == 0L) 0.0 else hits.toDouble() / (hits + misses)
+}
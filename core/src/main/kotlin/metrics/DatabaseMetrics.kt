@@ -0,0 +1,64 @@
+package io.en4ble.pgaccess.metrics
+
+/**
+ * Receives the pool and transaction metrics of the database contexts (see
+ * [io.en4ble.pgaccess.SingleDatabaseContext.metrics]), all tagged with the client id of the context.
+ * Implementations are called on the event loop and must not block.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused")
+interface DatabaseMetrics {
+    /**
+     * Called once when the metrics are attached to a context, [usage] can be polled for gauges.
+     */
+    fun register(clientId: String, usage: () -> PoolUsage) {}
+
+    /**
+     * A connection was taken from the pool for a transaction or stream.
+     * @param waitNanos time from the request until the connection was available (including its creation)
+     */
+    fun connectionAcquired(clientId: String, waitNanos: Long) {}
+
+    /**
+     * The pool opened a new connection.
+     * @param nanos time from the request that made the pool grow until the connection was established
+     *  (0 if not known, e.g. for connections opened before the metrics were attached)
+     */
+    fun connectionCreated(clientId: String, nanos: Long) {}
+
+    /**
+     * A connection could not be established or was lost.
+     */
+    fun connectionFailed(clientId: String, error: Throwable) {}
+
+    /**
+     * A transaction ended.
+     * @param nanos time from [io.en4ble.pgaccess.DatabaseContext.beginTx] until commit or rollback
+     */
+    fun transactionCompleted(clientId: String, nanos: Long, committed: Boolean) {}
+
+    /**
+     * A transaction failed with a retryable error (see [io.en4ble.pgaccess.RetryPolicy]) and is run again.
+     * @param wastedNanos time of the failed attempt and the backoff
+     */
+    fun transactionRetried(clientId: String, sqlState: String, wastedNanos: Long) {}
+
+    /**
+     * A transaction failed with a retryable error but is not run again.
+     * @param reason "attempts" if all attempts were used, "budget" if the retry budget was exhausted
+     */
+    fun transactionRetryRejected(clientId: String, sqlState: String, reason: String) {}
+}
+
+/**
+ * Usage of the pool of a context.
+ * @param size open connections
+ * @param active connections in use (by transactions or statements)
+ * @param idle open connections that are not in use
+ * @param pending requests waiting for a connection
+ */
+data class PoolUsage(val maxSize: Int, val size: Int, val active: Int, val idle: Int, val pending: Int) {
+    val saturation: Double
+        get() = if (maxSize == 0) 0.0 else active.toDouble() / maxSize
+}
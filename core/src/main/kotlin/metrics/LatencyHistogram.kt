@@ -0,0 +1,74 @@
+package io.en4ble.pgaccess.metrics
+
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock free histogram of durations with log-linear buckets (like HdrHistogram): each power of two is split into
+ * [SUB_BUCKETS] linear buckets, so that values are recorded with a relative error below 1/[SUB_BUCKETS]
+ * (12.5%) in constant memory. Durations are recorded in microseconds, up to about 19 hours.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class LatencyHistogram {
+    private val counts = AtomicLongArray(BUCKETS)
+
+    fun record(nanos: Long) {
+        counts.incrementAndGet(bucket(nanos / 1000))
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound in nanoseconds of the bucket that contains the percentile, 0 if nothing was recorded
+     */
+    fun percentile(percentile: Double): Long {
+        val snapshot = LongArray(BUCKETS) { counts.get(it) }
+        val total = snapshot.sum()
+        if (total == 0L) {
+            return 0
+        }
+        val rank = Math.max(1, Math.ceil(total * percentile / 100).toLong())
+        var seen = 0L
+        for (i in snapshot.indices) {
+            seen += snapshot[i]
+            if (seen >= rank) {
+                return upperBound(i) * 1000
+            }
+        }
+        return upperBound(BUCKETS - 1) * 1000
+    }
+
+    fun reset() {
+        for (i in 0 until BUCKETS) {
+            counts.set(i, 0)
+        }
+    }
+
+    companion object {
+        private const val SUB_BUCKET_BITS = 3
+        const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+        private const val MAX_EXPONENT = 36
+        private const val BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS
+
+        private fun bucket(micros: Long): Int {
+            if (micros < SUB_BUCKETS) {
+                return Math.max(0, micros.toInt())
+            }
+            val exponent = 63 - java.lang.Long.numberOfLeadingZeros(micros)
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1
+            }
+            val sub = ((micros ushr (exponent - SUB_BUCKET_BITS)) and (SUB_BUCKETS - 1).toLong()).toInt()
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub
+        }
+
+        private fun upperBound(bucket: Int): Long {
+            if (bucket < SUB_BUCKETS) {
+                return bucket.toLong()
+            }
+            val exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1
+            val sub = bucket % SUB_BUCKETS
+            return ((SUB_BUCKETS + sub + 1).toLong() shl (exponent - SUB_BUCKET_BITS)) - 1
+        }
+    }
+}
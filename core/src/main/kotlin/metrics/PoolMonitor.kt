@@ -0,0 +1,139 @@
+package io.en4ble.pgaccess.metrics
+
+import io.en4ble.pgaccess.util.DaoHelperCommon
+import io.reactivex.Single
+import io.vertx.core.Future
+import io.vertx.sqlclient.SqlClient
+import io.vertx.sqlclient.SqlConnection
+import java.util.*
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Tracks the usage of the pool of a context and reports it to the [metrics].
+ * The pool does not expose its state, so the usage is derived from the requests of this library: connections
+ * held for transactions and statements running on the pool are active, requests beyond [maxSize] are pending.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+internal class PoolMonitor(val clientId: String, val maxSize: Int, val metrics: DatabaseMetrics) {
+    private val held = AtomicInteger()
+    private val statements = AtomicInteger()
+    private val waiting = AtomicInteger()
+    private val open = AtomicInteger()
+
+    // start of the requests that found no idle connection while the pool can still grow,
+    // the oldest one is served by the next connection that is opened
+    private val growing = ConcurrentLinkedQueue<Long>()
+
+    // start of the transactions by connection
+    private val transactions = Collections.synchronizedMap(WeakHashMap<SqlClient, Long>())
+
+    fun usage(): PoolUsage {
+        val inUse = held.get() + statements.get()
+        val active = min(inUse, maxSize)
+        val size = max(open.get(), active)
+        return PoolUsage(maxSize, size, active, size - active, waiting.get() + max(0, inUse - maxSize))
+    }
+
+    /**
+     * @return the start time of the request
+     */
+    fun acquireStarted(): Long {
+        val start = requested()
+        waiting.incrementAndGet()
+        return start
+    }
+
+    fun acquired(connection: SqlClient, start: Long) {
+        waiting.decrementAndGet()
+        held.incrementAndGet()
+        transactions[connection] = start
+        metrics.connectionAcquired(clientId, System.nanoTime() - start)
+    }
+
+    fun acquireFailed(error: Throwable) {
+        waiting.decrementAndGet()
+        failed(error)
+    }
+
+    /**
+     * The transaction of the connection ended and the connection is returned to the pool.
+     */
+    fun released(connection: SqlClient, committed: Boolean) {
+        val start = transactions.remove(connection) ?: return
+        held.decrementAndGet()
+        metrics.transactionCompleted(clientId, System.nanoTime() - start, committed)
+    }
+
+    /**
+     * Track a statement, only statements run on the pool (outside of transactions) use their own connection.
+     */
+    fun <T> statement(client: SqlClient, send: () -> Future<T>): Future<T> {
+        if (!DaoHelperCommon.isPooled(client)) {
+            return send()
+        }
+        requested()
+        statements.incrementAndGet()
+        val future = try {
+            send()
+        } catch (e: Exception) {
+            Future.failedFuture(e)
+        }
+        return future.onComplete {
+            statements.decrementAndGet()
+            if (it.failed() && DaoHelperCommon.isConnectionError(it.cause())) {
+                failed(it.cause())
+            }
+        }
+    }
+
+    fun <T> statement(client: SqlClient, single: Single<T>): Single<T> {
+        if (!DaoHelperCommon.isPooled(client)) {
+            return single
+        }
+        return Single.defer {
+            requested()
+            statements.incrementAndGet()
+            single.doOnError { if (DaoHelperCommon.isConnectionError(it)) failed(it) }
+                .doFinally { statements.decrementAndGet() }
+        }
+    }
+
+    /**
+     * Called by the pool for each new connection.
+     */
+    fun connectionCreated(connection: SqlConnection) {
+        val start = growing.poll()
+        if (open.incrementAndGet() >= maxSize) {
+            growing.clear()
+        }
+        connection.closeHandler { open.decrementAndGet() }
+        metrics.connectionCreated(clientId, if (start == null) 0 else System.nanoTime() - start)
+    }
+
+    fun retried(sqlState: String, wastedNanos: Long) {
+        metrics.transactionRetried(clientId, sqlState, wastedNanos)
+    }
+
+    fun retryRejected(sqlState: String, reason: String) {
+        metrics.transactionRetryRejected(clientId, sqlState, reason)
+    }
+
+    private fun requested(): Long {
+        val start = System.nanoTime()
+        val opened = open.get()
+        if (opened < maxSize && held.get() + statements.get() + waiting.get() >= opened) {
+            growing.add(start)
+        }
+        return start
+    }
+
+    private fun failed(error: Throwable) {
+        growing.poll()
+        metrics.connectionFailed(clientId, error)
+    }
+}
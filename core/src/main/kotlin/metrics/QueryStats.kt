@@ -0,0 +1,186 @@
+package io.en4ble.pgaccess.metrics
+
+import io.en4ble.pgaccess.QueryEvent
+import io.en4ble.pgaccess.QueryListener
+import io.vertx.sqlclient.Row
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Client side statistics of the executed statements by shape (like pg_stat_statements): the sql with all
+ * literals and bind parameters replaced by '?' and lists of parameters collapsed.
+ * At most [maxShapes] shapes are tracked, further shapes are counted as [OTHER_SHAPE].
+ * Registered as [QueryListener] by the context if enabled in the config.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class QueryStats(val maxShapes: Int) : QueryListener {
+    private val shapes = ConcurrentHashMap<String, ShapeStats>()
+
+    // the stats of each executed sql, the shape is only computed once per sql
+    private val statements = ConcurrentHashMap<String, ShapeStats>()
+
+    override fun completed(event: QueryEvent) {
+        val stats = record(event.sql, event.durationNanos)
+        stats.rows.add(event.rows.toLong())
+        event.firstRow?.let { stats.bytes.add(estimateBytes(it) * event.rows) }
+    }
+
+    override fun failed(event: QueryEvent, error: Throwable) {
+        record(event.sql, event.durationNanos).errors.increment()
+    }
+
+    private fun record(sql: String, nanos: Long): ShapeStats {
+        val stats = statements[sql] ?: shapeStats(sql)
+        stats.calls.increment()
+        stats.totalNanos.add(nanos)
+        stats.histogram.record(nanos)
+        var max = stats.maxNanos.get()
+        while (nanos > max && !stats.maxNanos.compareAndSet(max, nanos)) {
+            max = stats.maxNanos.get()
+        }
+        return stats
+    }
+
+    /**
+     * Statistics of all shapes.
+     */
+    fun snapshot(): List<QueryShapeStats> {
+        return shapes.values.map { it.snapshot() }
+    }
+
+    /** The shapes with the highest total execution time. */
+    fun topByTotalTime(n: Int): List<QueryShapeStats> {
+        return snapshot().sortedByDescending { it.totalNanos }.take(n)
+    }
+
+    /** The shapes with the highest 99th percentile of the execution time. */
+    fun topByP99(n: Int): List<QueryShapeStats> {
+        return snapshot().sortedByDescending { it.p99Nanos }.take(n)
+    }
+
+    fun reset() {
+        statements.clear()
+        shapes.clear()
+    }
+
+    private fun shapeStats(sql: String): ShapeStats {
+        // static statements include their values, so the number of distinct sql is not bounded
+        if (statements.size >= maxShapes * 10) {
+            statements.clear()
+        }
+        val shape = shape(sql)
+        val stats = shapes[shape] ?: if (shapes.size >= maxShapes) {
+            shapes.computeIfAbsent(OTHER_SHAPE) { ShapeStats(it) }
+        } else {
+            shapes.computeIfAbsent(shape) { ShapeStats(it) }
+        }
+        statements[sql] = stats
+        return stats
+    }
+
+    private class ShapeStats(val shape: String) {
+        val calls = LongAdder()
+        val errors = LongAdder()
+        val totalNanos = LongAdder()
+        val maxNanos = AtomicLong()
+        val rows = LongAdder()
+        val bytes = LongAdder()
+        val histogram = LatencyHistogram()
+
+        fun snapshot(): QueryShapeStats {
+            return QueryShapeStats(
+                shape,
+                calls.sum(),
+                errors.sum(),
+                totalNanos.sum(),
+                maxNanos.get(),
+                histogram.percentile(50.0),
+                histogram.percentile(95.0),
+                histogram.percentile(99.0),
+                rows.sum(),
+                bytes.sum()
+            )
+        }
+    }
+
+    companion object {
+        const val OTHER_SHAPE = "<other>"
+
+        private val PARAMETER_LIST = Regex("\\?(?:\\s*,\\s*\\?)+")
+
+        /**
+         * Replace literals (strings, numbers) and placeholders by '?' and collapse lists of them to '?, ...'.
+         */
+        fun shape(sql: String): String {
+            val sb = StringBuilder(sql.length)
+            var i = 0
+            while (i < sql.length) {
+                val c = sql[i]
+                val previous = if (i > 0) sql[i - 1] else ' '
+                when {
+                    c == '\'' -> {
+                        i++
+                        while (i < sql.length && (sql[i] != '\'' || (i + 1 < sql.length && sql[i + 1] == '\''))) {
+                            i += if (sql[i] == '\'') 2 else 1
+                        }
+                        sb.append('?')
+                    }
+                    c == '"' -> {
+                        val end = sql.indexOf('"', i + 1).let { if (it < 0) sql.length - 1 else it }
+                        sb.append(sql, i, end + 1)
+                        i = end
+                    }
+                    (c.isDigit() || (c == '$' && i + 1 < sql.length && sql[i + 1].isDigit())) &&
+                        !previous.isLetterOrDigit() && previous != '_' && previous != '$' -> {
+                        i++
+                        while (i < sql.length && (sql[i].isDigit() || sql[i] == '.')) {
+                            i++
+                        }
+                        i--
+                        sb.append('?')
+                    }
+                    else -> sb.append(c)
+                }
+                i++
+            }
+            return PARAMETER_LIST.replace(sb, "?, ...")
+        }
+
+        /**
+         * Rough size of a row: the length of strings and binary values, 8 bytes for other values.
+         * Only the first row of a result is measured, the bytes of the result are estimated from it.
+         */
+        private fun estimateBytes(row: Row): Long {
+            var bytes = 0L
+            for (i in 0 until row.size()) {
+                bytes += when (val value = row.getValue(i)) {
+                    null -> 0
+                    is String -> value.length.toLong()
+                    is io.vertx.core.buffer.Buffer -> value.length().toLong()
+                    is Array<*> -> value.size * 8L
+                    else -> 8
+                }
+            }
+            return bytes
+        }
+    }
+}
+
+data class QueryShapeStats(
+    val shape: String,
+    val calls: Long,
+    val errors: Long,
+    val totalNanos: Long,
+    val maxNanos: Long,
+    val p50Nanos: Long,
+    val p95Nanos: Long,
+    val p99Nanos: Long,
+    val rows: Long,
+    val bytes: Long
+) {
+    val meanNanos: Long
+        get() = if (calls == 0L) 0 else totalNanos / calls
+}
@@ -0,0 +1,144 @@
+package io.en4ble.pgaccess.metrics
+
+import io.en4ble.pgaccess.QueryEvent
+import io.en4ble.pgaccess.QueryListener
+import io.en4ble.pgaccess.util.DaoHelperCommon
+import io.vertx.sqlclient.SqlClient
+import io.vertx.sqlclient.Tuple
+import org.slf4j.LoggerFactory
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Keeps the last [capacity] statements that took at least [thresholdMillis] (with their parameters), including
+ * statements that failed after that time (e.g. with a statement timeout).
+ * For a sampled fraction ([explainRate]) of them the plan is fetched with EXPLAIN on the [explainClient],
+ * one at a time so that the analysis does not add load when the database is slow anyway.
+ * With [explainAnalyze] selects without side effects (see [DaoHelperCommon.isCacheable]) that completed are explained
+ * with EXPLAIN (ANALYZE, BUFFERS), which executes them again; all other statements are only planned.
+ * Registered as [QueryListener] by the context if enabled in the config, which closes the [explainClient].
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class SlowQueryLog(
+    val thresholdMillis: Long,
+    val capacity: Int,
+    val explainRate: Double = 0.0,
+    val explainAnalyze: Boolean = false,
+    private val explainClient: SqlClient? = null
+) : QueryListener {
+    private val LOG by lazy { LoggerFactory.getLogger(SlowQueryLog::class.java) }
+
+    private val thresholdNanos = thresholdMillis * 1_000_000
+    private val entries = arrayOfNulls<SlowQuery>(capacity)
+    private var count = 0L
+    private val explaining = AtomicBoolean()
+
+    override fun completed(event: QueryEvent) {
+        record(event.sql, event.params, event.durationNanos)
+    }
+
+    override fun failed(event: QueryEvent, error: Throwable) {
+        record(event.sql, event.params, event.durationNanos, error)
+    }
+
+    /**
+     * Record the statement if it was slow.
+     * @param error the error if the statement failed
+     */
+    fun record(sql: String, params: Tuple?, nanos: Long, error: Throwable? = null) {
+        if (nanos < thresholdNanos || capacity <= 0) {
+            return
+        }
+        val query = SlowQuery(
+            if (params == null) sql else DaoHelperCommon.getQueryForLogging(sql, params),
+            nanos,
+            System.currentTimeMillis(),
+            error?.message ?: error?.javaClass?.name
+        )
+        synchronized(entries) {
+            entries[(count++ % capacity).toInt()] = query
+        }
+        LOG.debug("slow query ({} ms): {}", nanos / 1_000_000, query.sql)
+        if (explainClient != null && explainRate > 0 && ThreadLocalRandom.current().nextDouble() < explainRate) {
+            explain(query, sql, params, explainClient, error == null)
+        }
+    }
+
+    /**
+     * The recorded slow queries, the most recent first.
+     */
+    fun recent(): List<SlowQuery> {
+        return synchronized(entries) {
+            val size = Math.min(count, capacity.toLong()).toInt()
+            (1..size).map { entries[((count - it) % capacity).toInt()]!! }
+        }
+    }
+
+    fun clear() {
+        synchronized(entries) {
+            entries.fill(null)
+            count = 0
+        }
+    }
+
+    /**
+     * Close the [explainClient].
+     */
+    fun close() {
+        explainClient?.close()
+    }
+
+    private fun explain(query: SlowQuery, sql: String, params: Tuple?, client: SqlClient, completed: Boolean) {
+        if (!explaining.compareAndSet(false, true)) {
+            return
+        }
+        // statements that failed (e.g. timed out) are not run again
+        val explain = if (explainAnalyze && completed && DaoHelperCommon.isCacheable(sql)) {
+            "EXPLAIN (ANALYZE, BUFFERS) $sql"
+        } else {
+            "EXPLAIN $sql"
+        }
+        val result = try {
+            if (params == null) {
+                client.query(explain).execute()
+            } else {
+                client.preparedQuery(explain).execute(params)
+            }
+        } catch (e: Exception) {
+            explaining.set(false)
+            LOG.debug("explain of slow query failed", e)
+            return
+        }
+        result.onComplete { ar ->
+            explaining.set(false)
+            if (ar.succeeded()) {
+                query.plan = ar.result().joinToString("\n") { it.getString(0) }
+            } else {
+                LOG.debug("explain of slow query failed", ar.cause())
+            }
+        }
+    }
+}
+
+/**
+ * A slow statement.
+ * @param sql the statement including its parameters
+ * @param timestamp end of the execution (epoch millis)
+ * @param error the message of the error if the statement failed
+ */
+class SlowQuery(val sql: String, val durationNanos: Long, val timestamp: Long, val error: String? = null) {
+    /** the plan of the statement if it was explained (set asynchronously) */
+    @Volatile
+    var plan: String? = null
+        internal set
+
+    override fun toString(): String {
+        return if (error == null) {
+            "SlowQuery(${durationNanos / 1_000_000} ms: $sql)"
+        } else {
+            "SlowQuery(${durationNanos / 1_000_000} ms, failed: $error: $sql)"
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.en4ble.pgaccess.sharding
+
+import java.util.*
+
+/**
+ * Consistent hashing: each shard is placed on a hash ring [virtualNodes] times and a key belongs to the shard that
+ * follows the hash of the key on the ring. Adding a shard only moves the keys that now belong to the new shard
+ * (about 1/n of the keys for n shards).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class ConsistentHashShardResolver(shards: Collection<String>, val virtualNodes: Int = 128) : ShardResolver {
+    // replaced on changes, so that lookups don't need to synchronize
+    @Volatile
+    private var ring = TreeMap<Long, String>()
+
+    init {
+        shards.forEach { addShard(it) }
+    }
+
+    override fun shard(key: Any): String {
+        val ring = this.ring
+        if (ring.isEmpty()) {
+            throw IllegalStateException("no shards registered")
+        }
+        return (ring.ceilingEntry(hash(key)) ?: ring.firstEntry()).value
+    }
+
+    @Synchronized
+    override fun addShard(clientId: String) {
+        val ring = TreeMap(this.ring)
+        for (i in 0 until virtualNodes) {
+            ring[hash("$clientId#$i")] = clientId
+        }
+        this.ring = ring
+    }
+
+    @Synchronized
+    fun removeShard(clientId: String) {
+        val ring = TreeMap(this.ring)
+        ring.values.removeIf { it == clientId }
+        this.ring = ring
+    }
+
+    fun shards(): Set<String> {
+        return ring.values.toSet()
+    }
+
+    companion object {
+        /** Stable 64 bit hash of a key (independent of the JVM, unlike hashCode of most types). */
+        fun hash(key: Any): Long {
+            return when (key) {
+                is UUID -> mix(key.mostSignificantBits xor mix(key.leastSignificantBits))
+                is Long -> mix(key)
+                is Int -> mix(key.toLong())
+                else -> {
+                    // FNV-1a
+                    var hash = -0x340d631b7bdddcdbL
+                    for (b in key.toString().toByteArray(Charsets.UTF_8)) {
+                        hash = (hash xor (b.toLong() and 0xff)) * 0x100000001b3L
+                    }
+                    mix(hash)
+                }
+            }
+        }
+
+        // finalizer of MurmurHash3, spreads the bits of sequential keys over the ring
+        private fun mix(value: Long): Long {
+            var h = value
+            h = h xor (h ushr 33)
+            h *= -0xae502812aa7333L
+            h = h xor (h ushr 33)
+            h *= -0x3b314601e57a13adL
+            return h xor (h ushr 33)
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.en4ble.pgaccess.sharding
+
+import java.util.*
+
+/**
+ * Maps ranges of keys to shards: a key belongs to the shard with the greatest lower bound that is less than or
+ * equal to the key. Adding a range only moves the keys of the split range.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class RangeShardResolver<K : Comparable<K>>(ranges: Map<K, String> = emptyMap()) : ShardResolver {
+    @Volatile
+    private var ranges = TreeMap(ranges)
+
+    @Suppress("UNCHECKED_CAST")
+    override fun shard(key: Any): String {
+        return ranges.floorEntry(key as K)?.value ?: throw IllegalArgumentException("no shard for key $key")
+    }
+
+    /**
+     * Keys from [lowerBound] (inclusive) up to the next range belong to the shard.
+     */
+    @Synchronized
+    fun addRange(lowerBound: K, clientId: String) {
+        val ranges = TreeMap(this.ranges)
+        ranges[lowerBound] = clientId
+        this.ranges = ranges
+    }
+
+    /** Keys are only assigned to the shard with [addRange]. */
+    override fun addShard(clientId: String) {
+    }
+
+    fun ranges(): SortedMap<K, String> {
+        return Collections.unmodifiableSortedMap(ranges)
+    }
+}
@@ -0,0 +1,17 @@
+package io.en4ble.pgaccess.sharding
+
+import kotlin.coroutines.AbstractCoroutineContextElement
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Selects the shard used by the DAOs within the coroutine, e.g. `withContext(ShardKey(tenantId)) { dao.read(...) }`.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class ShardKey(val value: Any) : AbstractCoroutineContextElement(ShardKey) {
+    companion object Key : CoroutineContext.Key<ShardKey>
+
+    override fun toString(): String {
+        return "ShardKey($value)"
+    }
+}
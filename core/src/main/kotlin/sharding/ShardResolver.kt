@@ -0,0 +1,15 @@
+package io.en4ble.pgaccess.sharding
+
+/**
+ * Maps a shard key (e.g. a tenant id) to the client id of the shard that holds the data of the key,
+ * see [io.en4ble.pgaccess.ShardedDatabaseContext].
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+interface ShardResolver {
+    /** The client id of the shard of the key. */
+    fun shard(key: Any): String
+
+    /** Register a new shard, keys that are moved to the new shard must be migrated by the application. */
+    fun addShard(clientId: String)
+}
@@ -0,0 +1,90 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.core.Future
+import io.vertx.core.Promise
+import io.vertx.core.Vertx
+
+/**
+ * Coalesces single key lookups into batches (like a DataLoader): keys requested within [windowMs] milliseconds
+ * (0: until the current event loop task is done) are loaded with a single call of [loadBatch], a batch is
+ * loaded immediately when it reaches [maxSize] keys. Lookups of the same key within a batch share the result.
+ * Outside of a vert.x context each key is loaded on its own.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class BatchLoader<K : Any, V>(
+    val windowMs: Long,
+    val maxSize: Int,
+    private val loadBatch: (List<K>) -> Future<Map<K, V>>
+) {
+    private var pending = LinkedHashMap<K, Promise<V?>>()
+    private var scheduled = false
+
+    /**
+     * @return a future that is completed with the value of the key or null if the key was not found
+     */
+    fun load(key: K): Future<V?> {
+        val context = Vertx.currentContext()
+        if (context == null || maxSize <= 1) {
+            return dispatch(linkedMapOf(key to Promise.promise()))[key]!!.future()
+        }
+        var full: LinkedHashMap<K, Promise<V?>>? = null
+        var schedule = false
+        val future = synchronized(this) {
+            val promise = pending.getOrPut(key) { Promise.promise() }
+            if (pending.size >= maxSize) {
+                full = takePending()
+            } else if (!scheduled) {
+                scheduled = true
+                schedule = true
+            }
+            promise.future()
+        }
+        full?.let { dispatch(it) }
+        if (schedule) {
+            if (windowMs <= 0) {
+                context.runOnContext { flush() }
+            } else {
+                context.owner().setTimer(windowMs) { flush() }
+            }
+        }
+        return future
+    }
+
+    /**
+     * Load the pending keys now.
+     */
+    fun flush() {
+        val batch = synchronized(this) { takePending() }
+        if (batch.isNotEmpty()) {
+            dispatch(batch)
+        }
+    }
+
+    private fun takePending(): LinkedHashMap<K, Promise<V?>> {
+        val batch = pending
+        pending = LinkedHashMap()
+        scheduled = false
+        return batch
+    }
+
+    private fun dispatch(batch: LinkedHashMap<K, Promise<V?>>): LinkedHashMap<K, Promise<V?>> {
+        val result = try {
+            loadBatch(batch.keys.toList())
+        } catch (e: Exception) {
+            Future.failedFuture(e)
+        }
+        result.onComplete { ar ->
+            if (ar.succeeded()) {
+                val values = ar.result()
+                for ((key, promise) in batch) {
+                    promise.complete(values[key])
+                }
+            } else {
+                batch.values.forEach { it.fail(ar.cause()) }
+            }
+        }
+        return batch
+    }
+}
@@ -0,0 +1,36 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.sqlclient.Tuple
+
+/**
+ * A statement that is executed once per parameter tuple (using executeBatch).
+ * [rows] contains the index of the row (e.g. the index of the dto in the list passed to createBatch)
+ * each tuple belongs to. If the rows are identified by a single column primary key, [keyIndex] is the index of
+ * the key in the tuples (e.g. to invalidate cached entities), otherwise -1.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class BatchStatement(val sql: String) {
+    val params: MutableList<Tuple> = ArrayList()
+    val rows: MutableList<Int> = ArrayList()
+    var keyIndex: Int = -1
+
+    fun add(row: Int, params: Tuple) {
+        this.params.add(params)
+        this.rows.add(row)
+    }
+
+    /**
+     * The primary keys of the rows in the given range of [params], null if the keys are not known.
+     */
+    fun keys(from: Int = 0, to: Int = params.size): List<Any>? {
+        if (keyIndex < 0) {
+            return null
+        }
+        return params.subList(from, to).mapNotNull { it.getValue(keyIndex) }
+    }
+
+    override fun toString(): String {
+        return "$sql (${params.size} rows)"
+    }
+}
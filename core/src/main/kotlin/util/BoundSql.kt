@@ -0,0 +1,14 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.sqlclient.Tuple
+
+/**
+ * The final sql of a statement and its parameters (null if the statement has no parameters or is a static statement).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class BoundSql(val sql: String, val params: Tuple?) {
+    override fun toString(): String {
+        return if (params == null) sql else DaoHelperCommon.getQueryForLogging(sql, params)
+    }
+}
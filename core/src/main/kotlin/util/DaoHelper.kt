@@ -3,19 +3,28 @@ package io.en4ble.pgaccess.util
 import io.en4ble.pgaccess.DatabaseContext
 import io.en4ble.pgaccess.DatabaseContext.Companion.getSingleDatabaseContext
 import io.en4ble.pgaccess.MultiDatabaseContext
+import io.en4ble.pgaccess.QueryEvent
 import io.en4ble.pgaccess.SingleDatabaseContext
+import io.en4ble.pgaccess.TransactionContext
+import io.en4ble.pgaccess.cache.CachePolicy
 import io.en4ble.pgaccess.dto.PagingDTO
 import io.en4ble.pgaccess.exceptions.NoResultsException
 import io.en4ble.pgaccess.util.DaoHelperCommon.addLimit
 import io.en4ble.pgaccess.util.DaoHelperCommon.getQueryForLogging
 import io.en4ble.pgaccess.util.DaoHelperCommon.getSortFields
-import io.en4ble.pgaccess.util.DaoHelperCommon.getSql
 import io.en4ble.pgaccess.util.JooqHelper.toUUIDList
+import io.vertx.core.Future
 import io.vertx.kotlin.coroutines.await
-import io.vertx.reactivex.sqlclient.SqlConnection
 import io.vertx.sqlclient.Row
 import io.vertx.sqlclient.RowSet
 import io.vertx.sqlclient.SqlClient
+import io.vertx.sqlclient.SqlConnection
+import io.vertx.sqlclient.Tuple
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.withContext
 import org.jooq.*
 import org.slf4j.LoggerFactory
 import java.util.*
@@ -29,16 +38,21 @@ object DaoHelper {
     /**
      * Run a query using a connection from the pool.
      */
-    suspend fun query(query: Query, context: DatabaseContext): RowSet<Row> {
+    suspend fun query(query: Query, context: DatabaseContext, cache: CachePolicy? = null): RowSet<Row> {
         val sc = getSingleDatabaseContext(context)
-        return query(query, sc.sqlClient().delegate, sc)
+        return query(query, readClient(sc), sc, cache)
     }
 
     /**
      * Run a query using a given connection.
      */
-    suspend fun query(query: Query, client: SqlClient, context: SingleDatabaseContext): RowSet<Row> {
-        return runQuery(query, client, context, false)
+    suspend fun query(
+        query: Query,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): RowSet<Row> {
+        return runQuery(query, client, context, false, cache)
     }
 
     /**
@@ -46,9 +60,9 @@ object DaoHelper {
      * @throws NoResultsException if no matching row was found.
      */
     @Throws(NoResultsException::class)
-    suspend fun queryOne(query: Query, context: DatabaseContext): Row {
+    suspend fun queryOne(query: Query, context: DatabaseContext, cache: CachePolicy? = null): Row {
         val sc = getSingleDatabaseContext(context)
-        return queryOne(query, sc.sqlClient().delegate, sc)
+        return queryOne(query, readClient(sc), sc, cache)
     }
 
     /**
@@ -56,8 +70,13 @@ object DaoHelper {
      * @throws NoResultsException if no matching row was found.
      */
     @Throws(NoResultsException::class)
-    suspend fun queryOne(query: Query, client: SqlClient, context: SingleDatabaseContext): Row {
-        val res = query(query, client, context)
+    suspend fun queryOne(
+        query: Query,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Row {
+        val res = query(query, client, context, cache)
         if (res.size() == 0) {
             throw NoResultsException(getQueryForLogging(query, context.config()))
         }
@@ -67,13 +86,18 @@ object DaoHelper {
     /**
      * Run a query using a connection from the pool, returning a single Row or an empty Optional
      */
-    suspend fun queryOptional(query: Query, context: DatabaseContext): Optional<Row> {
+    suspend fun queryOptional(query: Query, context: DatabaseContext, cache: CachePolicy? = null): Optional<Row> {
         val sc = getSingleDatabaseContext(context)
-        return queryOptional(query, sc.sqlClient().delegate, sc)
+        return queryOptional(query, readClient(sc), sc, cache)
     }
 
-    suspend fun queryOptional(query: Query, client: SqlClient, context: SingleDatabaseContext): Optional<Row> {
-        val res = query(query, client, context)
+    suspend fun queryOptional(
+        query: Query,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Optional<Row> {
+        val res = query(query, client, context, cache)
         return if (res.size() == 0) {
             Optional.empty()
         } else {
@@ -83,7 +107,7 @@ object DaoHelper {
 
     suspend fun update(query: Query, context: DatabaseContext): Int {
         val sc = getSingleDatabaseContext(context)
-        return update(query, sc.sqlClient().delegate, sc)
+        return update(query, writeClient(sc), sc)
     }
 
     suspend fun update(query: Query, client: SqlClient, context: SingleDatabaseContext): Int {
@@ -95,7 +119,7 @@ object DaoHelper {
 
     suspend fun readUUIDs(query: Query, page: PagingDTO? = null, context: DatabaseContext): List<UUID> {
         val sc = getSingleDatabaseContext(context)
-        return readUUIDs(query, page, sc.sqlClient().delegate, sc)
+        return readUUIDs(query, page, readClient(sc), sc)
     }
 
     suspend fun readUUIDs(
@@ -115,14 +139,15 @@ object DaoHelper {
         query: Query,
         table: Table<RECORD>,
         page: PagingDTO?,
-        context: DatabaseContext
+        context: DatabaseContext,
+        cache: CachePolicy? = null
     ): RowSet<Row> {
-        val c = if (context is MultiDatabaseContext) {
+        val sc = if (context is MultiDatabaseContext) {
             context.current()
         } else {
-            context
+            context as SingleDatabaseContext
         }
-        return read(query, table, page, c.sqlClient().delegate, c as SingleDatabaseContext)
+        return read(query, table, page, readClient(sc), sc, cache)
     }
 
     suspend fun <RECORD : Record> read(
@@ -130,68 +155,388 @@ object DaoHelper {
         table: Table<RECORD>,
         page: PagingDTO?,
         client: SqlClient,
-        context: SingleDatabaseContext
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
     ): RowSet<Row> {
         if (page != null) {
             val order = page.orderBy
             if (order != null && query is SelectOrderByStep<*>) {
                 val q = query.orderBy(getSortFields(table, order))
-                return query(addLimit(q, page), client, context)
+                return query(addLimit(q, page), client, context, cache)
             }
         }
-        return query(query, context)
+        return query(query, client, context, cache)
+    }
+
+    /**
+     * Run a statement with a precomputed sql (e.g. the static sql of generated DAOs) using a connection from the pool.
+     */
+    suspend fun query(statement: BoundSql, context: DatabaseContext, cache: CachePolicy? = null): RowSet<Row> {
+        val sc = getSingleDatabaseContext(context)
+        return query(statement, readClient(sc), sc, cache)
+    }
+
+    /**
+     * Run a statement with a precomputed sql using the given connection.
+     */
+    suspend fun query(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): RowSet<Row> {
+        return runStatement(statement, client, context, false, cache)
+    }
+
+    @Throws(NoResultsException::class)
+    suspend fun queryOne(statement: BoundSql, context: DatabaseContext, cache: CachePolicy? = null): Row {
+        val sc = getSingleDatabaseContext(context)
+        return queryOne(statement, readClient(sc), sc, cache)
+    }
+
+    @Throws(NoResultsException::class)
+    suspend fun queryOne(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Row {
+        val res = query(statement, client, context, cache)
+        if (res.size() == 0) {
+            throw NoResultsException(statement.toString())
+        }
+        return res.first()
+    }
+
+    suspend fun queryOptional(
+        statement: BoundSql,
+        context: DatabaseContext,
+        cache: CachePolicy? = null
+    ): Optional<Row> {
+        val sc = getSingleDatabaseContext(context)
+        return queryOptional(statement, readClient(sc), sc, cache)
+    }
+
+    suspend fun queryOptional(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Optional<Row> {
+        val res = query(statement, client, context, cache)
+        return if (res.size() == 0) {
+            Optional.empty()
+        } else {
+            Optional.of(res.first())
+        }
+    }
+
+    /**
+     * The statement of a query identified by a shape id (e.g. a constant per DAO method), see
+     * [io.en4ble.pgaccess.util.QueryCache.plan]. All queries using the same id must render the same sql.
+     */
+    fun statement(shape: String, query: Query, context: SingleDatabaseContext): BoundSql {
+        return DaoHelperCommon.prepare(shape, query, context)
+    }
+
+    /**
+     * The connection of the transaction of the coroutine (see [SingleDatabaseContext.withTransaction])
+     * or the client for reads of the context.
+     */
+    internal suspend fun readClient(context: SingleDatabaseContext): SqlClient {
+        return TransactionContext.connection(context) ?: context.routingClient().delegate
+    }
+
+    /**
+     * The connection of the transaction of the coroutine or the pool of the context.
+     */
+    internal suspend fun writeClient(context: SingleDatabaseContext): SqlClient {
+        return TransactionContext.connection(context) ?: context.sqlClient().delegate
     }
 
     private suspend fun runQuery(
         query: Query,
         client: SqlClient,
         context: SingleDatabaseContext,
-        update: Boolean
+        update: Boolean,
+        cache: CachePolicy? = null
     ): RowSet<Row> {
-        val sql = getSql(query, context.config())
-        // TODO: this is not exactly true, in vert.x 3.x it used to be a check on Transaction but it's not a superclass of SqlClient anymore.
-        val inTx = if (client is SqlConnection) {
-            "[Tx]"
-        } else {
-            "[NoTx]"
+        return runStatement(DaoHelperCommon.prepare(query, context), client, context, update, cache)
+    }
+
+    /**
+     * Run the queries concurrently using connections from the pool.
+     * @return the results in the order of the queries
+     */
+    suspend fun pipelined(queries: List<Query>, context: DatabaseContext): List<RowSet<Row>> {
+        val sc = getSingleDatabaseContext(context)
+        return pipelined(queries, readClient(sc), sc)
+    }
+
+    /**
+     * Send all queries to the given connection before awaiting the results, so that they are pipelined
+     * (up to [io.en4ble.pgaccess.DatabaseConfig.pipeliningLimit]) instead of costing one round trip each.
+     * @return the results in the order of the queries
+     */
+    suspend fun pipelined(queries: List<Query>, client: SqlClient, context: SingleDatabaseContext): List<RowSet<Row>> {
+        return pipelinedStatements(queries.map { DaoHelperCommon.prepare(it, context) }, client, context)
+    }
+
+    /**
+     * Send all statements to the given connection before awaiting the results.
+     * @return the results in the order of the statements
+     */
+    suspend fun pipelinedStatements(
+        statements: List<BoundSql>,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): List<RowSet<Row>> {
+        if (LOG.isTraceEnabled) {
+            LOG.trace("{} about to run {} pipelined statements", DaoHelperCommon.txTag(client), statements.size)
         }
+        val futures = statements.map { statement ->
+            val event = QueryEvent.start(
+                statement.sql, statement.params, DaoHelperCommon.isWrite(statement.sql), client, context
+            )
+            send(context.statementSql(statement.sql), statement.params, client, context).onComplete {
+                if (it.succeeded()) event?.completed(it.result()) else event?.failed(it.cause())
+            }
+        }
+        return futures.mapIndexed { i, future ->
+            try {
+                future.await().also { context.written(statements[i].sql, client) }
+            } catch (e: Exception) {
+                LOG.error("{}\nsql: {}", e.message, statements[i].sql, e)
+                throw e
+            }
+        }
+    }
+
+    /**
+     * Stream the rows of a query using a cursor, fetching [fetchSize] rows at a time.
+     * A connection from the pool is used with a transaction that is committed after the last row was emitted
+     * (or rolled back if the flow fails or is cancelled). If the flow is collected inside
+     * [SingleDatabaseContext.withTransaction] the cursor is opened in that transaction instead.
+     */
+    fun stream(query: Query, fetchSize: Int, context: DatabaseContext): Flow<Row> = flow {
+        val sc = getSingleDatabaseContext(context)
+        val current = TransactionContext.connection(sc)
+        if (current != null) {
+            emitAll(stream(query, fetchSize, current, sc))
+            return@flow
+        }
+        val (connection, transaction) = sc.beginTx()
         try {
-            val result = if (query.bindValues.isEmpty()) {
-                if (LOG.isTraceEnabled) {
-                    LOG.trace("{} about to run {}: {}", inTx, if (update) "update" else "query", sql)
+            emitAll(stream(query, fetchSize, connection, sc))
+        } catch (e: Throwable) {
+            withContext(NonCancellable) {
+                try {
+                    sc.rollbackTx(connection, transaction)
+                } catch (rollbackError: Exception) {
+                    LOG.warn("rollback of stream failed", rollbackError)
                 }
-                client.query(sql).execute().await()
-            } else {
-                if (context.config().preparedStatements) {
-                    val params = JooqHelper.rxParams(query)
-                    if (LOG.isTraceEnabled) {
-                        LOG.trace(
-                            "{} about to run {}: {}",
-                            inTx,
-                            if (update) "update" else "query",
-                            getQueryForLogging(sql, params.delegate)
-                        )
+            }
+            throw e
+        }
+        sc.commitTx(connection, transaction)
+    }
+
+    /**
+     * Stream the rows of a query using a cursor on the given connection, fetching [fetchSize] rows at a time.
+     * NOTE: cursors require a transaction, the connection must be in a transaction.
+     */
+    fun stream(query: Query, fetchSize: Int, connection: SqlConnection, context: SingleDatabaseContext): Flow<Row> =
+        flow {
+            val statement = DaoHelperCommon.prepare(query, context)
+            if (LOG.isTraceEnabled) {
+                LOG.trace("[Tx] about to stream query: {}", statement)
+            }
+            val event = QueryEvent.start(statement.sql, statement.params, false, connection, context)
+            val prepared = try {
+                connection.prepare(statement.sql).await()
+            } catch (e: Throwable) {
+                event?.failed(e)
+                throw e
+            }
+            event?.bound()
+            val cursor = prepared.cursor(statement.params ?: Tuple.tuple())
+            var rows = 0
+            try {
+                do {
+                    for (row in cursor.read(fetchSize).await()) {
+                        event?.row(row)
+                        rows++
+                        emit(row)
                     }
-                    client.preparedQuery(sql).execute(params.delegate).await()
-                } else {
-                    if (LOG.isTraceEnabled) {
-                        LOG.trace(
-                            "{} about to run {}: {}",
-                            inTx,
-                            if (update) "update" else "query", sql
-                        )
+                } while (cursor.hasMore())
+                event?.completed(rows)
+            } catch (e: Throwable) {
+                event?.failed(e)
+                throw e
+            } finally {
+                withContext(NonCancellable) {
+                    cursor.close().await()
+                    prepared.close().await()
+                }
+            }
+        }
+
+    /**
+     * Run batch statements using a connection from the pool.
+     * Note that the batches are not executed atomically unless a transaction is used.
+     * @return the results in the order of the rows (null for rows that were not part of any statement)
+     */
+    suspend fun batch(statements: List<BatchStatement>, rows: Int, context: DatabaseContext): List<RowSet<Row>?> {
+        val sc = getSingleDatabaseContext(context)
+        return batch(statements, rows, writeClient(sc), sc)
+    }
+
+    /**
+     * Run batch statements using the given connection, sending at most [io.en4ble.pgaccess.DatabaseConfig.batchSize]
+     * rows per executeBatch call.
+     * @return the results in the order of the rows (null for rows that were not part of any statement)
+     */
+    suspend fun batch(
+        statements: List<BatchStatement>,
+        rows: Int,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): List<RowSet<Row>?> {
+        val results = arrayOfNulls<RowSet<Row>>(rows)
+        val batchSize = context.config().batchSize
+        for (statement in statements) {
+            if (LOG.isTraceEnabled) {
+                LOG.trace("{} about to run batch: {}", DaoHelperCommon.txTag(client), statement)
+            }
+            try {
+                var offset = 0
+                for (chunk in statement.params.chunked(batchSize)) {
+                    val staticSql = DaoHelperCommon.staticBatchSql(statement.sql, chunk, context)
+                    val event = QueryEvent.start(statement.sql, null, true, client, context, chunk.size)
+                    var result: RowSet<Row>? = try {
+                        tracked(client, context) {
+                            if (staticSql != null) {
+                                client.query(staticSql).execute()
+                            } else {
+                                client.preparedQuery(context.statementSql(statement.sql)).executeBatch(chunk)
+                            }
+                        }.await()
+                    } catch (e: Exception) {
+                        event?.failed(e)
+                        throw e
                     }
-                    client.query(sql).execute().await()
+                    var affected = 0
+                    while (result != null) {
+                        affected += result.rowCount()
+                        results[statement.rows[offset++]] = result
+                        result = result.next()
+                    }
+                    event?.completed(affected)
                 }
+                context.written(statement.sql, client, statement.keys())
+            } catch (e: Exception) {
+                LOG.error("{}\nsql: {}", e.message, statement.sql, e)
+                throw e
             }
+        }
+        return results.asList()
+    }
+
+    private suspend fun runStatement(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        update: Boolean,
+        cache: CachePolicy? = null
+    ): RowSet<Row> {
+        val resultCache = DaoHelperCommon.resultCache(statement, update, client, context, cache)
+        val cached = resultCache?.get(statement.sql, statement.params)
+        if (cached != null) {
+            if (LOG.isTraceEnabled) {
+                LOG.trace("{} cached result for query: {}", DaoHelperCommon.txTag(client), statement)
+            }
+            return cached
+        }
+        val token = resultCache?.token() ?: 0
+        try {
+            if (LOG.isTraceEnabled) {
+                val type = if (update) "update" else "query"
+                LOG.trace("{} about to run {}: {}", DaoHelperCommon.txTag(client), type, statement)
+            }
+            val event = QueryEvent.start(statement.sql, statement.params, update, client, context)
+            val result = try {
+                executeStatement(statement, client, context, update)
+            } catch (e: Exception) {
+                event?.failed(e)
+                throw e
+            }
+            event?.completed(result)
             if (LOG.isTraceEnabled) {
-                LOG.trace("{} query returned {} results", inTx, result.size())
+                LOG.trace("{} query returned {} results", DaoHelperCommon.txTag(client), result.size())
             }
+            context.written(statement.sql, client)
+            resultCache?.put(statement.sql, statement.params, result, cache!!, token)
             return result
         } catch (e: Exception) {
-            LOG.error("${e.message}\nsql: $sql", e)
+            LOG.error("{}\nsql: {}", e.message, statement.sql, e)
             throw e
         }
     }
 
+    private suspend fun executeStatement(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        update: Boolean
+    ): RowSet<Row> {
+        return try {
+            val sql = context.statementSql(statement.sql)
+            if (DaoHelperCommon.isSingleFlight(statement, update, client, context)) {
+                context.singleFlight()!!.execute(sql, statement.params) {
+                    send(sql, statement.params, client, context)
+                }.await()
+            } else {
+                execute(sql, statement.params, client, context)
+            }
+        } catch (e: Exception) {
+            if (DaoHelperCommon.canReplan(e, statement, client, context)) {
+                execute(context.replan(statement.sql), statement.params, client, context)
+            } else {
+                throw e
+            }
+        }
+    }
+
+    private suspend fun execute(
+        sql: String,
+        params: Tuple?,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): RowSet<Row> {
+        return send(sql, params, client, context).await()
+    }
+
+    private fun send(
+        sql: String,
+        params: Tuple?,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): Future<RowSet<Row>> {
+        val staticSql = DaoHelperCommon.staticSql(sql, params, context)
+        return tracked(client, context) {
+            if (staticSql != null) {
+                client.query(staticSql).execute()
+            } else {
+                client.preparedQuery(sql).execute(params)
+            }
+        }
+    }
+
+    /**
+     * Report statements on the pool to the pool metrics of the context (if any).
+     */
+    private fun <T> tracked(client: SqlClient, context: SingleDatabaseContext, send: () -> Future<T>): Future<T> {
+        return context.poolMonitor()?.statement(client, send) ?: send()
+    }
+
 }
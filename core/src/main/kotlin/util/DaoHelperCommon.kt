@@ -2,17 +2,30 @@ package io.en4ble.pgaccess.util
 
 import com.fasterxml.jackson.databind.ObjectMapper
 import io.en4ble.pgaccess.DatabaseConfig
+import io.en4ble.pgaccess.SingleDatabaseContext
+import io.en4ble.pgaccess.StatementMode
+import io.en4ble.pgaccess.cache.CachePolicy
+import io.en4ble.pgaccess.cache.ResultCache
 import io.en4ble.pgaccess.converters.TypedEnumConverter
 import io.en4ble.pgaccess.dto.OrderDTO
 import io.en4ble.pgaccess.dto.PagingDTO
 import io.en4ble.pgaccess.enumerations.SortDirection
 import io.en4ble.pgaccess.enumerations.TypedEnum
 import io.vertx.core.json.Json
+import io.vertx.core.json.JsonArray
+import io.vertx.core.json.JsonObject
 import io.vertx.core.json.jackson.DatabindCodec
+import io.vertx.pgclient.PgException
+import io.vertx.sqlclient.Pool
 import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.SqlClient
 import io.vertx.sqlclient.Tuple
 import org.jooq.*
 import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.math.BigDecimal
+import java.math.BigInteger
+import java.time.*
 import java.util.*
 
 /** @author Mark Hofmann (mark@en4ble.io)
@@ -20,33 +33,189 @@ import java.util.*
 @Suppress("unused", "MemberVisibilityCanBePrivate")
 internal object DaoHelperCommon {
     private val LOG by lazy { LoggerFactory.getLogger(DaoHelperCommon::class.java) }
+
+    private val LOCKING_CLAUSE =
+        Regex("\\bfor\\s+(?:update|no\\s+key\\s+update|share|key\\s+share)\\b", RegexOption.IGNORE_CASE)
+    /** Calls of the built-in functions that change state or return a different value on every call. */
+    private val VOLATILE_CALL = Regex(
+        "\\b(?:nextval|setval|currval|lastval|random|gen_random_uuid|uuid_generate_v\\w+|clock_timestamp|" +
+            "timeofday|txid_current\\w*|pg_current_xact_id\\w*|pg_(?:try_)?advisory\\w*|pg_notify|set_config|" +
+            "pg_sleep\\w*|dblink\\w*|lo_\\w+)\\s*\\(",
+        RegexOption.IGNORE_CASE
+    )
+    private val PRIMARY_HINT = Regex("/\\*\\s*no\\s+load\\s+balance\\s*\\*/", RegexOption.IGNORE_CASE)
+    private val WRITE_KEYWORDS = Regex("\\b(insert|update|delete|truncate)\\b", RegexOption.IGNORE_CASE)
+    private const val IDENTIFIER_PATTERN = "\"(?:[^\"]|\"\")+\"|[\\w$]+"
+    private val IDENTIFIER = Regex(IDENTIFIER_PATTERN)
+    private const val DEFAULT_SCHEMA = "public"
+    private val WRITE_TARGET = Regex(
+        "^\\s*(?:insert\\s+into|update|delete\\s+from)\\s+((?:$IDENTIFIER_PATTERN)(?:\\s*\\.\\s*(?:$IDENTIFIER_PATTERN))*)",
+        RegexOption.IGNORE_CASE
+    )
     private val MAPPERS = HashMap<String, ObjectMapper>()
 
     fun getQueryForLogging(query: Query, config: DatabaseConfig): String {
         return getQueryForLogging(getSql(query, config), JooqHelper.params(query))
     }
 
+    /**
+     * Render the sql with the parameters in place of their '$n' placeholders (in a single pass, placeholders in
+     * string literals are left as they are).
+     */
     fun getQueryForLogging(sql: String, params: Tuple): String {
-        var x = String(sql.toCharArray())
-        for (i in 0 until params.size()) {
-            val param = params.getValue(i)
-            val paramIndex = "$" + (i + 1)
-            x = if (param is Number) {
-                x.replaceFirst(paramIndex, param.toString())
-            } else {
-                if (param == null) {
-                    x.replaceFirst(paramIndex, "NULL")
+        return replacePlaceholders(sql, params) { sb, param -> appendParamForLogging(sb, param); true }!!
+    }
+
+    /**
+     * Render the sql of a [StatementMode.STATIC] statement: the parameters are inlined as sql literals, like jOOQ
+     * does for the statements it renders.
+     * @return null if a parameter has no literal form (e.g. geometric types), it has to be bound then
+     */
+    fun inlineParams(sql: String, params: Tuple): String? {
+        return replacePlaceholders(sql, params, ::appendLiteral)
+    }
+
+    /**
+     * The sql to send as a simple (not prepared) query, or null if the statement has to be prepared:
+     * statements with parameters are only inlined in [StatementMode.STATIC].
+     */
+    fun staticSql(sql: String, params: Tuple?, context: SingleDatabaseContext): String? {
+        return when {
+            params == null -> sql
+            context.statementMode() == StatementMode.STATIC -> inlineParams(sql, params)
+            else -> null
+        }
+    }
+
+    /**
+     * The statements of a batch inlined and sent as one simple query in [StatementMode.STATIC] (the results are
+     * chained like the results of executeBatch), null if the batch has to be prepared.
+     */
+    fun staticBatchSql(sql: String, batch: List<Tuple>, context: SingleDatabaseContext): String? {
+        if (context.statementMode() != StatementMode.STATIC) {
+            return null
+        }
+        val sb = StringBuilder()
+        for (params in batch) {
+            val statement = inlineParams(sql, params) ?: return null
+            sb.append(statement).append(";\n")
+        }
+        return sb.toString()
+    }
+
+    private inline fun replacePlaceholders(
+        sql: String,
+        params: Tuple,
+        append: (StringBuilder, Any?) -> Boolean
+    ): String? {
+        val size = params.size()
+        if (size == 0) {
+            return sql
+        }
+        val sb = StringBuilder(sql.length + size * 8)
+        var inString = false
+        var i = 0
+        while (i < sql.length) {
+            val c = sql[i]
+            if (c == '\'') {
+                inString = !inString
+            } else if (c == '$' && !inString && i + 1 < sql.length && sql[i + 1].isDigit()) {
+                var end = i + 1
+                var index = 0
+                while (end < sql.length && sql[end].isDigit()) {
+                    index = index * 10 + (sql[end] - '0')
+                    end++
+                }
+                if (index in 1..size) {
+                    if (!append(sb, params.getValue(index - 1))) {
+                        return null
+                    }
                 } else {
-                    val v = when (param) {
-                        is Array<*> -> "'{${param.joinToString()}}'"
-                        is Collection<*> -> "'{${param.joinToString()}}'"
-                        else -> "'$param'"
+                    sb.append(sql, i, end)
+                }
+                i = end
+                continue
+            }
+            sb.append(c)
+            i++
+        }
+        return sb.toString()
+    }
+
+    private fun appendParamForLogging(sb: StringBuilder, param: Any?) {
+        when (param) {
+            null -> sb.append("NULL")
+            is Number -> sb.append(param)
+            is Array<*> -> sb.append("'{").append(param.joinToString()).append("}'")
+            is Collection<*> -> sb.append("'{").append(param.joinToString()).append("}'")
+            else -> sb.append('\'').append(param).append('\'')
+        }
+    }
+
+    private fun appendLiteral(sb: StringBuilder, param: Any?): Boolean {
+        when (param) {
+            null -> sb.append("NULL")
+            is Boolean -> sb.append(if (param) "TRUE" else "FALSE")
+            is Short, is Int, is Long, is BigDecimal, is BigInteger ->
+                // parenthesized so that a negative value can't form a comment with a preceding minus
+                if ((param as Number).toDouble() < 0) sb.append('(').append(param).append(')') else sb.append(param)
+            is Float, is Double -> appendString(sb, param.toString()).append("::").append(literalType(param)!!)
+            is String -> appendString(sb, param)
+            is JsonObject -> appendString(sb, param.encode())
+            is JsonArray -> appendString(sb, param.encode())
+            is Array<*> -> {
+                val text = StringBuilder("{")
+                for (element in param) {
+                    if (text.length > 1) {
+                        text.append(',')
+                    }
+                    if (element == null) {
+                        text.append("NULL")
+                    } else if (element is String || literalType(element) != null) {
+                        val value = element.toString().replace("\\", "\\\\").replace("\"", "\\\"")
+                        text.append('"').append(value).append('"')
+                    } else {
+                        return false
                     }
-                    x.replaceFirst(paramIndex, v)
                 }
+                appendString(sb, text.append('}').toString())
+                // untyped (like a bound string) if the element type is unknown, e.g. Object[] of unnest columns
+                literalType(param.javaClass.componentType)?.let { sb.append("::").append(it).append("[]") }
             }
+            else -> {
+                val type = literalType(param) ?: return false
+                appendString(sb, param.toString()).append("::").append(type)
+            }
+        }
+        return true
+    }
+
+    private fun appendString(sb: StringBuilder, value: String): StringBuilder {
+        return sb.append('\'').append(value.replace("'", "''")).append('\'')
+    }
+
+    private fun literalType(value: Any): String? {
+        return literalType(value.javaClass)
+    }
+
+    // the postgres type of the values that are bound with the given type by the vert.x client
+    private fun literalType(type: Class<*>): String? {
+        return when (type) {
+            UUID::class.java -> "uuid"
+            java.lang.Short::class.java -> "int2"
+            java.lang.Integer::class.java -> "int4"
+            java.lang.Long::class.java -> "int8"
+            java.lang.Float::class.java -> "float4"
+            java.lang.Double::class.java -> "float8"
+            java.lang.Boolean::class.java -> "bool"
+            BigDecimal::class.java -> "numeric"
+            LocalDate::class.java -> "date"
+            LocalTime::class.java -> "time"
+            OffsetTime::class.java -> "timetz"
+            LocalDateTime::class.java -> "timestamp"
+            OffsetDateTime::class.java -> "timestamptz"
+            else -> null
         }
-        return x
     }
 
     fun <RECORD : Record> getSortFields(table: Table<RECORD>, order: List<OrderDTO>): List<SortField<*>> {
@@ -75,26 +244,200 @@ internal object DaoHelperCommon {
         return if (query.bindValues.isEmpty()) {
             query.sql
         } else {
-            if (config.preparedStatements) {
-                // rewrite placeholders of prepared statements
-                // (jOOQ/JDBC uses '?', we need '$' with index)
-                val sb = StringBuilder()
-                var i = 1
-                query.sql.forEach {
-                    if (it == '?') {
-                        sb.append('$').append(i)
-                        i++
-                    } else {
-                        sb.append(it)
-                    }
-                }
-                sb.toString()
+            if (config.effectiveStatementMode != StatementMode.STATIC) {
+                toPositionalPlaceholders(query.sql)
             } else {
                 query.sql
             }
         }
     }
 
+    /**
+     * Rewrite placeholders of prepared statements (jOOQ/JDBC uses '?', we need '$' with index).
+     */
+    fun toPositionalPlaceholders(sql: String): String {
+        if (sql.indexOf('?') < 0) {
+            return sql
+        }
+        val sb = StringBuilder(sql.length + 16)
+        var i = 1
+        sql.forEach {
+            if (it == '?') {
+                sb.append('$').append(i)
+                i++
+            } else {
+                sb.append(it)
+            }
+        }
+        return sb.toString()
+    }
+
+    /**
+     * Render the sql and extract the parameters of a query.
+     * When using prepared statements, the plan of the query is taken from the query cache of the context,
+     * otherwise jOOQ renders a static statement including the values.
+     */
+    fun prepare(query: Query, context: SingleDatabaseContext): BoundSql {
+        val sql = query.sql
+        if (context.statementMode() == StatementMode.STATIC) {
+            return BoundSql(sql, null)
+        }
+        return bind(context.queryCache().plan(query, sql), query)
+    }
+
+    /**
+     * Like [prepare], but the plan is looked up by the given shape id, so the sql is only rendered once per shape
+     * (static statements are always rendered, since they include the values).
+     */
+    fun prepare(shape: String, query: Query, context: SingleDatabaseContext): BoundSql {
+        if (context.statementMode() == StatementMode.STATIC) {
+            return BoundSql(query.sql, null)
+        }
+        return bind(context.queryCache().plan(shape, query), query)
+    }
+
+    private fun bind(plan: QueryPlan, query: Query): BoundSql {
+        return if (plan.parameterCount == 0) {
+            BoundSql(plan.sql, null)
+        } else {
+            BoundSql(plan.sql, plan.bind(query))
+        }
+    }
+
+    /**
+     * Cached statements fail with this error if the result type changed since they were prepared.
+     */
+    fun isCachedPlanError(e: Throwable): Boolean {
+        return e is PgException && e.code == "0A000" &&
+            e.message?.contains("cached plan must not change result type") == true
+    }
+
+    /**
+     * If the error is caused by a failed or lost connection (network errors, connection and authorization
+     * errors reported by the server, too many connections) instead of the statement.
+     */
+    fun isConnectionError(e: Throwable): Boolean {
+        var cause: Throwable? = e
+        while (cause != null) {
+            if (cause is IOException) {
+                return true
+            }
+            if (cause is PgException) {
+                val code = cause.code ?: return false
+                return code.startsWith("08") || code.startsWith("28") || code == "53300" || code == "57P03"
+            }
+            cause = cause.cause
+        }
+        return false
+    }
+
+    /**
+     * Statements can only be re-prepared if they are not part of a transaction (which is aborted after the error).
+     */
+    fun canReplan(e: Throwable, statement: BoundSql, client: SqlClient, context: SingleDatabaseContext): Boolean {
+        return statement.params != null && isPooled(client) &&
+            context.statementMode() == StatementMode.CACHED && isCachedPlanError(e)
+    }
+
+    /**
+     * Only selects outside of transactions are deduplicated (writes and reads in a transaction must see
+     * their own effects), see [isCacheable].
+     */
+    fun isSingleFlight(statement: BoundSql, update: Boolean, client: SqlClient, context: SingleDatabaseContext): Boolean {
+        return !update && isPooled(client) && context.singleFlight() != null && isCacheable(statement.sql)
+    }
+
+    /**
+     * The result cache to use for the statement, null if the statement is not cached: like with [isSingleFlight]
+     * only selects outside of transactions are cached.
+     */
+    fun resultCache(
+        statement: BoundSql,
+        update: Boolean,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy?
+    ): ResultCache? {
+        if (cache == null || update || !isPooled(client) || !isCacheable(statement.sql)) {
+            return null
+        }
+        return context.resultCache()
+    }
+
+    /**
+     * If the client takes a connection from a pool for each statement (i.e. it is not used for a transaction).
+     */
+    fun isPooled(client: SqlClient): Boolean {
+        return client is Pool || client is ReadRoutingClient
+    }
+
+    /**
+     * Tag of the log messages of statements.
+     */
+    fun txTag(client: SqlClient): String {
+        return if (isPooled(client)) "[NoTx]" else "[Tx]"
+    }
+
+    /**
+     * If the sql is a select that can be run on a read replica (not locking any rows).
+     */
+    fun isRead(sql: String): Boolean {
+        return sql.trimStart().regionMatches(0, "select", 0, 6, ignoreCase = true) && !LOCKING_CLAUSE.containsMatchIn(sql)
+    }
+
+    /**
+     * If the result of the sql can be shared with concurrent callers or cached: a select without locking clause
+     * that calls no volatile built-in function (nextval, random, advisory locks ...).
+     * NOTE: calls of volatile user defined functions are not detected, don't read them with single flight or a cache.
+     */
+    fun isCacheable(sql: String): Boolean {
+        return isRead(sql) && !VOLATILE_CALL.containsMatchIn(sql)
+    }
+
+    /**
+     * If the sql can be sent to a read replica: a select like [isCacheable] that is not marked with a
+     * "/*NO LOAD BALANCE*/" comment (e.g. because it calls a volatile user defined function).
+     */
+    fun isReplicaRead(sql: String): Boolean {
+        return isCacheable(sql) && !PRIMARY_HINT.containsMatchIn(sql)
+    }
+
+    /**
+     * If the sql is an insert, update or delete (also as part of a with clause).
+     */
+    fun isWrite(sql: String): Boolean {
+        val start = sql.trimStart()
+        return !start.regionMatches(0, "select", 0, 6, ignoreCase = true) && WRITE_KEYWORDS.containsMatchIn(start)
+    }
+
+    /**
+     * The qualified name ("schema.table", see [qualifiedName]) of the table written by an insert, update or delete,
+     * or null if unknown (e.g. for writes in a with clause).
+     */
+    fun writtenTable(sql: String): String? {
+        val target = WRITE_TARGET.find(sql)?.groupValues?.get(1) ?: return null
+        val names = IDENTIFIER.findAll(target).map { identifier(it.value) }.toList()
+        val schema = if (names.size > 1) names[names.size - 2] else DEFAULT_SCHEMA
+        return "$schema.${names.last()}"
+    }
+
+    /**
+     * The qualified name ("schema.table") of the table as used by the [io.en4ble.pgaccess.WriteListener]s and caches.
+     * Tables without schema (and unqualified tables in statements) are assumed to be in the public schema.
+     */
+    fun qualifiedName(table: Table<*>): String {
+        val schema = table.schema?.name?.takeIf { it.isNotEmpty() } ?: DEFAULT_SCHEMA
+        return "$schema.${table.name}"
+    }
+
+    private fun identifier(name: String): String {
+        return if (name.startsWith('"')) {
+            name.substring(1, name.length - 1).replace("\"\"", "\"")
+        } else {
+            name.toLowerCase()
+        }
+    }
+
     fun uuidList(row: Row, i: Int): List<UUID>? {
         val jsonArray = row.getArrayOfUUIDs(i) ?: return null
         return jsonArray.toList()
@@ -54,8 +54,16 @@ object JooqHelper {
         return convertToDbType(param, param.value)
     }
 
+    /**
+     * Convert the value of a field to the type expected by the vert.x client (e.g. when binding parameters
+     * of statements that are not rendered by jOOQ).
+     */
+    fun dbValue(field: Field<*>, value: Any?): Any? {
+        return convertToDbType(field, value)
+    }
+
     @Suppress("UNCHECKED_CAST")
-    private fun convertToDbType(param: Param<*>, value: Any?): Any? {
+    internal fun convertToDbType(param: Field<*>, value: Any?): Any? {
         if (value == null) {
             return null
         }
@@ -97,7 +105,7 @@ object JooqHelper {
     }
 
     @Suppress("UNUSED_PARAMETER")
-    private inline fun <reified T> convertArray2DbTypes(dtos: Array<*>, param: Param<*>, type: Class<T>): Array<T?> {
+    private inline fun <reified T> convertArray2DbTypes(dtos: Array<*>, param: Field<*>, type: Class<T>): Array<T?> {
         val array = arrayOfNulls<T>(dtos.size)
         for (i in dtos.indices) {
             array[i] = convertToDbType(param, dtos[i]) as T
@@ -0,0 +1,36 @@
+package io.en4ble.pgaccess.util
+
+import java.util.*
+
+/**
+ * Merges lists that are sorted by the same order (e.g. the pages read from multiple shards).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+internal object KWayMerge {
+    /**
+     * @return the first [limit] elements of the merged lists in the order of the comparator
+     */
+    fun <T> merge(lists: List<List<T>>, comparator: Comparator<in T>, limit: Int = Int.MAX_VALUE): List<T> {
+        // heads of the lists: list index and position
+        val heads = PriorityQueue<IntArray>(maxOf(lists.size, 1)) { a, b ->
+            comparator.compare(lists[a[0]][a[1]], lists[b[0]][b[1]])
+        }
+        lists.forEachIndexed { i, list ->
+            if (list.isNotEmpty()) {
+                heads.add(intArrayOf(i, 0))
+            }
+        }
+        val result = ArrayList<T>(minOf(limit, lists.sumBy { it.size }))
+        while (result.size < limit) {
+            val head = heads.poll() ?: break
+            val list = lists[head[0]]
+            result.add(list[head[1]])
+            if (head[1] + 1 < list.size) {
+                head[1]++
+                heads.add(head)
+            }
+        }
+        return result
+    }
+}
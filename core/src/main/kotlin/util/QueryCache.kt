@@ -0,0 +1,162 @@
+package io.en4ble.pgaccess.util
+
+import io.en4ble.pgaccess.dto.*
+import io.en4ble.pgaccess.enumerations.TypedEnum
+import io.vertx.sqlclient.Tuple
+import org.jooq.Converter
+import org.jooq.Param
+import org.jooq.Query
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Bounded (LRU) cache of query plans, keyed by the shape of a query: the sql with '?' placeholders rendered by jOOQ,
+ * or a shape id supplied by the caller (which saves rendering the sql of a cached query).
+ * A plan holds the final PostgreSQL sql (with '$n' placeholders) and the conversions needed to bind the parameters,
+ * so that repeated executions of the same query shape only need to extract the bind values.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class QueryCache(val maxSize: Int) {
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+
+    private val plans = object : LinkedHashMap<String, QueryPlan>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, QueryPlan>?): Boolean {
+            val evict = size > maxSize
+            if (evict) {
+                evictions.incrementAndGet()
+            }
+            return evict
+        }
+    }
+
+    /**
+     * @param sql the sql of the query as rendered by jOOQ (using '?' placeholders)
+     */
+    fun plan(query: Query, sql: String): QueryPlan {
+        if (maxSize <= 0) {
+            misses.incrementAndGet()
+            return QueryPlan.create(query, sql)
+        }
+        val cached = synchronized(plans) { plans[sql] }
+        if (cached != null) {
+            hits.incrementAndGet()
+            return cached
+        }
+        misses.incrementAndGet()
+        val plan = QueryPlan.create(query, sql)
+        synchronized(plans) { plans[sql] = plan }
+        return plan
+    }
+
+    /**
+     * Plan of a query identified by a caller-supplied shape id (e.g. a constant per DAO method): the query is only
+     * rendered if the plan is not cached yet. All queries that use the same id must render the same sql.
+     */
+    fun plan(shape: String, query: Query): QueryPlan {
+        if (maxSize <= 0) {
+            misses.incrementAndGet()
+            return QueryPlan.create(query, query.sql)
+        }
+        // sql never starts with a NUL character, so shape ids don't collide with the sql keys
+        val key = "\u0000$shape"
+        val cached = synchronized(plans) { plans[key] }
+        if (cached != null) {
+            hits.incrementAndGet()
+            return cached
+        }
+        misses.incrementAndGet()
+        val plan = QueryPlan.create(query, query.sql)
+        synchronized(plans) { plans[key] = plan }
+        return plan
+    }
+
+    fun stats(): QueryCacheStats {
+        return QueryCacheStats(hits.get(), misses.get(), evictions.get(), size())
+    }
+
+    fun size(): Int {
+        return synchronized(plans) { plans.size }
+    }
+
+    fun clear() {
+        synchronized(plans) { plans.clear() }
+    }
+}
+
+data class QueryCacheStats(val hits: Long, val misses: Long, val evictions: Long, val size: Int) {
+    val hitRatio: Double
+        get() = if (hits + misses == 0L) 0.0 else hits.toDouble() / (hits + misses)
+}
+
+/**
+ * The final sql of a query and the precomputed conversion of each of its parameters.
+ */
+class QueryPlan private constructor(val sql: String, private val conversions: Array<ParamConversion>) {
+
+    val parameterCount: Int
+        get() = conversions.size
+
+    /**
+     * Extract the bind values of the given query (which must have the shape this plan was created for).
+     */
+    fun bind(query: Query): Tuple {
+        val params = query.params.values
+        if (params.size != conversions.size) {
+            throw RuntimeException("query does not match plan, expected ${conversions.size} but got ${params.size} parameters: $sql")
+        }
+        val tuple = Tuple.tuple()
+        var i = 0
+        for (param in params) {
+            tuple.addValue(conversions[i++].convert(param))
+        }
+        return tuple
+    }
+
+    private enum class ParamConversion {
+        /** value types that need to be converted to vert.x specific types (geometric types, enums, arrays) */
+        DYNAMIC {
+            override fun convert(param: Param<*>): Any? = JooqHelper.convertToDbType(param, param.value)
+        },
+        CONVERTER {
+            @Suppress("UNCHECKED_CAST")
+            override fun convert(param: Param<*>): Any? {
+                val value = param.value ?: return null
+                return (param.converter as Converter<Any, Any>).to(value)
+            }
+        };
+
+        abstract fun convert(param: Param<*>): Any?
+    }
+
+    companion object {
+        private val DYNAMIC_TYPES = listOf(
+            PointDTO::class.java,
+            LineDTO::class.java,
+            LineSegmentDTO::class.java,
+            PolygonDTO::class.java,
+            PathDTO::class.java,
+            CircleDTO::class.java,
+            BoxDTO::class.java,
+            IntervalDTO::class.java,
+            TypedEnum::class.java
+        )
+
+        internal fun create(query: Query, sql: String): QueryPlan {
+            val params = query.params.values
+            val conversions = params.map { conversion(it) }.toTypedArray()
+            return QueryPlan(DaoHelperCommon.toPositionalPlaceholders(sql), conversions)
+        }
+
+        private fun conversion(param: Param<*>): ParamConversion {
+            val type = param.type
+            return if (type == Any::class.java || type.isArray || DYNAMIC_TYPES.any { it.isAssignableFrom(type) }) {
+                ParamConversion.DYNAMIC
+            } else {
+                ParamConversion.CONVERTER
+            }
+        }
+    }
+}
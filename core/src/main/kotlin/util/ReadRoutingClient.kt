@@ -0,0 +1,43 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.core.AsyncResult
+import io.vertx.core.Future
+import io.vertx.core.Handler
+import io.vertx.sqlclient.PreparedQuery
+import io.vertx.sqlclient.Query
+import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.RowSet
+import io.vertx.sqlclient.SqlClient
+
+/**
+ * Sends selects to the client returned by [reads] (e.g. a replica, see [DaoHelperCommon.isReplicaRead]) and all other
+ * statements to [primary].
+ * Closing the routing client does not close the underlying pools.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+internal class ReadRoutingClient(
+    private val primary: SqlClient,
+    private val reads: () -> SqlClient
+) : SqlClient {
+
+    override fun query(sql: String): Query<RowSet<Row>> {
+        return client(sql).query(sql)
+    }
+
+    override fun preparedQuery(sql: String): PreparedQuery<RowSet<Row>> {
+        return client(sql).preparedQuery(sql)
+    }
+
+    override fun close(handler: Handler<AsyncResult<Void>>) {
+        handler.handle(Future.succeededFuture())
+    }
+
+    override fun close(): Future<Void> {
+        return Future.succeededFuture()
+    }
+
+    private fun client(sql: String): SqlClient {
+        return if (DaoHelperCommon.isReplicaRead(sql)) reads() else primary
+    }
+}
@@ -1,20 +1,25 @@
 package io.en4ble.pgaccess.util
 
+import io.en4ble.pgaccess.QueryEvent
 import io.en4ble.pgaccess.SingleDatabaseContext
+import io.en4ble.pgaccess.cache.CachePolicy
 import io.en4ble.pgaccess.dto.PagingDTO
 import io.en4ble.pgaccess.exceptions.NoResultsException
 import io.en4ble.pgaccess.util.DaoHelperCommon.addLimit
 import io.en4ble.pgaccess.util.DaoHelperCommon.getQueryForLogging
 import io.en4ble.pgaccess.util.DaoHelperCommon.getSortFields
 import io.en4ble.pgaccess.util.JooqHelper.toUUIDList
+import io.reactivex.Flowable
 import io.reactivex.Single
 import io.vertx.reactivex.sqlclient.Row
 import io.vertx.reactivex.sqlclient.RowSet
 import io.vertx.reactivex.sqlclient.SqlClient
 import io.vertx.reactivex.sqlclient.SqlConnection
+import io.vertx.reactivex.sqlclient.Tuple
 import org.jooq.*
 import org.slf4j.LoggerFactory
 import java.util.*
+import java.util.concurrent.atomic.AtomicBoolean
 
 /** @author Mark Hofmann (mark@en4ble.io)
  */
@@ -25,25 +30,35 @@ object RxDaoHelper {
     /**
      * Run a query using a connection from the pool.
      */
-    fun query(query: Query, context: SingleDatabaseContext): Single<RowSet<Row>> {
-        return query(query, context.sqlClient(), context)
+    fun query(query: Query, context: SingleDatabaseContext, cache: CachePolicy? = null): Single<RowSet<Row>> {
+        return query(query, context.routingClient(), context, cache)
     }
 
     /**
      * Run a query using a given connection.
      */
-    fun query(query: Query, client: SqlClient, context: SingleDatabaseContext): Single<RowSet<Row>> {
-        return runQuery(query, client, context, false)
+    fun query(
+        query: Query,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Single<RowSet<Row>> {
+        return runQuery(query, client, context, false, cache)
     }
 
     @Throws(NoResultsException::class)
-    fun queryOne(query: Query, context: SingleDatabaseContext): Single<Row> {
-        return queryOne(query, context.sqlClient(), context)
+    fun queryOne(query: Query, context: SingleDatabaseContext, cache: CachePolicy? = null): Single<Row> {
+        return queryOne(query, context.routingClient(), context, cache)
     }
 
     @Throws(NoResultsException::class)
-    fun queryOne(query: Query, client: SqlClient, context: SingleDatabaseContext): Single<Row> {
-        return query(query, client, context)
+    fun queryOne(
+        query: Query,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Single<Row> {
+        return query(query, client, context, cache)
             .map {
                 if (it.size() == 0) {
                     throw NoResultsException(getQueryForLogging(query, context.config()))
@@ -52,12 +67,17 @@ object RxDaoHelper {
             }
     }
 
-    fun queryOptional(query: Query, context: SingleDatabaseContext): Single<Optional<Row>> {
-        return queryOptional(query, context.sqlClient(), context)
+    fun queryOptional(query: Query, context: SingleDatabaseContext, cache: CachePolicy? = null): Single<Optional<Row>> {
+        return queryOptional(query, context.routingClient(), context, cache)
     }
 
-    fun queryOptional(query: Query, client: SqlClient, context: SingleDatabaseContext): Single<Optional<Row>> {
-        return query(query, client, context)
+    fun queryOptional(
+        query: Query,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Single<Optional<Row>> {
+        return query(query, client, context, cache)
             .map {
                 if (it.size() == 0) {
                     Optional.empty()
@@ -81,7 +101,7 @@ object RxDaoHelper {
     }
 
     fun readUUIDs(query: Query, page: PagingDTO? = null, context: SingleDatabaseContext): Single<List<UUID>> {
-        return readUUIDs(query, page, context.sqlClient(), context)
+        return readUUIDs(query, page, context.routingClient(), context)
     }
 
     fun readUUIDs(
@@ -105,9 +125,10 @@ object RxDaoHelper {
         query: Query,
         table: Table<RECORD>,
         page: PagingDTO?,
-        context: SingleDatabaseContext
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
     ): Single<RowSet<Row>> {
-        return read(query, table, page, context.sqlClient(), context)
+        return read(query, table, page, context.routingClient(), context, cache)
     }
 
     fun <RECORD : Record> read(
@@ -115,67 +136,394 @@ object RxDaoHelper {
         table: Table<RECORD>,
         page: PagingDTO?,
         client: SqlClient,
-        context: SingleDatabaseContext
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
     ): Single<RowSet<Row>> {
         if (page != null) {
             val order = page.orderBy
             if (order != null && query is SelectOrderByStep<*>) {
                 val q = query.orderBy(getSortFields(table, order))
-                return query(addLimit(q, page), client, context)
+                return query(addLimit(q, page), client, context, cache)
             }
         }
-        return query(query, context)
+        return query(query, client, context, cache)
+    }
+
+    /**
+     * Run a statement with a precomputed sql (e.g. the static sql of generated DAOs) using a connection from the pool.
+     */
+    fun query(statement: BoundSql, context: SingleDatabaseContext, cache: CachePolicy? = null): Single<RowSet<Row>> {
+        return query(statement, context.routingClient(), context, cache)
+    }
+
+    /**
+     * Run a statement with a precomputed sql using the given connection.
+     */
+    fun query(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Single<RowSet<Row>> {
+        return runStatement(statement, client, context, false, cache)
+    }
+
+    @Throws(NoResultsException::class)
+    fun queryOne(statement: BoundSql, context: SingleDatabaseContext, cache: CachePolicy? = null): Single<Row> {
+        return queryOne(statement, context.routingClient(), context, cache)
+    }
+
+    @Throws(NoResultsException::class)
+    fun queryOne(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Single<Row> {
+        return query(statement, client, context, cache)
+            .map {
+                if (it.size() == 0) {
+                    throw NoResultsException(statement.toString())
+                }
+                it.iterator().next()
+            }
+    }
+
+    fun queryOptional(
+        statement: BoundSql,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Single<Optional<Row>> {
+        return queryOptional(statement, context.routingClient(), context, cache)
+    }
+
+    fun queryOptional(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        cache: CachePolicy? = null
+    ): Single<Optional<Row>> {
+        return query(statement, client, context, cache)
+            .map {
+                if (it.size() == 0) {
+                    Optional.empty()
+                } else {
+                    Optional.of(it.iterator().next())
+                }
+            }
     }
 
     private fun runQuery(
         query: Query,
         client: SqlClient,
         context: SingleDatabaseContext,
-        update: Boolean
+        update: Boolean,
+        cache: CachePolicy? = null
     ): Single<RowSet<Row>> {
-        val config = context.config()
-        val sql = DaoHelperCommon.getSql(query, config)
-        // TODO: this is not exactly true, in vert.x 3.x it used to be a check on Transaction but it's not a superclass of SqlClient anymore.
-        val inTx = if (client is SqlConnection) {
-            "[Tx]"
-        } else {
-            "[NoTx]"
+        return runStatement(DaoHelperCommon.prepare(query, context), client, context, update, cache)
+    }
+
+    /**
+     * Run the queries concurrently using connections from the pool.
+     * @return the results in the order of the queries
+     */
+    fun pipelined(queries: List<Query>, context: SingleDatabaseContext): Single<List<RowSet<Row>>> {
+        return pipelined(queries, context.routingClient(), context)
+    }
+
+    /**
+     * Send all queries to the given connection before awaiting the results, so that they are pipelined
+     * (up to [io.en4ble.pgaccess.DatabaseConfig.pipeliningLimit]) instead of costing one round trip each.
+     * @return the results in the order of the queries
+     */
+    fun pipelined(queries: List<Query>, client: SqlClient, context: SingleDatabaseContext): Single<List<RowSet<Row>>> {
+        return pipelinedStatements(queries.map { DaoHelperCommon.prepare(it, context) }, client, context)
+    }
+
+    /**
+     * Send all statements to the given connection before awaiting the results.
+     * @return the results in the order of the statements
+     */
+    fun pipelinedStatements(
+        statements: List<BoundSql>,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): Single<List<RowSet<Row>>> {
+        if (statements.isEmpty()) {
+            return Single.just(emptyList())
+        }
+        if (LOG.isTraceEnabled) {
+            LOG.trace("{} about to run {} pipelined statements", DaoHelperCommon.txTag(client.delegate), statements.size)
+        }
+        val results = statements.map { statement ->
+            val result = execute(context.statementSql(statement.sql), statement.params, client, context)
+            observe(result, statement, DaoHelperCommon.isWrite(statement.sql), client, context)
+                .doOnError { LOG.error("{}\nsql: {}", it.message, statement.sql, it) }
+                .doOnSuccess { context.written(statement.sql, client.delegate) }
+        }
+        // zip subscribes to all statements at once, so they are sent before any result arrives
+        return Single.zip(results) { rowSets ->
+            @Suppress("UNCHECKED_CAST")
+            rowSets.map { it as RowSet<Row> }
+        }
+    }
+
+    /**
+     * Stream the rows of a query using a cursor, fetching [fetchSize] rows at a time (backpressured).
+     * A connection from the pool is used with a transaction that is committed after the last row was emitted
+     * (or rolled back if the stream fails or is cancelled).
+     */
+    fun stream(query: Query, fetchSize: Int, context: SingleDatabaseContext): Flowable<Row> {
+        return context.rxBeginTx().flatMapPublisher { (connection, transaction) ->
+            val ended = AtomicBoolean()
+            stream(query, fetchSize, connection, context)
+                .onErrorResumeNext { e: Throwable ->
+                    context.rxEndOnce(ended) { context.rxRollback(connection, transaction) }
+                        .doOnError { LOG.warn("rollback of stream failed", it) }
+                        .onErrorComplete()
+                        .andThen(Flowable.error(e))
+                }
+                .concatWith(context.rxEndOnce(ended) { context.rxCommit(connection, transaction) })
+                .doOnCancel {
+                    context.rxEndOnce(ended) { context.rxRollback(connection, transaction) }
+                        .subscribe({}, { LOG.warn("rollback of cancelled stream failed", it) })
+                }
+        }
+    }
+
+    /**
+     * Stream the rows of a query using a cursor on the given connection, fetching [fetchSize] rows at a time.
+     * NOTE: cursors require a transaction, the connection must be in a transaction.
+     */
+    fun stream(query: Query, fetchSize: Int, connection: SqlConnection, context: SingleDatabaseContext): Flowable<Row> {
+        val statement = DaoHelperCommon.prepare(query, context)
+        if (LOG.isTraceEnabled) {
+            LOG.trace("[Tx] about to stream query: {}", statement)
+        }
+        return Flowable.defer {
+            val event = QueryEvent.start(statement.sql, statement.params, false, connection.delegate, context)
+            val rows = connection.rxPrepare(statement.sql).flatMapPublisher { prepared ->
+                event?.bound()
+                val params = Tuple.newInstance(statement.params ?: io.vertx.sqlclient.Tuple.tuple())
+                prepared.createStream(fetchSize, params)
+                    .toFlowable()
+                    .doFinally { prepared.close() }
+            }
+            if (event == null) {
+                return@defer rows
+            }
+            var count = 0
+            rows.doOnNext {
+                event.row(it.delegate)
+                count++
+            }.doOnComplete { event.completed(count) }
+                .doOnError { event.failed(it) }
+        }
+    }
+
+    /**
+     * Run batch statements using a connection from the pool.
+     * Note that the batches are not executed atomically unless a transaction is used.
+     * @return the results in the order of the rows (null for rows that were not part of any statement)
+     */
+    fun batch(statements: List<BatchStatement>, rows: Int, context: SingleDatabaseContext): Single<List<RowSet<Row>?>> {
+        return batch(statements, rows, context.sqlClient(), context)
+    }
+
+    /**
+     * Run batch statements using the given connection, sending at most [io.en4ble.pgaccess.DatabaseConfig.batchSize]
+     * rows per executeBatch call.
+     * @return the results in the order of the rows (null for rows that were not part of any statement)
+     */
+    fun batch(
+        statements: List<BatchStatement>,
+        rows: Int,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): Single<List<RowSet<Row>?>> {
+        val batchSize = context.config().batchSize
+        val chunks = statements.flatMap { statement ->
+            statement.params.chunked(batchSize).mapIndexed { i, chunk -> Triple(statement, i * batchSize, chunk) }
         }
-        return if (query.bindValues.isEmpty()) {
+        return Flowable.fromIterable(chunks).concatMapSingle { (statement, offset, chunk) ->
             if (LOG.isTraceEnabled) {
-                LOG.trace("{} about to run {}: {}", inTx, if (update) "update" else "query", sql)
+                LOG.trace("{} about to run batch: {}", DaoHelperCommon.txTag(client.delegate), statement)
             }
-            client.query(sql).rxExecute()
-        } else {
-            if (config.preparedStatements) {
-                val params = JooqHelper.rxParams(query)
-                if (LOG.isTraceEnabled) {
-                    LOG.trace(
-                        "{} about to run {}: {}",
-                        inTx,
-                        if (update) "update" else "query",
-                        getQueryForLogging(sql, params.delegate)
-                    )
-                }
-                client.preparedQuery(sql).rxExecute(params)
+            val staticSql = DaoHelperCommon.staticBatchSql(statement.sql, chunk, context)
+            val send = if (staticSql != null) {
+                client.query(staticSql).rxExecute()
             } else {
-                if (LOG.isTraceEnabled) {
-                    LOG.trace(
-                        "{} about to run {}: {}",
-                        inTx,
-                        if (update) "update" else "query", sql
-                    )
+                client.preparedQuery(context.statementSql(statement.sql))
+                    .rxExecuteBatch(chunk.map { Tuple.newInstance(it) })
+            }
+            observeBatch(tracked(client, context, send), statement.sql, chunk.size, client, context)
+                .doOnError { LOG.error("{}\nsql: {}", it.message, statement.sql, it) }
+                .doOnSuccess {
+                    context.written(statement.sql, client.delegate, statement.keys(offset, offset + chunk.size))
+                }
+                .map { result ->
+                    val rowResults = ArrayList<Pair<Int, RowSet<Row>>>(chunk.size)
+                    var next: RowSet<Row>? = result
+                    var i = offset
+                    while (next != null) {
+                        rowResults.add(Pair(statement.rows[i++], next))
+                        next = next.next()
+                    }
+                    rowResults
                 }
-                client.query(sql).rxExecute()
+        }.collect({ arrayOfNulls<RowSet<Row>>(rows) }, { results, rowResults ->
+            rowResults.forEach { (row, result) -> results[row] = result }
+        }).map { it.asList() }
+    }
+
+    private fun runStatement(
+        statement: BoundSql,
+        client: SqlClient,
+        context: SingleDatabaseContext,
+        update: Boolean,
+        cache: CachePolicy? = null
+    ): Single<RowSet<Row>> {
+        if (LOG.isTraceEnabled) {
+            val type = if (update) "update" else "query"
+            LOG.trace("{} about to run {}: {}", DaoHelperCommon.txTag(client.delegate), type, statement)
+        }
+        val resultCache = DaoHelperCommon.resultCache(statement, update, client.delegate, context, cache)
+        val cached = resultCache?.get(statement.sql, statement.params)
+        if (cached != null) {
+            if (LOG.isTraceEnabled) {
+                LOG.trace("{} cached result for query: {}", DaoHelperCommon.txTag(client.delegate), statement)
             }
-        }.doOnError {
-            LOG.error("${it.message}\nsql: $sql", it)
+            return Single.just(RowSet.newInstance(cached, Row.__TYPE_ARG))
+        }
+        val token = resultCache?.token() ?: 0
+        val sql = context.statementSql(statement.sql)
+        val result = if (DaoHelperCommon.isSingleFlight(statement, update, client.delegate, context)) {
+            shared(sql, statement.params, client, context)
+        } else {
+            execute(sql, statement.params, client, context)
+        }
+        return observe(
+            result.onErrorResumeNext {
+                if (DaoHelperCommon.canReplan(it, statement, client.delegate, context)) {
+                    execute(context.replan(statement.sql), statement.params, client, context)
+                } else {
+                    Single.error(it)
+                }
+            }, statement, update, client, context
+        ).doOnError {
+            LOG.error("{}\nsql: {}", it.message, statement.sql, it)
             throw it
         }.map {
             if (LOG.isTraceEnabled) {
-                LOG.trace("{} query returned {} results", inTx, it.size())
+                LOG.trace("{} query returned {} results", DaoHelperCommon.txTag(client.delegate), it.size())
             }
+            context.written(statement.sql, client.delegate)
+            resultCache?.put(
+                statement.sql,
+                statement.params,
+                it.delegate as io.vertx.sqlclient.RowSet<io.vertx.sqlclient.Row>,
+                cache!!,
+                token
+            )
             it
         }
     }
+
+    /**
+     * Notify the query listeners of the context (if any) about the execution of the statement.
+     */
+    private fun observe(
+        result: Single<RowSet<Row>>,
+        statement: BoundSql,
+        update: Boolean,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): Single<RowSet<Row>> {
+        if (context.queryListeners().isEmpty()) {
+            return result
+        }
+        return Single.defer {
+            val event = QueryEvent.start(statement.sql, statement.params, update, client.delegate, context)
+                ?: return@defer result
+            result.doOnSuccess { event.completed(it.delegate as io.vertx.sqlclient.RowSet<io.vertx.sqlclient.Row>) }
+                .doOnError { event.failed(it) }
+        }
+    }
+
+    /**
+     * Notify the query listeners of the context (if any) about the execution of a batch of [size] parameter sets.
+     */
+    private fun observeBatch(
+        result: Single<RowSet<Row>>,
+        sql: String,
+        size: Int,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): Single<RowSet<Row>> {
+        if (context.queryListeners().isEmpty()) {
+            return result
+        }
+        return Single.defer {
+            val event = QueryEvent.start(sql, null, true, client.delegate, context, size) ?: return@defer result
+            result.doOnSuccess {
+                var affected = 0
+                var next: io.vertx.sqlclient.RowSet<io.vertx.sqlclient.Row>? = it.delegate
+                while (next != null) {
+                    affected += next.rowCount()
+                    next = next.next()
+                }
+                event.completed(affected)
+            }.doOnError { event.failed(it) }
+        }
+    }
+
+    private fun shared(
+        sql: String,
+        params: io.vertx.sqlclient.Tuple?,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): Single<RowSet<Row>> {
+        return Single.create { emitter ->
+            context.singleFlight()!!.execute(sql, params) {
+                val staticSql = DaoHelperCommon.staticSql(sql, params, context)
+                val send = {
+                    if (staticSql != null) {
+                        client.delegate.query(staticSql).execute()
+                    } else {
+                        client.delegate.preparedQuery(sql).execute(params)
+                    }
+                }
+                context.poolMonitor()?.statement(client.delegate, send) ?: send()
+            }.onComplete { ar ->
+                if (ar.succeeded()) {
+                    emitter.onSuccess(RowSet.newInstance(ar.result(), Row.__TYPE_ARG))
+                } else {
+                    emitter.onError(ar.cause())
+                }
+            }
+        }
+    }
+
+    private fun execute(
+        sql: String,
+        params: io.vertx.sqlclient.Tuple?,
+        client: SqlClient,
+        context: SingleDatabaseContext
+    ): Single<RowSet<Row>> {
+        val staticSql = DaoHelperCommon.staticSql(sql, params, context)
+        return tracked(
+            client, context, if (staticSql != null) {
+                client.query(staticSql).rxExecute()
+            } else {
+                client.preparedQuery(sql).rxExecute(Tuple.newInstance(params))
+            }
+        )
+    }
+
+    /**
+     * Report statements on the pool to the pool metrics of the context (if any).
+     */
+    private fun <T> tracked(client: SqlClient, context: SingleDatabaseContext, single: Single<T>): Single<T> {
+        return context.poolMonitor()?.statement(client.delegate, single) ?: single
+    }
 }
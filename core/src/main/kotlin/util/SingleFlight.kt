@@ -0,0 +1,65 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.core.Future
+import io.vertx.core.Promise
+import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.RowSet
+import io.vertx.sqlclient.Tuple
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Deduplication of identical reads: while a statement (same sql and bind values) is executed, further executions
+ * of the same statement get the result of the running execution instead of being sent to the database.
+ * Only used for selects outside of transactions, see [DaoHelperCommon.isSingleFlight].
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class SingleFlight {
+    private val inFlight = ConcurrentHashMap<StatementKey, Future<RowSet<Row>>>()
+    private val executions = AtomicLong()
+    private val saved = AtomicLong()
+
+    fun execute(sql: String, params: Tuple?, execute: () -> Future<RowSet<Row>>): Future<RowSet<Row>> {
+        val key = StatementKey(sql, params)
+        val running = inFlight[key]
+        if (running != null) {
+            saved.incrementAndGet()
+            return running
+        }
+        val promise = Promise.promise<RowSet<Row>>()
+        val future = promise.future()
+        val current = inFlight.putIfAbsent(key, future)
+        if (current != null) {
+            saved.incrementAndGet()
+            return current
+        }
+        executions.incrementAndGet()
+        val result = try {
+            execute()
+        } catch (e: Exception) {
+            Future.failedFuture(e)
+        }
+        result.onComplete {
+            // requests arriving after the result are executed again
+            inFlight.remove(key, future)
+            promise.handle(it)
+        }
+        return future
+    }
+
+    /** number of statements sent to the database */
+    fun executions(): Long {
+        return executions.get()
+    }
+
+    /** number of executions that were saved by using the result of a running execution */
+    fun saved(): Long {
+        return saved.get()
+    }
+
+    fun inFlight(): Int {
+        return inFlight.size
+    }
+}
@@ -0,0 +1,22 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.sqlclient.Tuple
+import java.util.*
+
+/**
+ * Identifies the execution of a statement by its sql and bind values (arrays are compared by content).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+internal class StatementKey(val sql: String, params: Tuple?) {
+    private val values: Array<Any?> = if (params == null) emptyArray() else Array(params.size()) { params.getValue(it) }
+    private val hash = 31 * sql.hashCode() + Arrays.deepHashCode(values)
+
+    override fun equals(other: Any?): Boolean {
+        return other is StatementKey && hash == other.hash && sql == other.sql && Arrays.deepEquals(values, other.values)
+    }
+
+    override fun hashCode(): Int {
+        return hash
+    }
+}
@@ -0,0 +1,408 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.sqlclient.Tuple
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Insert, update and delete statements of a table, built from the (quoted) table and column names emitted by
+ * the code generator. Columns whose value is null are omitted, so that the defaults of the database apply
+ * (or the current value is kept when updating). The sql is built once per combination of non-null columns
+ * and reused afterwards.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class TableStatements(
+    val table: String,
+    val columns: Array<String>,
+    /** indices of the primary key columns */
+    val primaryKey: IntArray = IntArray(0),
+    /**
+     * The postgres types of the columns used to bind column arrays to unnest (null if not supported by the table).
+     * User defined types (quoted names) are bound as text and cast when selecting from unnest.
+     */
+    val unnestTypes: Array<String>? = null
+) {
+    private val returningClause = " returning " + columns.joinToString(", ")
+    private val inserts = ConcurrentHashMap<Long, String>()
+    private val insertsReturning = ConcurrentHashMap<Long, String>()
+    private val updates = ConcurrentHashMap<Long, String>()
+    private val updatesReturning = ConcurrentHashMap<Long, String>()
+    // insert, insert returning, upsert, upsert returning
+    private val unnestInserts = Array(4) { ConcurrentHashMap<Long, String>() }
+    private val rowInserts = Array(4) { ConcurrentHashMap<Long, String>() }
+    private val deleteSql by lazy {
+        "delete from $table where " + primaryKey.mapIndexed { i, column -> "${columns[column]} = $${i + 1}" }
+            .joinToString(" and ")
+    }
+
+    /**
+     * @param values the database values of all columns of the table (in the order of the columns)
+     * @param returning if true all columns of the inserted row are returned
+     */
+    fun insert(values: Array<Any?>, returning: Boolean = false): BoundSql {
+        if (values.size != columns.size) {
+            throw IllegalArgumentException("expected ${columns.size} values for $table but got ${values.size}")
+        }
+        val params = Tuple.tuple()
+        var mask = 0L
+        for (i in values.indices) {
+            val value = values[i]
+            if (value != null) {
+                params.addValue(value)
+                if (i < Long.SIZE_BITS) {
+                    mask = mask or (1L shl i)
+                }
+            }
+        }
+        val sql = if (columns.size > Long.SIZE_BITS) {
+            // too many columns to use the mask as cache key
+            insertSql(values, returning)
+        } else {
+            val cache = if (returning) insertsReturning else inserts
+            cache[mask] ?: insertSql(values, returning).also { cache[mask] = it }
+        }
+        return BoundSql(sql, if (params.size() == 0) null else params)
+    }
+
+    /**
+     * Insert statements for multiple rows, one per combination of non-null columns.
+     */
+    fun insertBatch(rows: List<Array<Any?>>, returning: Boolean = false): List<BatchStatement> {
+        val batches = LinkedHashMap<String, BatchStatement>()
+        rows.forEachIndexed { i, values ->
+            val statement = insert(values, returning)
+            batches.getOrPut(statement.sql) { BatchStatement(statement.sql) }.add(i, statement.params ?: Tuple.tuple())
+        }
+        return batches.values.toList()
+    }
+
+    /**
+     * Update statement that sets all non-null values of the row (except the primary key) and identifies the row
+     * by the primary key, or null if there is nothing to update.
+     */
+    fun update(values: Array<Any?>, returning: Boolean = false): BoundSql? {
+        if (values.size != columns.size) {
+            throw IllegalArgumentException("expected ${columns.size} values for $table but got ${values.size}")
+        }
+        if (primaryKey.isEmpty()) {
+            throw UnsupportedOperationException("$table does not have a primary key")
+        }
+        val params = Tuple.tuple()
+        var mask = 0L
+        for (i in values.indices) {
+            val value = values[i]
+            if (value != null && i !in primaryKey) {
+                params.addValue(value)
+                if (i < Long.SIZE_BITS) {
+                    mask = mask or (1L shl i)
+                }
+            }
+        }
+        if (params.size() == 0) {
+            return null
+        }
+        for (i in primaryKey) {
+            params.addValue(values[i] ?: throw IllegalArgumentException("primary key ${columns[i]} must not be null"))
+        }
+        val sql = if (columns.size > Long.SIZE_BITS) {
+            updateSql(values, returning)
+        } else {
+            val cache = if (returning) updatesReturning else updates
+            cache[mask] ?: updateSql(values, returning).also { cache[mask] = it }
+        }
+        return BoundSql(sql, params)
+    }
+
+    /**
+     * Update statements for multiple rows, one per combination of non-null columns.
+     * Rows without values to update are skipped.
+     */
+    fun updateBatch(rows: List<Array<Any?>>, returning: Boolean = false): List<BatchStatement> {
+        val batches = LinkedHashMap<String, BatchStatement>()
+        rows.forEachIndexed { i, values ->
+            val statement = update(values, returning)
+            if (statement != null) {
+                val params = statement.params!!
+                batches.getOrPut(statement.sql) {
+                    // the key is bound last
+                    BatchStatement(statement.sql).also { if (primaryKey.size == 1) it.keyIndex = params.size() - 1 }
+                }.add(i, params)
+            }
+        }
+        return batches.values.toList()
+    }
+
+    /**
+     * Delete statement for multiple rows, identified by the values of their primary key.
+     */
+    fun deleteBatch(keys: List<Array<Any?>>): BatchStatement {
+        if (primaryKey.isEmpty()) {
+            throw UnsupportedOperationException("$table does not have a primary key")
+        }
+        val batch = BatchStatement(deleteSql)
+        if (primaryKey.size == 1) {
+            batch.keyIndex = 0
+        }
+        keys.forEachIndexed { i, key ->
+            if (key.size != primaryKey.size) {
+                throw IllegalArgumentException("expected ${primaryKey.size} key values for $table but got ${key.size}")
+            }
+            val params = Tuple.tuple()
+            key.forEach { params.addValue(it) }
+            batch.add(i, params)
+        }
+        return batch
+    }
+
+    /**
+     * The statement to insert all rows at once: the [insertUnnest] statement (as the only tuple of the batch, for row
+     * 0) if the table supports unnest, otherwise (array columns can't be bound as arrays of arrays) an insert of the
+     * same columns that is executed once per row. Both have the same effect, see [insertUnnest].
+     */
+    fun insertAll(rows: List<Array<Any?>>, upsert: Boolean = false, returning: Boolean = false): BatchStatement {
+        if (unnestTypes != null) {
+            val statement = insertUnnest(rows, upsert, returning)
+            return BatchStatement(statement.sql).also { it.add(0, statement.params!!) }
+        }
+        val unique = uniqueRows(rows, upsert)
+        val included = includedColumns(unique)
+        val sql = cached(rowInserts, included, upsert, returning) { insertRowSql(included, upsert, returning) }
+        val batch = BatchStatement(sql)
+        unique.forEachIndexed { row, values ->
+            val params = Tuple.tuple()
+            for (i in columns.indices) {
+                if (included[i]) {
+                    params.addValue(values[i])
+                }
+            }
+            batch.add(row, params)
+        }
+        return batch
+    }
+
+    /**
+     * A single insert statement for all rows that binds one array per column and selects the rows from unnest,
+     * so that the number of parameters (and thus the statement) does not depend on the number of rows.
+     * Columns that are null in all rows are omitted (so that the defaults apply), other null values are inserted
+     * as null.
+     * @param upsert if true rows that already exist (same primary key) are updated with the inserted values:
+     * all included columns are written, i.e. a column that is null in this row but not in another one is set to
+     * NULL. Since a statement can't update a row twice, only the last of the rows with the same primary key is
+     * inserted.
+     * @param returning if true all columns of the inserted rows are returned
+     */
+    fun insertUnnest(rows: List<Array<Any?>>, upsert: Boolean = false, returning: Boolean = false): BoundSql {
+        val types = unnestTypes ?: throw UnsupportedOperationException(
+            "$table does not support unnest (array columns), please use insertAll or the batch methods instead"
+        )
+        val unique = uniqueRows(rows, upsert)
+        val included = includedColumns(unique)
+        val params = Tuple.tuple()
+        for (i in columns.indices) {
+            if (included[i]) {
+                params.addValue(columnArray(unique, i))
+            }
+        }
+        if (params.size() == 0) {
+            params.addValue(unique.size)
+        }
+        val sql = cached(unnestInserts, included, upsert, returning) { unnestSql(included, types, upsert, returning) }
+        return BoundSql(sql, params)
+    }
+
+    /**
+     * The rows to insert: with [upsert] only the last row of each primary key (rows without key are kept).
+     */
+    private fun uniqueRows(rows: List<Array<Any?>>, upsert: Boolean): List<Array<Any?>> {
+        if (!upsert) {
+            return rows
+        }
+        if (primaryKey.isEmpty()) {
+            throw UnsupportedOperationException("$table does not have a primary key")
+        }
+        val last = HashMap<List<Any?>, Int>()
+        rows.forEachIndexed { i, values ->
+            val key = primaryKey.map { values.getOrNull(it) }
+            if (key.none { it == null }) {
+                last[key] = i
+            }
+        }
+        if (last.size == rows.size) {
+            return rows
+        }
+        return rows.filterIndexed { i, values ->
+            val key = primaryKey.map { values.getOrNull(it) }
+            key.any { it == null } || last[key] == i
+        }
+    }
+
+    // the columns that are not null in any row
+    private fun includedColumns(rows: List<Array<Any?>>): BooleanArray {
+        val included = BooleanArray(columns.size)
+        for (values in rows) {
+            if (values.size != columns.size) {
+                throw IllegalArgumentException("expected ${columns.size} values for $table but got ${values.size}")
+            }
+            for (i in values.indices) {
+                if (values[i] != null) {
+                    included[i] = true
+                }
+            }
+        }
+        return included
+    }
+
+    private inline fun cached(
+        caches: Array<ConcurrentHashMap<Long, String>>,
+        included: BooleanArray,
+        upsert: Boolean,
+        returning: Boolean,
+        sql: () -> String
+    ): String {
+        if (columns.size > Long.SIZE_BITS) {
+            // too many columns to use the mask as cache key
+            return sql()
+        }
+        var mask = 0L
+        for (i in included.indices) {
+            if (included[i]) {
+                mask = mask or (1L shl i)
+            }
+        }
+        val cache = caches[(if (upsert) 2 else 0) + (if (returning) 1 else 0)]
+        return cache[mask] ?: sql().also { cache[mask] = it }
+    }
+
+    private fun unnestSql(included: BooleanArray, types: Array<String>, upsert: Boolean, returning: Boolean): String {
+        val names = ArrayList<String>()
+        val selects = ArrayList<String>()
+        val arrays = ArrayList<String>()
+        val aliases = ArrayList<String>()
+        for (i in columns.indices) {
+            if (included[i]) {
+                val userDefined = types[i].startsWith('"')
+                names.add(columns[i])
+                selects.add(if (userDefined) "u.c$i::${types[i]}" else "u.c$i")
+                arrays.add("$${arrays.size + 1}::${if (userDefined) "text" else types[i]}[]")
+                aliases.add("c$i")
+            }
+        }
+        val sb = StringBuilder("insert into ").append(table)
+        if (names.isEmpty()) {
+            // all values are null, insert rows with default values only
+            sb.append(" select from generate_series(1, $1)")
+        } else {
+            sb.append(" (").append(names.joinToString(", ")).append(") select ").append(selects.joinToString(", "))
+                .append(" from unnest(").append(arrays.joinToString(", ")).append(") as u(")
+                .append(aliases.joinToString(", ")).append(")")
+        }
+        appendConflict(sb, included, upsert, returning)
+        return sb.toString()
+    }
+
+    private fun insertRowSql(included: BooleanArray, upsert: Boolean, returning: Boolean): String {
+        val names = columns.indices.filter { included[it] }.map { columns[it] }
+        val sb = StringBuilder("insert into ").append(table)
+        if (names.isEmpty()) {
+            sb.append(" default values")
+        } else {
+            sb.append(" (").append(names.joinToString(", ")).append(") values (")
+                .append(names.indices.joinToString(", ") { "$${it + 1}" }).append(")")
+        }
+        appendConflict(sb, included, upsert, returning)
+        return sb.toString()
+    }
+
+    private fun appendConflict(sb: StringBuilder, included: BooleanArray, upsert: Boolean, returning: Boolean) {
+        if (upsert) {
+            sb.append(" on conflict (").append(primaryKey.joinToString(", ") { columns[it] }).append(")")
+            val updates = columns.indices.filter { included[it] && it !in primaryKey }
+            if (updates.isEmpty()) {
+                sb.append(" do nothing")
+            } else {
+                sb.append(" do update set ")
+                    .append(updates.joinToString(", ") { "${columns[it]} = excluded.${columns[it]}" })
+            }
+        }
+        if (returning) {
+            sb.append(returningClause)
+        }
+    }
+
+    // the values of a column as typed array (the client derives the array type from the component type)
+    private fun columnArray(rows: List<Array<Any?>>, column: Int): Array<Any?> {
+        var type: Class<*>? = null
+        for (values in rows) {
+            val value = values[column] ?: continue
+            type = when {
+                type == null || type.isAssignableFrom(value.javaClass) -> type ?: value.javaClass
+                value.javaClass.isAssignableFrom(type) -> value.javaClass
+                else -> Any::class.java
+            }
+        }
+        @Suppress("UNCHECKED_CAST")
+        val array = java.lang.reflect.Array.newInstance(type ?: Any::class.java, rows.size) as Array<Any?>
+        rows.forEachIndexed { i, values -> array[i] = values[column] }
+        return array
+    }
+
+    private fun updateSql(values: Array<Any?>, returning: Boolean): String {
+        val sb = StringBuilder("update ").append(table).append(" set ")
+        var n = 0
+        for (i in values.indices) {
+            if (values[i] != null && i !in primaryKey) {
+                if (n > 0) {
+                    sb.append(", ")
+                }
+                n++
+                sb.append(columns[i]).append(" = $").append(n)
+            }
+        }
+        sb.append(" where ")
+        primaryKey.forEachIndexed { i, column ->
+            if (i > 0) {
+                sb.append(" and ")
+            }
+            n++
+            sb.append(columns[column]).append(" = $").append(n)
+        }
+        if (returning) {
+            sb.append(returningClause)
+        }
+        return sb.toString()
+    }
+
+    private fun insertSql(values: Array<Any?>, returning: Boolean): String {
+        val sb = StringBuilder("insert into ").append(table)
+        val names = StringBuilder()
+        val placeholders = StringBuilder()
+        var n = 0
+        for (i in values.indices) {
+            if (values[i] != null) {
+                if (n > 0) {
+                    names.append(", ")
+                    placeholders.append(", ")
+                }
+                n++
+                names.append(columns[i])
+                placeholders.append('$').append(n)
+            }
+        }
+        if (n == 0) {
+            sb.append(" default values")
+        } else {
+            sb.append(" (").append(names).append(") values (").append(placeholders).append(')')
+        }
+        if (returning) {
+            sb.append(returningClause)
+        }
+        return sb.toString()
+    }
+
+    companion object {
+        fun isEmpty(values: Array<Any?>): Boolean {
+            return values.all { it == null }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.en4ble.pgaccess
+
+import io.vertx.pgclient.PgException
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.concurrent.CompletionException
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class RetryPolicyTest {
+    @Test
+    fun backoffGrowsExponentiallyWithJitter() {
+        val policy = RetryPolicy(initialBackoffMillis = 5, maxBackoffMillis = 1000)
+        for (retry in 1..8) {
+            val max = 5L shl (retry - 1)
+            val backoffs = (1..200).map { policy.backoffMillis(retry) }
+            assertTrue(backoffs.all { it in 0..max }, "retry $retry: $backoffs")
+            // full jitter: spread over the whole range
+            assertTrue(backoffs.distinct().size > 1, "retry $retry: $backoffs")
+        }
+    }
+
+    @Test
+    fun backoffIsCapped() {
+        val policy = RetryPolicy(initialBackoffMillis = 5, maxBackoffMillis = 100)
+        for (retry in listOf(6, 10, 31, 32, 64, Int.MAX_VALUE)) {
+            assertTrue(policy.backoffMillis(retry) in 0..100, "retry $retry")
+        }
+    }
+
+    @Test
+    fun noBackoff() {
+        val policy = RetryPolicy(initialBackoffMillis = 0)
+        assertEquals(0, policy.backoffMillis(1))
+        assertEquals(0, policy.backoffMillis(10))
+    }
+
+    @Test
+    fun retryableSqlState() {
+        val policy = RetryPolicy()
+        val serialization = PgException("could not serialize access", "ERROR", "40001", null)
+        assertEquals("40001", policy.retryableSqlState(serialization))
+        assertEquals("40P01", policy.retryableSqlState(PgException("deadlock detected", "ERROR", "40P01", null)))
+        // wrapped errors are unwrapped
+        assertEquals("40001", policy.retryableSqlState(CompletionException(serialization)))
+        assertNull(policy.retryableSqlState(PgException("duplicate key", "ERROR", "23505", null)))
+        assertNull(policy.retryableSqlState(IllegalStateException()))
+    }
+
+    @Test
+    fun budgetStartsFull() {
+        val budget = RetryBudget(ratio = 0.2, maxTokens = 3)
+        assertEquals(3, budget.available())
+        repeat(3) { assertTrue(budget.withdraw()) }
+        assertFalse(budget.withdraw())
+        assertEquals(0, budget.available())
+    }
+
+    @Test
+    fun budgetRefillsWithRatioOfTransactions() {
+        val budget = RetryBudget(ratio = 0.2, maxTokens = 2)
+        repeat(2) { budget.withdraw() }
+        repeat(4) { budget.deposit() }
+        assertFalse(budget.withdraw())
+        // five transactions earn one retry
+        budget.deposit()
+        assertTrue(budget.withdraw())
+        assertFalse(budget.withdraw())
+    }
+
+    @Test
+    fun budgetIsCapped() {
+        val budget = RetryBudget(ratio = 1.0, maxTokens = 2)
+        repeat(10) { budget.deposit() }
+        assertEquals(2, budget.available())
+    }
+}
@@ -0,0 +1,60 @@
+package io.en4ble.pgaccess
+
+import io.en4ble.pgaccess.dto.PagingDTO
+import io.en4ble.pgaccess.util.RxDaoHelper
+import io.vertx.kotlin.coroutines.await
+import kotlinx.coroutines.runBlocking
+import org.jooq.SQLDialect
+import org.jooq.impl.DSL
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.testcontainers.junit.jupiter.Testcontainers
+
+/**
+ * Reads with the connection of an rx transaction must run in the transaction.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RxTransactionReadTest {
+    companion object {
+        lateinit var context: SingleDatabaseContext
+
+        @BeforeAll
+        @JvmStatic
+        fun setUp() {
+            context = TestDatabase.context()
+            runBlocking {
+                context.sqlClient().delegate.query("create table rx_read_item (id int primary key)").execute().await()
+            }
+        }
+
+        @AfterAll
+        @JvmStatic
+        fun tearDown() {
+            context.close().blockingAwait()
+        }
+    }
+
+    private val table = DSL.table("rx_read_item")
+    private val select = DSL.using(SQLDialect.POSTGRES).select(DSL.field("id")).from(table)
+
+    @Test
+    fun readSeesUncommittedInsert() {
+        val counts = context.rxInTransaction { connection ->
+            connection.query("insert into rx_read_item values (1)").rxExecute()
+                .flatMap { RxDaoHelper.read(select, table, null, connection, context) }
+                .map { it.size() }
+                // without order the page is ignored, the read must still use the connection
+                .flatMap { unpaged ->
+                    RxDaoHelper.read(select, table, PagingDTO(0), connection, context)
+                        .map { listOf(unpaged, it.size()) }
+                }
+        }.blockingGet()
+        // other connections would not see the row before the commit
+        assertEquals(listOf(1, 1), counts)
+        context.sqlClient().query("delete from rx_read_item").rxExecute().blockingGet()
+    }
+}
@@ -0,0 +1,101 @@
+package io.en4ble.pgaccess
+
+import io.vertx.kotlin.coroutines.await
+import io.vertx.sqlclient.SqlConnection
+import kotlinx.coroutines.runBlocking
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.testcontainers.junit.jupiter.Testcontainers
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SavepointTest {
+    companion object {
+        lateinit var context: SingleDatabaseContext
+
+        @BeforeAll
+        @JvmStatic
+        fun setUp() {
+            context = TestDatabase.context()
+            runBlocking {
+                context.sqlClient().delegate.query("create table savepoint_item (id int primary key)").execute().await()
+            }
+        }
+
+        @AfterAll
+        @JvmStatic
+        fun tearDown() {
+            context.close().blockingAwait()
+        }
+    }
+
+    @Test
+    fun failedBlockIsRolledBackToSavepoint() = runBlocking {
+        val (connection, transaction) = context.beginTx()
+        insert(connection, 1)
+        assertThrows(IllegalStateException::class.java) {
+            runBlocking {
+                context.withSavepoint(connection) {
+                    insert(connection, 2)
+                    throw IllegalStateException("skip")
+                }
+            }
+        }
+        // the transaction is still usable after the rollback to the savepoint
+        context.withSavepoint(connection) { insert(connection, 3) }
+        context.commitTx(connection, transaction)
+        assertEquals(listOf(1, 3), ids())
+        clear()
+    }
+
+    @Test
+    fun failedStatementIsRolledBackToSavepoint() = runBlocking {
+        val (connection, transaction) = context.beginTx()
+        insert(connection, 1)
+        assertThrows(Exception::class.java) {
+            // duplicate key aborts the transaction unless it is rolled back to the savepoint
+            runBlocking { context.withSavepoint(connection) { insert(connection, 1) } }
+        }
+        // names are per transaction, nested savepoints don't clash
+        context.withSavepoint(connection) {
+            context.withSavepoint(connection) { insert(connection, 2) }
+        }
+        context.commitTx(connection, transaction)
+        assertEquals(listOf(1, 2), ids())
+        clear()
+    }
+
+    @Test
+    fun rxFailedChainIsRolledBackToSavepoint() {
+        val ids = context.rxInTransaction { connection ->
+            connection.query("insert into savepoint_item values (1)").rxExecute()
+                .flatMap {
+                    context.rxInSavepoint(connection) {
+                        it.query("insert into savepoint_item values (1)").rxExecute()
+                    }.map { 0 }.onErrorReturnItem(1)
+                }
+                .flatMap { connection.query("select id from savepoint_item order by id").rxExecute() }
+                .map { rows -> rows.delegate.map { it.getInteger(0) } }
+        }.blockingGet()
+        assertEquals(listOf(1), ids)
+        runBlocking { clear() }
+    }
+
+    private suspend fun insert(connection: SqlConnection, id: Int) {
+        connection.query("insert into savepoint_item values ($id)").execute().await()
+    }
+
+    private suspend fun ids(): List<Int> {
+        return context.sqlClient().delegate.query("select id from savepoint_item order by id").execute().await()
+            .map { it.getInteger(0) }
+    }
+
+    private suspend fun clear() {
+        context.sqlClient().delegate.query("delete from savepoint_item").execute().await()
+    }
+}
@@ -0,0 +1,27 @@
+package io.en4ble.pgaccess
+
+import org.testcontainers.containers.PostgreSQLContainer
+
+/**
+ * The PostgreSQL container of the integration tests, started once for all tests (and removed by testcontainers
+ * when the tests are done). Tests that use it must be annotated with `@Testcontainers(disabledWithoutDocker = true)`.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+object TestDatabase {
+    private val postgres by lazy {
+        PostgreSQLContainer<Nothing>("postgres:13-alpine").apply { start() }
+    }
+
+    fun context(): SingleDatabaseContext {
+        return SingleDatabaseContext(
+            DatabaseConfig(
+                host = postgres.host,
+                database = postgres.databaseName,
+                port = postgres.firstMappedPort,
+                username = postgres.username,
+                password = postgres.password
+            )
+        )
+    }
+}
@@ -0,0 +1,124 @@
+package io.en4ble.pgaccess
+
+import io.vertx.kotlin.coroutines.await
+import io.vertx.pgclient.PgException
+import kotlinx.coroutines.runBlocking
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.testcontainers.junit.jupiter.Testcontainers
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionRetryTest {
+    companion object {
+        // raised by the database, like a real serialization failure
+        private const val SERIALIZATION_FAILURE =
+            "do \$\$ begin raise exception 'conflict' using errcode = '40001'; end \$\$"
+
+        lateinit var context: SingleDatabaseContext
+
+        @BeforeAll
+        @JvmStatic
+        fun setUp() {
+            context = TestDatabase.context()
+            runBlocking {
+                context.sqlClient().delegate.query("create table retry_item (id int primary key)").execute().await()
+            }
+        }
+
+        @AfterAll
+        @JvmStatic
+        fun tearDown() {
+            context.close().blockingAwait()
+        }
+    }
+
+    @AfterEach
+    fun clear() {
+        context.sqlClient().query("delete from retry_item").rxExecute().blockingGet()
+    }
+
+    @Test
+    fun retriesSerializationFailure() = runBlocking {
+        val policy = RetryPolicy(initialBackoffMillis = 1)
+        val attempts = AtomicInteger()
+        val result = context.withTransaction(TransactionOptions(IsolationLevel.SERIALIZABLE, retry = policy)) {
+            val connection = coroutineContext[TransactionContext]!!.connection
+            val attempt = attempts.incrementAndGet()
+            connection.query("insert into retry_item values ($attempt)").execute().await()
+            if (attempt == 1) {
+                connection.query(SERIALIZATION_FAILURE).execute().await()
+            }
+            attempt
+        }
+        assertEquals(2, result)
+        assertEquals(1, policy.retries())
+        // the first attempt was rolled back
+        assertEquals(listOf(2), ids())
+    }
+
+    @Test
+    fun givesUpAfterMaxAttempts() = runBlocking {
+        val policy = RetryPolicy(maxAttempts = 3, initialBackoffMillis = 1)
+        val attempts = AtomicInteger()
+        val error = assertThrows(PgException::class.java) {
+            runBlocking {
+                context.withTransaction(TransactionOptions(retry = policy)) {
+                    attempts.incrementAndGet()
+                    coroutineContext[TransactionContext]!!.connection.query(SERIALIZATION_FAILURE).execute().await()
+                }
+            }
+        }
+        assertEquals("40001", error.code)
+        assertEquals(3, attempts.get())
+        assertEquals(2, policy.retries())
+        assertEquals(1, policy.rejected())
+    }
+
+    @Test
+    fun doesNotRetryOtherErrors() = runBlocking {
+        val policy = RetryPolicy(initialBackoffMillis = 1)
+        val attempts = AtomicInteger()
+        assertThrows(PgException::class.java) {
+            runBlocking {
+                context.withTransaction(TransactionOptions(retry = policy)) {
+                    attempts.incrementAndGet()
+                    val connection = coroutineContext[TransactionContext]!!.connection
+                    connection.query("insert into retry_item values (1), (1)").execute().await()
+                }
+            }
+        }
+        assertEquals(1, attempts.get())
+        assertEquals(0, policy.retries())
+    }
+
+    @Test
+    fun rxRetriesSerializationFailure() {
+        val policy = RetryPolicy(initialBackoffMillis = 1)
+        val attempts = AtomicInteger()
+        val result = context.rxInTransaction(TransactionOptions(retry = policy)) { connection ->
+            val attempt = attempts.incrementAndGet()
+            val insert = connection.query("insert into retry_item values ($attempt)").rxExecute()
+            if (attempt == 1) {
+                insert.flatMap { connection.query(SERIALIZATION_FAILURE).rxExecute() }.map { attempt }
+            } else {
+                insert.map { attempt }
+            }
+        }.blockingGet()
+        assertEquals(2, result)
+        assertEquals(1, policy.retries())
+        assertEquals(listOf(2), runBlocking { ids() })
+    }
+
+    private suspend fun ids(): List<Int> {
+        return context.sqlClient().delegate.query("select id from retry_item order by id").execute().await()
+            .map { it.getInteger(0) }
+    }
+}
@@ -0,0 +1,127 @@
+package io.en4ble.pgaccess.cache
+
+import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.RowSet
+import io.vertx.sqlclient.Tuple
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class ResultCacheTest {
+    private val conferences = CachePolicy(60_000, setOf("public.conference"))
+    private val speakers = CachePolicy(60_000, setOf("public.conference", "public.speaker"))
+
+    @Test
+    fun cachesResult() {
+        val cache = ResultCache(10, 100)
+        val result = rowSet(2)
+        cache.put(SQL, Tuple.of(1), result, conferences, cache.token())
+        assertSame(result, cache.get(SQL, Tuple.of(1)))
+        assertNull(cache.get(SQL, Tuple.of(2)))
+        assertEquals(1, cache.stats().hits)
+        assertEquals(1, cache.stats().misses)
+    }
+
+    @Test
+    fun dropsResultLoadedAcrossWriteOfDependentTable() {
+        val cache = ResultCache(10, 100)
+        val token = cache.token()
+        // written while the select was running, the result may not contain the write
+        cache.invalidateTable("public.speaker")
+        cache.put(SQL, null, rowSet(1), speakers, token)
+        assertNull(cache.get(SQL, null))
+        // loaded after the write
+        cache.put(SQL, null, rowSet(1), speakers, cache.token())
+        assertNotNull(cache.get(SQL, null))
+    }
+
+    @Test
+    fun writeOfUnrelatedTableDoesNotBlockCaching() {
+        val cache = ResultCache(10, 100)
+        val token = cache.token()
+        cache.invalidateTable("public.speaker")
+        cache.invalidateTable("other.conference")
+        cache.put(SQL, null, rowSet(1), conferences, token)
+        assertNotNull(cache.get(SQL, null))
+    }
+
+    @Test
+    fun unknownWriteBlocksCaching() {
+        val cache = ResultCache(10, 100)
+        val token = cache.token()
+        cache.invalidateTable(null)
+        cache.put(SQL, null, rowSet(1), conferences, token)
+        assertNull(cache.get(SQL, null))
+    }
+
+    @Test
+    fun writeDropsDependentResults() {
+        val cache = ResultCache(10, 100)
+        cache.put(SQL, Tuple.of(1), rowSet(1), conferences, cache.token())
+        cache.put(SQL, Tuple.of(2), rowSet(3), speakers, cache.token())
+        cache.invalidateTable("public.speaker")
+        assertNotNull(cache.get(SQL, Tuple.of(1)))
+        assertNull(cache.get(SQL, Tuple.of(2)))
+        assertEquals(1, cache.stats().rows)
+        cache.invalidateAll()
+        assertNull(cache.get(SQL, Tuple.of(1)))
+        assertEquals(0, cache.stats().rows)
+    }
+
+    @Test
+    fun evictsLeastRecentlyUsedBeyondMaxRows() {
+        val cache = ResultCache(10, 5)
+        cache.put(SQL, Tuple.of(1), rowSet(2), conferences, cache.token())
+        cache.put(SQL, Tuple.of(2), rowSet(2), conferences, cache.token())
+        // used, so the second result is the eldest
+        cache.get(SQL, Tuple.of(1))
+        cache.put(SQL, Tuple.of(3), rowSet(3), conferences, cache.token())
+        assertNull(cache.get(SQL, Tuple.of(2)))
+        assertNotNull(cache.get(SQL, Tuple.of(1)))
+        assertNotNull(cache.get(SQL, Tuple.of(3)))
+        assertEquals(5, cache.stats().rows)
+        assertEquals(1, cache.stats().evictions)
+        // results larger than the cache are not cached
+        cache.put(SQL, Tuple.of(4), rowSet(6), conferences, cache.token())
+        assertNull(cache.get(SQL, Tuple.of(4)))
+        assertEquals(5, cache.stats().rows)
+    }
+
+    @Test
+    fun evictsBeyondMaxEntries() {
+        val cache = ResultCache(2, 100)
+        (1..3).forEach { cache.put(SQL, Tuple.of(it), rowSet(1), conferences, cache.token()) }
+        assertNull(cache.get(SQL, Tuple.of(1)))
+        assertEquals(2, cache.stats().size)
+        assertEquals(2, cache.stats().rows)
+    }
+
+    @Test
+    fun expiresResults() {
+        val cache = ResultCache(10, 100)
+        cache.put(SQL, null, rowSet(1), CachePolicy(-1, setOf("public.conference")), cache.token())
+        assertNull(cache.get(SQL, null))
+        cache.put(SQL, null, rowSet(1), CachePolicy(1, setOf("public.conference")), cache.token())
+        Thread.sleep(5)
+        assertNull(cache.get(SQL, null))
+        assertEquals(1, cache.stats().expirations)
+    }
+
+    // a result with the given number of rows
+    @Suppress("UNCHECKED_CAST")
+    private fun rowSet(size: Int): RowSet<Row> {
+        return Proxy.newProxyInstance(javaClass.classLoader, arrayOf(RowSet::class.java)) { _, method, _ ->
+            if (method.name == "size") size else null
+        } as RowSet<Row>
+    }
+
+    companion object {
+        private const val SQL = "select * from conference where id = \$1"
+    }
+}
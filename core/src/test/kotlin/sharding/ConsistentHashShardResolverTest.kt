@@ -0,0 +1,64 @@
+package io.en4ble.pgaccess.sharding
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.*
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class ConsistentHashShardResolverTest {
+    private val keys: List<Any> = (0 until 10_000).map { it.toLong() } +
+        (0 until 10_000).map { UUID(it.toLong(), it * 31L) } +
+        (0 until 10_000).map { "key-$it" }
+
+    @Test
+    fun resolvesStableShards() {
+        val a = ConsistentHashShardResolver(listOf("s1", "s2", "s3"))
+        val b = ConsistentHashShardResolver(listOf("s3", "s1", "s2"))
+        assertEquals(keys.map { a.shard(it) }, keys.map { b.shard(it) })
+    }
+
+    @Test
+    fun spreadsKeysOverShards() {
+        val resolver = ConsistentHashShardResolver(listOf("s1", "s2", "s3", "s4"))
+        val counts = keys.groupingBy { resolver.shard(it) }.eachCount()
+        assertEquals(setOf("s1", "s2", "s3", "s4"), counts.keys)
+        // a quarter each, with some imbalance of the virtual nodes
+        counts.values.forEach { assertTrue(it > keys.size / 8 && it < keys.size * 3 / 8, counts.toString()) }
+    }
+
+    @Test
+    fun addShardOnlyMovesKeysToNewShard() {
+        val resolver = ConsistentHashShardResolver(listOf("s1", "s2", "s3", "s4"))
+        val before = keys.map { resolver.shard(it) }
+        resolver.addShard("s5")
+        val after = keys.map { resolver.shard(it) }
+        var moved = 0
+        for (i in keys.indices) {
+            if (before[i] != after[i]) {
+                assertEquals("s5", after[i], "key ${keys[i]} moved from ${before[i]} to ${after[i]}")
+                moved++
+            }
+        }
+        // about 1/5 of the keys belong to the new shard
+        assertTrue(moved > keys.size / 10 && moved < keys.size * 3 / 10, "moved $moved of ${keys.size}")
+    }
+
+    @Test
+    fun removeShardRestoresPreviousShards() {
+        val resolver = ConsistentHashShardResolver(listOf("s1", "s2", "s3"))
+        val before = keys.map { resolver.shard(it) }
+        resolver.addShard("s4")
+        resolver.removeShard("s4")
+        assertEquals(before, keys.map { resolver.shard(it) })
+        assertEquals(setOf("s1", "s2", "s3"), resolver.shards())
+    }
+
+    @Test
+    fun failsWithoutShards() {
+        assertThrows(IllegalStateException::class.java) { ConsistentHashShardResolver(emptyList()).shard(1L) }
+    }
+}
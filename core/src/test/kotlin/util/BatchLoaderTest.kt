@@ -0,0 +1,190 @@
+package io.en4ble.pgaccess.util
+
+import io.en4ble.pgaccess.DatabaseConfig
+import io.en4ble.pgaccess.SingleDatabaseContext
+import io.en4ble.pgaccess.TransactionContext
+import io.en4ble.pgaccess.TransactionOptions
+import io.vertx.core.CompositeFuture
+import io.vertx.core.Future
+import io.vertx.core.Vertx
+import io.vertx.sqlclient.SqlConnection
+import io.vertx.sqlclient.Transaction
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class BatchLoaderTest {
+    companion object {
+        private val vertx = Vertx.vertx()
+
+        @AfterAll
+        @JvmStatic
+        fun tearDown() {
+            vertx.close()
+        }
+    }
+
+    // the batches passed to the loader
+    private val batches = ArrayList<List<Int>>()
+
+    // loads the keys below 100 as their string value
+    private fun loader(windowMs: Long = 0, maxSize: Int = 100) = BatchLoader<Int, String>(windowMs, maxSize) { keys ->
+        synchronized(batches) { batches.add(keys) }
+        Future.succeededFuture(keys.filter { it < 100 }.associateWith { "v$it" })
+    }
+
+    @Test
+    fun batchesKeysOfOneTask() {
+        val loader = loader()
+        val values = onContext { all(loader.load(1), loader.load(2), loader.load(3)) }
+        assertEquals(listOf("v1", "v2", "v3"), values)
+        assertEquals(listOf(listOf(1, 2, 3)), batches)
+    }
+
+    @Test
+    fun deduplicatesKeys() {
+        val loader = loader()
+        val values = onContext { all(loader.load(1), loader.load(2), loader.load(1)) }
+        assertEquals(listOf("v1", "v2", "v1"), values)
+        assertEquals(listOf(listOf(1, 2)), batches)
+    }
+
+    @Test
+    fun loadsFullBatchImmediately() {
+        val loader = loader(maxSize = 2)
+        val values = onContext { all(loader.load(1), loader.load(2), loader.load(3)) }
+        assertEquals(listOf("v1", "v2", "v3"), values)
+        assertEquals(listOf(listOf(1, 2), listOf(3)), batches)
+    }
+
+    @Test
+    fun batchesKeysWithinWindow() {
+        val loader = loader(windowMs = 50)
+        val values = onContext {
+            val first = loader.load(1)
+            // a later task within the window
+            val second = Future.future<String?> { promise ->
+                vertx.runOnContext { loader.load(2).onComplete(promise) }
+            }
+            all(first, second)
+        }
+        assertEquals(listOf("v1", "v2"), values)
+        assertEquals(listOf(listOf(1, 2)), batches)
+    }
+
+    @Test
+    fun missingKeysAreNull() {
+        val loader = loader()
+        val values = onContext { all(loader.load(1), loader.load(100)) }
+        assertEquals(listOf("v1", null), values)
+    }
+
+    @Test
+    fun failureOfBatchFailsEveryKey() {
+        val error = IllegalStateException("failed")
+        for (loader in listOf(
+            BatchLoader<Int, String>(0, 100) { Future.failedFuture(error) },
+            BatchLoader<Int, String>(0, 100) { throw error }
+        )) {
+            val causes = onContext {
+                val futures = listOf(loader.load(1), loader.load(2))
+                Future.future<List<Throwable?>> { promise ->
+                    CompositeFuture.join(futures.map { it as Future<*> })
+                        .onComplete { promise.complete(futures.map { it.cause() }) }
+                }
+            }
+            assertEquals(listOf(error, error), causes)
+        }
+    }
+
+    @Test
+    fun failedBatchDoesNotAffectNextBatch() {
+        var fail = true
+        val loader = BatchLoader<Int, String>(0, 100) { keys ->
+            if (fail) {
+                fail = false
+                Future.failedFuture(IllegalStateException("failed"))
+            } else {
+                Future.succeededFuture(keys.associateWith { "v$it" })
+            }
+        }
+        val error = failure { onContext { loader.load(1) } }
+        assertTrue(error is IllegalStateException)
+        assertEquals("v1", onContext { loader.load(1) })
+    }
+
+    @Test
+    fun loadsEachKeyOutsideOfContext() {
+        val loader = loader()
+        assertEquals("v1", loader.load(1).result())
+        assertEquals("v2", loader.load(2).result())
+        assertEquals(listOf(listOf(1), listOf(2)), batches)
+    }
+
+    @Test
+    fun loadsEachKeyWithoutBatchSize() {
+        val loader = loader(maxSize = 1)
+        onContext { all(loader.load(1), loader.load(2)) }
+        assertEquals(listOf(listOf(1), listOf(2)), batches)
+    }
+
+    @Test
+    fun lookupsInTransactionBypassLoader() = runBlocking {
+        // the DAOs only batch lookups if there is no transaction connection for the context (see AsyncDaoBase.lookup)
+        val context = SingleDatabaseContext(DatabaseConfig())
+        val other = SingleDatabaseContext(DatabaseConfig())
+        try {
+            assertNull(TransactionContext.connection(context))
+            val connection = proxy(SqlConnection::class.java)
+            val transaction = proxy(Transaction::class.java)
+            withContext(TransactionContext(context, connection, transaction, TransactionOptions())) {
+                assertSame(connection, TransactionContext.connection(context))
+                // lookups of other databases are still batched
+                assertNull(TransactionContext.connection(other))
+            }
+        } finally {
+            context.close().blockingAwait()
+            other.close().blockingAwait()
+        }
+    }
+
+    private fun all(vararg futures: Future<String?>): Future<List<String?>> {
+        return CompositeFuture.all(futures.map { it as Future<*> }).map { futures.map { it.result() } }
+    }
+
+    private fun <T> onContext(block: () -> Future<T>): T {
+        val result = CompletableFuture<T>()
+        vertx.runOnContext {
+            block().onComplete {
+                if (it.succeeded()) result.complete(it.result()) else result.completeExceptionally(it.cause())
+            }
+        }
+        return result.get(5, TimeUnit.SECONDS)
+    }
+
+    private fun failure(block: () -> Unit): Throwable {
+        try {
+            block()
+        } catch (e: ExecutionException) {
+            return e.cause!!
+        }
+        throw AssertionError("expected an exception")
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <T> proxy(type: Class<T>): T {
+        return Proxy.newProxyInstance(javaClass.classLoader, arrayOf(type)) { _, _, _ -> null } as T
+    }
+}
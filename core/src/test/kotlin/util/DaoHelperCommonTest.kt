@@ -0,0 +1,173 @@
+package io.en4ble.pgaccess.util
+
+import io.en4ble.pgaccess.DatabaseConfig
+import io.en4ble.pgaccess.SingleDatabaseContext
+import io.vertx.pgclient.data.Point
+import io.vertx.sqlclient.SqlClient
+import io.vertx.sqlclient.SqlConnection
+import io.vertx.sqlclient.Tuple
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+import java.math.BigDecimal
+import java.time.LocalDate
+import java.util.*
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class DaoHelperCommonTest {
+    @Test
+    fun loggingReplacesTwoDigitPlaceholders() {
+        val params = Tuple.tuple()
+        (1..11).forEach { params.addValue(it * 100) }
+        // $1 must not be replaced inside $10 and $11
+        val sql = "select * from t where a = \$1 and b = \$10 and c = \$11 and d = \$2"
+        assertEquals(
+            "select * from t where a = 100 and b = 1000 and c = 1100 and d = 200",
+            DaoHelperCommon.getQueryForLogging(sql, params)
+        )
+    }
+
+    @Test
+    fun loggingKeepsPlaceholdersInLiterals() {
+        val sql = "select '\$1', \$1 from t where x = '\$2 and \$1' and y = \$2"
+        assertEquals(
+            "select '\$1', 'a' from t where x = '\$2 and \$1' and y = 'b'",
+            DaoHelperCommon.getQueryForLogging(sql, Tuple.of("a", "b"))
+        )
+    }
+
+    @Test
+    fun loggingKeepsUnknownPlaceholders() {
+        assertEquals("select 1, \$3", DaoHelperCommon.getQueryForLogging("select \$1, \$3", Tuple.of(1, 2)))
+        assertEquals("select \$1", DaoHelperCommon.getQueryForLogging("select \$1", Tuple.tuple()))
+    }
+
+    @Test
+    fun inlineDoublesQuotesOfStrings() {
+        assertEquals("select 'it''s', ''''''", inline("select \$1, \$2", "it's", "''"))
+        assertEquals("select 'x'';drop table t;--'", inline("select \$1", "x';drop table t;--"))
+    }
+
+    @Test
+    fun inlineParenthesizesNegativeNumbers() {
+        // "1 --5" would comment out the rest of the statement
+        assertEquals(
+            "select 1 -(-5), 1 -(-6), 1 -(-1.5), 1 -7",
+            inline("select 1 -\$1, 1 -\$2, 1 -\$3, 1 -\$4", -5, -6L, BigDecimal("-1.5"), 7)
+        )
+        assertEquals("select 1 -'-1.5'::float8", inline("select 1 -\$1", -1.5))
+    }
+
+    @Test
+    fun inlineTypesLiterals() {
+        val uuid = UUID.randomUUID()
+        assertEquals(
+            "select NULL, TRUE, '$uuid'::uuid, '2021-07-01'::date",
+            inline("select \$1, \$2, \$3, \$4", null, true, uuid, LocalDate.of(2021, 7, 1))
+        )
+    }
+
+    @Test
+    fun inlineEscapesArrayElements() {
+        val strings = arrayOf("a\"b", "c\\d", null, "it's")
+        assertEquals("select '{\"a\\\"b\",\"c\\\\d\",NULL,\"it''s\"}'", inline("select \$1", strings))
+        assertEquals("select '{\"1\",\"-2\"}'::int4[]", inline("select \$1", arrayOf(1, -2)))
+        // the element type of Object[] (e.g. unnest columns) is unknown, the literal is untyped like a bound string
+        val uuid = UUID.randomUUID()
+        assertEquals("select '{\"$uuid\",NULL}'", inline("select \$1", arrayOf<Any?>(uuid, null)))
+    }
+
+    @Test
+    fun inlineKeepsPlaceholdersInLiterals() {
+        assertEquals("select '\$1', 'a'", inline("select '\$1', \$1", "a"))
+    }
+
+    @Test
+    fun inlineRejectsTypesWithoutLiteral() {
+        // the statement has to be prepared then
+        assertNull(inline("select \$1", Point(1.0, 2.0)))
+        assertNull(inline("select \$1", arrayOf<Any?>(Point(1.0, 2.0))))
+        assertNull(inline("select \$1", intArrayOf(1)))
+        assertNull(inline("select \$1, \$2", "a", Any()))
+    }
+
+    @Test
+    fun selectsAreCacheable() {
+        assertTrue(DaoHelperCommon.isCacheable("select * from t where id = \$1"))
+        assertTrue(DaoHelperCommon.isCacheable("  SELECT count(*) FROM t"))
+        // words in identifiers don't count
+        assertTrue(DaoHelperCommon.isCacheable("select random_value, \"update\" from t"))
+    }
+
+    @Test
+    fun lockingSelectsAreNotCacheable() {
+        assertFalse(DaoHelperCommon.isCacheable("select * from t where id = \$1 for update"))
+        assertFalse(DaoHelperCommon.isCacheable("select * from t for no key update skip locked"))
+        assertFalse(DaoHelperCommon.isCacheable("select * from t FOR SHARE"))
+        assertFalse(DaoHelperCommon.isCacheable("select * from t for key share nowait"))
+    }
+
+    @Test
+    fun volatileSelectsAreNotCacheable() {
+        assertFalse(DaoHelperCommon.isCacheable("select nextval('t_id_seq')"))
+        assertFalse(DaoHelperCommon.isCacheable("select * from t order by random() limit 1"))
+        assertFalse(DaoHelperCommon.isCacheable("select gen_random_uuid()"))
+        assertFalse(DaoHelperCommon.isCacheable("select clock_timestamp()"))
+        assertFalse(DaoHelperCommon.isCacheable("select pg_try_advisory_lock(1)"))
+        assertFalse(DaoHelperCommon.isCacheable("select pg_notify('c', 'p')"))
+    }
+
+    @Test
+    fun writesAreNotCacheable() {
+        assertFalse(DaoHelperCommon.isCacheable("insert into t values (1) returning *"))
+        assertFalse(DaoHelperCommon.isCacheable("with d as (delete from t returning *) select * from d"))
+        assertFalse(DaoHelperCommon.isCacheable("update t set a = 1"))
+    }
+
+    @Test
+    fun onlyPooledSelectsAreSingleFlight() {
+        val context = SingleDatabaseContext(DatabaseConfig(singleFlight = true))
+        try {
+            val pool = context.sqlClient().delegate
+            val select = BoundSql("select * from t where id = \$1", Tuple.of(1))
+            assertTrue(DaoHelperCommon.isSingleFlight(select, false, pool, context))
+            // the statement of a transaction must see the writes of the transaction
+            assertFalse(DaoHelperCommon.isSingleFlight(select, false, connection(), context))
+            assertFalse(DaoHelperCommon.isSingleFlight(select, true, pool, context))
+            val locking = BoundSql("select * from t where id = \$1 for update", Tuple.of(1))
+            assertFalse(DaoHelperCommon.isSingleFlight(locking, false, pool, context))
+            val volatile = BoundSql("select nextval('t_id_seq')", null)
+            assertFalse(DaoHelperCommon.isSingleFlight(volatile, false, pool, context))
+        } finally {
+            context.close().blockingAwait()
+        }
+    }
+
+    @Test
+    fun singleFlightIsOptIn() {
+        val context = SingleDatabaseContext(DatabaseConfig())
+        try {
+            val select = BoundSql("select * from t", null)
+            assertFalse(DaoHelperCommon.isSingleFlight(select, false, context.sqlClient().delegate, context))
+        } finally {
+            context.close().blockingAwait()
+        }
+    }
+
+    private fun inline(sql: String, vararg params: Any?): String? {
+        val tuple = Tuple.tuple()
+        params.forEach { tuple.addValue(it) }
+        return DaoHelperCommon.inlineParams(sql, tuple)
+    }
+
+    // a connection of a transaction (not pooled), never used to run statements
+    private fun connection(): SqlClient {
+        return Proxy.newProxyInstance(javaClass.classLoader, arrayOf(SqlConnection::class.java)) { _, _, _ -> null }
+            as SqlClient
+    }
+}
@@ -0,0 +1,42 @@
+package io.en4ble.pgaccess.util
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class KWayMergeTest {
+    private val ascending = Comparator.naturalOrder<Int>()
+
+    @Test
+    fun mergesSortedLists() {
+        val lists = listOf(listOf(1, 4, 7), listOf(2, 5, 8), listOf(3, 6, 9))
+        assertEquals((1..9).toList(), KWayMerge.merge(lists, ascending))
+    }
+
+    @Test
+    fun keepsDuplicates() {
+        val lists = listOf(listOf(1, 2, 2), listOf(2, 3))
+        assertEquals(listOf(1, 2, 2, 2, 3), KWayMerge.merge(lists, ascending))
+    }
+
+    @Test
+    fun stopsAtLimit() {
+        val lists = listOf(listOf(1, 3, 5), listOf(2, 4, 6))
+        assertEquals(listOf(1, 2, 3, 4), KWayMerge.merge(lists, ascending, 4))
+        assertEquals(emptyList<Int>(), KWayMerge.merge(lists, ascending, 0))
+    }
+
+    @Test
+    fun usesOrderOfComparator() {
+        val lists = listOf(listOf(9, 3), listOf(8, 7, 1))
+        assertEquals(listOf(9, 8, 7, 3, 1), KWayMerge.merge(lists, ascending.reversed()))
+    }
+
+    @Test
+    fun handlesEmptyLists() {
+        assertEquals(emptyList<Int>(), KWayMerge.merge(emptyList(), ascending))
+        assertEquals(listOf(1, 2), KWayMerge.merge(listOf(emptyList(), listOf(1, 2), emptyList()), ascending))
+    }
+}
@@ -0,0 +1,87 @@
+package io.en4ble.pgaccess.util
+
+import io.vertx.core.Future
+import io.vertx.core.Promise
+import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.RowSet
+import io.vertx.sqlclient.Tuple
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class SingleFlightTest {
+    private val singleFlight = SingleFlight()
+    private val promises = ArrayList<Promise<RowSet<Row>>>()
+
+    @Test
+    fun sharesRunningExecution() {
+        val first = singleFlight.execute(SQL, Tuple.of(1), ::send)
+        val second = singleFlight.execute(SQL, Tuple.of(1), ::send)
+        assertEquals(1, promises.size)
+        val result = rowSet()
+        promises[0].complete(result)
+        assertSame(result, first.result())
+        assertSame(result, second.result())
+        assertEquals(1, singleFlight.executions())
+        assertEquals(1, singleFlight.saved())
+        assertEquals(0, singleFlight.inFlight())
+    }
+
+    @Test
+    fun comparesArrayParametersByContent() {
+        singleFlight.execute(SQL, Tuple.of(arrayOf(1, 2)), ::send)
+        singleFlight.execute(SQL, Tuple.of(arrayOf(1, 2)), ::send)
+        assertEquals(1, promises.size)
+    }
+
+    @Test
+    fun executesDifferentStatements() {
+        singleFlight.execute(SQL, Tuple.of(1), ::send)
+        singleFlight.execute(SQL, Tuple.of(2), ::send)
+        singleFlight.execute("select 2", null, ::send)
+        assertEquals(3, promises.size)
+        assertEquals(0, singleFlight.saved())
+    }
+
+    @Test
+    fun executesAgainAfterCompletion() {
+        singleFlight.execute(SQL, Tuple.of(1), ::send)
+        promises[0].complete(rowSet())
+        singleFlight.execute(SQL, Tuple.of(1), ::send)
+        assertEquals(2, promises.size)
+    }
+
+    @Test
+    fun sharesFailures() {
+        val first = singleFlight.execute(SQL, Tuple.of(1), ::send)
+        val second = singleFlight.execute(SQL, Tuple.of(1), ::send)
+        val error = IllegalStateException("failed")
+        promises[0].fail(error)
+        assertSame(error, first.cause())
+        assertSame(error, second.cause())
+        assertEquals(0, singleFlight.inFlight())
+
+        val thrown = singleFlight.execute(SQL, Tuple.of(1)) { throw error }
+        assertTrue(thrown.failed())
+        assertEquals(0, singleFlight.inFlight())
+    }
+
+    private fun send(): Future<RowSet<Row>> {
+        return Promise.promise<RowSet<Row>>().also { promises.add(it) }.future()
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun rowSet(): RowSet<Row> {
+        return Proxy.newProxyInstance(javaClass.classLoader, arrayOf(RowSet::class.java)) { _, _, _ -> null }
+            as RowSet<Row>
+    }
+
+    companion object {
+        private const val SQL = "select * from t where id = \$1"
+    }
+}
@@ -0,0 +1,79 @@
+package io.en4ble.pgaccess.util
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+/**
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class TableStatementsTest {
+    private val columns = arrayOf("\"id\"", "\"name\"", "\"tags\"")
+    private val unnest = TableStatements("\"public\".\"item\"", columns, intArrayOf(0), arrayOf("int4", "text", "text"))
+    // array columns can't be bound to unnest
+    private val noUnnest = TableStatements("\"public\".\"item\"", columns, intArrayOf(0))
+
+    @Test
+    fun insertAllUsesUnnest() {
+        val statement = unnest.insertAll(listOf(row(1, "a", null), row(2, null, null)))
+        assertEquals(
+            "insert into \"public\".\"item\" (\"id\", \"name\") select u.c0, u.c1 from unnest(\$1::int4[], " +
+                "\$2::text[]) as u(c0, c1)",
+            statement.sql
+        )
+        assertEquals(1, statement.params.size)
+        assertEquals(listOf(0), statement.rows)
+    }
+
+    @Test
+    fun insertAllFallsBackToBatchForArrayColumns() {
+        val tags = arrayOf("x", "y")
+        val statement = noUnnest.insertAll(listOf(row(1, "a", null), row(2, null, tags)), returning = true)
+        assertEquals(
+            "insert into \"public\".\"item\" (\"id\", \"name\", \"tags\") values (\$1, \$2, \$3)" +
+                " returning \"id\", \"name\", \"tags\"",
+            statement.sql
+        )
+        assertEquals(listOf(0, 1), statement.rows)
+        // the included columns are bound for every row, null where the row has no value (like unnest)
+        assertEquals(3, statement.params[0].size())
+        assertNull(statement.params[0].getValue(2))
+        assertNull(statement.params[1].getValue(1))
+        assertTrue(statement.params[1].getValue(2) === tags)
+    }
+
+    @Test
+    fun upsertUpdatesAllIncludedColumns() {
+        val rows = listOf(row(1, "a", null), row(2, null, arrayOf("x")))
+        for (table in listOf(unnest, noUnnest)) {
+            val sql = table.insertAll(rows, upsert = true).sql
+            // "name" is included by the first row, so the second row sets it to NULL
+            val conflict = " on conflict (\"id\") do update set \"name\" = excluded.\"name\", " +
+                "\"tags\" = excluded.\"tags\""
+            assertTrue(sql.endsWith(conflict), sql)
+        }
+    }
+
+    @Test
+    fun upsertKeepsLastRowPerKey() {
+        val rows = listOf(row(1, "a", null), row(2, "b", null), row(1, "c", null), row(null, "d", null))
+        val batch = noUnnest.insertAll(rows, upsert = true)
+        assertEquals(3, batch.params.size)
+        assertEquals(listOf("b", "c", "d"), batch.params.map { it.getValue(1) })
+
+        val params = unnest.insertUnnest(rows, upsert = true).params!!
+        assertEquals(listOf(2, 1, null), (params.getValue(0) as Array<*>).toList())
+        assertEquals(listOf("b", "c", "d"), (params.getValue(1) as Array<*>).toList())
+    }
+
+    @Test
+    fun insertKeepsDuplicateKeys() {
+        val rows = listOf(row(1, "a", null), row(1, "b", null))
+        assertEquals(2, noUnnest.insertAll(rows).params.size)
+        assertFalse(unnest.insertAll(rows).sql.contains("on conflict"))
+    }
+
+    private fun row(vararg values: Any?): Array<Any?> = arrayOf(*values)
+}
@@ -0,0 +1,88 @@
+package io.en4ble.examples.benchmarks
+
+import io.en4ble.examples.converters.ConferenceStateEnumConverter
+import io.en4ble.examples.enums.ConferenceState
+import io.en4ble.examples.jooq.tables.Conference.CONFERENCE
+import io.en4ble.examples.jooq.tables.Example.EXAMPLE
+import io.en4ble.pgaccess.dto.CircleDTO
+import io.en4ble.pgaccess.dto.PointDTO
+import io.en4ble.pgaccess.dto.PolygonDTO
+import io.en4ble.pgaccess.util.JooqHelper
+import io.vertx.pgclient.data.Circle
+import io.vertx.pgclient.data.Point
+import io.vertx.pgclient.data.Polygon
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Conversions of single values: enums (TypedEnumConverter) and geometric types between the DTOs and the
+ * vert.x types (JooqHelper), in both directions.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ConversionBenchmark {
+    private val converter = ConferenceStateEnumConverter()
+
+    private val point = Point(13.4, 52.5)
+    private val polygon = Polygon((0 until 16).map { Point(it.toDouble(), (it * it).toDouble()) })
+    private val polygons = arrayOf(polygon, polygon, polygon, polygon)
+    private val circle = Circle(point, 10.0)
+
+    private val pointDto = PointDTO(13.4, 52.5)
+    private val polygonDto = PolygonDTO((0 until 16).map { PointDTO(it.toDouble(), (it * it).toDouble()) })
+    private val polygonDtos = arrayOf(polygonDto, polygonDto, polygonDto, polygonDto)
+    private val circleDto = CircleDTO(pointDto, 10.0)
+
+    @Benchmark
+    fun enumFromDb(): ConferenceState? {
+        return converter.from("A")
+    }
+
+    @Benchmark
+    fun enumToDb(): Any? {
+        return JooqHelper.dbValue(CONFERENCE.STATE, ConferenceState.ACTIVE)
+    }
+
+    @Benchmark
+    fun pointFromDb(): PointDTO? {
+        return JooqHelper.getPointDTO(point)
+    }
+
+    @Benchmark
+    fun polygonFromDb(): PolygonDTO? {
+        return JooqHelper.getPolygonDTO(polygon)
+    }
+
+    @Benchmark
+    fun polygonArrayFromDb(): Array<PolygonDTO>? {
+        return JooqHelper.getPolygonDTOs(polygons)
+    }
+
+    @Benchmark
+    fun circleFromDb(): CircleDTO? {
+        return JooqHelper.getCircleDTO(circle)
+    }
+
+    @Benchmark
+    fun pointToDb(): Any? {
+        return JooqHelper.dbValue(EXAMPLE.POINT, pointDto)
+    }
+
+    @Benchmark
+    fun polygonToDb(): Any? {
+        return JooqHelper.dbValue(EXAMPLE.POLYGON, polygonDto)
+    }
+
+    @Benchmark
+    fun polygonArrayToDb(): Any? {
+        return JooqHelper.dbValue(EXAMPLE.POLYGON_ARRAY, polygonDtos)
+    }
+
+    @Benchmark
+    fun circleToDb(): Any? {
+        return JooqHelper.dbValue(EXAMPLE.CIRCLE, circleDto)
+    }
+}
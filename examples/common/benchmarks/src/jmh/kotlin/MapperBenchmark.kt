@@ -0,0 +1,53 @@
+package io.en4ble.examples.benchmarks
+
+import io.en4ble.examples.jooq.tables.mappers.ConferenceDtoMapper
+import io.en4ble.examples.jooq.tables.mappers.ExampleDtoMapper
+import io.en4ble.examples.jooq.tables.pojos.ConferenceDto
+import io.en4ble.examples.jooq.tables.pojos.ExampleDto
+import io.vertx.sqlclient.Row
+import org.jooq.Field
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Mapping of rows to DTOs (generated toDto) and of DTOs to the values of inserts and updates (getValueMap).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class MapperBenchmark {
+    private lateinit var exampleRow: Row
+    private lateinit var conferenceRow: Row
+    private lateinit var example: ExampleDto
+    private lateinit var conference: ConferenceDto
+
+    @Setup
+    fun setup() {
+        exampleRow = SyntheticRows.example()
+        conferenceRow = SyntheticRows.conference()
+        example = ExampleDtoMapper.map(exampleRow)
+        conference = ConferenceDtoMapper.map(conferenceRow)
+    }
+
+    @Benchmark
+    fun exampleToDto(): ExampleDto {
+        return ExampleDtoMapper.map(exampleRow)
+    }
+
+    @Benchmark
+    fun conferenceToDto(): ConferenceDto {
+        return ConferenceDtoMapper.map(conferenceRow)
+    }
+
+    @Benchmark
+    fun exampleValueMap(): Map<Field<*>, *> {
+        return ExampleDtoMapper.instance().getValueMap(example)
+    }
+
+    @Benchmark
+    fun conferenceValueMap(): Map<Field<*>, *> {
+        return ConferenceDtoMapper.instance().getValueMap(conference)
+    }
+}
@@ -0,0 +1,128 @@
+package io.en4ble.examples.benchmarks
+
+import io.en4ble.examples.enums.ConferenceState
+import io.en4ble.examples.jooq.tables.Conference.CONFERENCE
+import io.en4ble.examples.jooq.tables.Example.EXAMPLE
+import io.en4ble.pgaccess.DatabaseConfig
+import io.en4ble.pgaccess.SingleDatabaseContext
+import io.en4ble.pgaccess.StatementMode
+import io.en4ble.pgaccess.dto.PointDTO
+import io.en4ble.pgaccess.dto.PolygonDTO
+import io.en4ble.pgaccess.util.BoundSql
+import io.en4ble.pgaccess.util.DaoHelper
+import io.en4ble.pgaccess.util.JooqHelper
+import io.en4ble.pgaccess.util.QueryCache
+import io.vertx.sqlclient.Tuple
+import org.jooq.Query
+import org.jooq.SQLDialect
+import org.jooq.conf.Settings
+import org.jooq.conf.StatementType
+import org.jooq.impl.DSL
+import org.openjdk.jmh.annotations.*
+import java.time.LocalDate
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Rendering of statements and extraction of their parameters: uncached (rendering by jOOQ, JooqHelper.params and
+ * the statement of a context without query cache) and with a cached query plan (looked up by shape id).
+ * The contexts don't connect, no database is needed.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class RenderingBenchmark {
+    private val dsl = DSL.using(SQLDialect.POSTGRES, Settings().withStatementType(StatementType.PREPARED_STATEMENT))
+    private val uncached = SingleDatabaseContext(
+        DatabaseConfig(statementMode = StatementMode.UNNAMED, queryCacheSize = 0)
+    )
+    private val cached = SingleDatabaseContext(DatabaseConfig(statementMode = StatementMode.UNNAMED))
+    private val queryCache = QueryCache(100)
+
+    private lateinit var select: Query
+    private lateinit var insert: Query
+
+    @Setup
+    fun setup() {
+        select = dsl.select()
+            .from(CONFERENCE)
+            .where(CONFERENCE.STATE.eq(ConferenceState.ACTIVE))
+            .and(CONFERENCE.START_DATE.ge(LocalDate.of(2021, 1, 1)))
+            .and(CONFERENCE.NAME.like("%conf%"))
+            .orderBy(CONFERENCE.START_DATE.desc())
+            .limit(20)
+        val points = listOf(PointDTO(0.0, 0.0), PointDTO(1.0, 0.0), PointDTO(1.0, 1.0))
+        insert = dsl.insertInto(EXAMPLE)
+            .set(EXAMPLE.UUID, UUID.randomUUID())
+            .set(EXAMPLE.TEXT, "text")
+            .set(EXAMPLE.INTEGER_VALUE, 42)
+            .set(EXAMPLE.INTEGER_ARRAY, arrayOf(1, 2, 3))
+            .set(EXAMPLE.POINT, PointDTO(13.4, 52.5))
+            .set(EXAMPLE.POLYGON, PolygonDTO(points))
+            .set(EXAMPLE.DATE, LocalDate.of(2021, 7, 1))
+    }
+
+    @TearDown
+    fun tearDown() {
+        uncached.close().blockingAwait()
+        cached.close().blockingAwait()
+    }
+
+    @Benchmark
+    fun selectSql(): String {
+        return select.sql
+    }
+
+    @Benchmark
+    fun selectParams(): Tuple {
+        return JooqHelper.params(select)
+    }
+
+    @Benchmark
+    fun selectStatement(): BoundSql {
+        return DaoHelper.statement(SELECT, select, uncached)
+    }
+
+    @Benchmark
+    fun selectCachedStatement(): BoundSql {
+        return DaoHelper.statement(SELECT, select, cached)
+    }
+
+    @Benchmark
+    fun selectCachedPlan(): Tuple {
+        return queryCache.plan(SELECT, select).bind(select)
+    }
+
+    @Benchmark
+    fun insertSql(): String {
+        return insert.sql
+    }
+
+    @Benchmark
+    fun insertParams(): Tuple {
+        return JooqHelper.params(insert)
+    }
+
+    @Benchmark
+    fun insertStatement(): BoundSql {
+        return DaoHelper.statement(INSERT, insert, uncached)
+    }
+
+    @Benchmark
+    fun insertCachedStatement(): BoundSql {
+        return DaoHelper.statement(INSERT, insert, cached)
+    }
+
+    @Benchmark
+    fun insertCachedPlan(): Tuple {
+        return queryCache.plan(INSERT, insert).bind(insert)
+    }
+
+    companion object {
+        // shape ids of the queries, see QueryCache.plan
+        private const val SELECT = "select"
+        private const val INSERT = "insert"
+    }
+}
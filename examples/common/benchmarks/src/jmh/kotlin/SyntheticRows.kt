@@ -0,0 +1,109 @@
+package io.en4ble.examples.benchmarks
+
+import io.en4ble.examples.jooq.tables.Conference.CONFERENCE
+import io.en4ble.examples.jooq.tables.Example.EXAMPLE
+import io.vertx.pgclient.data.*
+import io.vertx.sqlclient.Row
+import io.vertx.sqlclient.Tuple
+import org.jooq.Table
+import java.time.*
+import java.util.*
+
+/**
+ * A row with fixed values (as returned by the vert.x client), so that mapping can be measured without a database.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class SyntheticRow(private val columns: List<String>, private val values: Tuple) : Row, Tuple by values {
+    override fun getColumnName(pos: Int): String {
+        return columns[pos]
+    }
+
+    override fun getColumnIndex(column: String): Int {
+        return columns.indexOf(column)
+    }
+}
+
+/**
+ * Rows of the example tables with all columns set.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+object SyntheticRows {
+    private val DATE = LocalDate.of(2021, 7, 1)
+    private val TIME = LocalTime.of(12, 30, 15)
+    private val DATE_TIME = LocalDateTime.of(DATE, TIME)
+    private val POINT = Point(13.4, 52.5)
+    private val POINTS = listOf(Point(0.0, 0.0), Point(1.0, 0.0), Point(1.0, 1.0), Point(0.0, 1.0))
+
+    fun example(): Row {
+        val values = Tuple.tuple()
+            .addValue(UUID.randomUUID())
+            .addValue(arrayOf(UUID.randomUUID(), UUID.randomUUID()))
+            .addValue("a longer text that is stored in a text column")
+            .addValue(arrayOf("first", "second", "third"))
+            .addValue("string")
+            .addValue(arrayOf("a", "b"))
+            .addValue(1.toShort())
+            .addValue(arrayOf<Short>(1, 2, 3))
+            .addValue(42)
+            .addValue(arrayOf(1, 2, 3))
+            .addValue(42L)
+            .addValue(arrayOf(1L, 2L, 3L))
+            .addValue(1.5f)
+            .addValue(arrayOf(1.5f, 2.5f))
+            .addValue(2.5)
+            .addValue(arrayOf(1.5, 2.5))
+            .addValue(true)
+            .addValue(arrayOf(true, false))
+            .addValue(DATE)
+            .addValue(arrayOf(DATE, DATE.plusDays(1)))
+            .addValue(TIME)
+            .addValue(arrayOf(TIME, TIME.plusHours(1)))
+            .addValue(OffsetTime.of(TIME, ZoneOffset.UTC))
+            .addValue(arrayOf(OffsetTime.of(TIME, ZoneOffset.UTC)))
+            .addValue(DATE_TIME)
+            .addValue(arrayOf(DATE_TIME, DATE_TIME.plusDays(1)))
+            .addValue(OffsetDateTime.of(DATE_TIME, ZoneOffset.UTC))
+            .addValue(arrayOf(OffsetDateTime.of(DATE_TIME, ZoneOffset.UTC)))
+            .addValue(POINT)
+            .addValue(POINTS.toTypedArray())
+            .addValue(Line(1.0, -1.0, 0.0))
+            .addValue(arrayOf(Line(1.0, -1.0, 0.0), Line(0.0, 1.0, 2.0)))
+            .addValue(LineSegment(POINTS[0], POINTS[2]))
+            .addValue(arrayOf(LineSegment(POINTS[0], POINTS[2]), LineSegment(POINTS[1], POINTS[3])))
+            .addValue(Box(POINTS[2], POINTS[0]))
+            .addValue(arrayOf(Box(POINTS[2], POINTS[0])))
+            .addValue(Path(true, POINTS))
+            .addValue(arrayOf(Path(false, POINTS)))
+            .addValue(Polygon(POINTS))
+            .addValue(arrayOf(Polygon(POINTS), Polygon(POINTS.reversed())))
+            .addValue(Circle(POINT, 10.0))
+            .addValue(arrayOf(Circle(POINT, 10.0)))
+            .addValue("name")
+            .addValue(arrayOf("name 1", "name 2"))
+            .addValue(7.toShort())
+            .addValue(8)
+            .addValue(9L)
+            .addValue("new")
+        return SyntheticRow(columns(EXAMPLE), values)
+    }
+
+    fun conference(): Row {
+        val values = Tuple.tuple()
+            .addValue(UUID.randomUUID())
+            .addValue(DATE_TIME)
+            .addValue(DATE_TIME)
+            .addValue("conference")
+            .addValue("about the conference")
+            .addValue(DATE)
+            .addValue(DATE.plusDays(3))
+            .addValue("A")
+            .addValue(POINT)
+        return SyntheticRow(columns(CONFERENCE), values)
+    }
+
+    private fun columns(table: Table<*>): List<String> {
+        return table.fields().map { it.name }
+    }
+}
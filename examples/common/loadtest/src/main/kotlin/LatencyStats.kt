@@ -0,0 +1,70 @@
+package io.en4ble.examples.loadtest
+
+import org.HdrHistogram.Histogram
+import org.HdrHistogram.Recorder
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Latencies (in microseconds) and errors of one operation, recorded from any number of threads.
+ *
+ * The response time is measured from the time the statement should have been started (its intended start), the
+ * service time from the time it actually was started. When the database falls behind in the open model the
+ * statements queue up and the response time includes that wait, which a load generator that only measures the
+ * service time would hide (coordinated omission).
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class LatencyStats {
+    private val response = Recorder(SIGNIFICANT_DIGITS)
+    private val service = Recorder(SIGNIFICANT_DIGITS)
+    private val errors = AtomicLong()
+
+    fun success(intendedStartNanos: Long, startNanos: Long, endNanos: Long) {
+        response.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - intendedStartNanos))
+        service.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos))
+    }
+
+    fun failed() {
+        errors.incrementAndGet()
+    }
+
+    /** Returns the values recorded since the last call and starts a new interval. */
+    fun interval(): Result {
+        return Result(response.intervalHistogram, service.intervalHistogram, errors.getAndSet(0))
+    }
+
+    class Result(val response: Histogram, val service: Histogram, val errors: Long) {
+        val count: Long
+            get() = service.totalCount
+
+        /**
+         * In the closed model every worker waits for its statement, so a stall delays all statements that would
+         * have been sent in the meantime and those never get measured. They are back-filled with the mean service
+         * time as the expected interval between two statements of a worker.
+         */
+        fun correctedForClosedModel(): Result {
+            val expectedInterval = service.mean.toLong()
+            if (expectedInterval <= 0) {
+                return this
+            }
+            return Result(response.copyCorrectedForCoordinatedOmission(expectedInterval), service, errors)
+        }
+
+        fun add(other: Result): Result {
+            val response = response.copy().apply { add(other.response) }
+            val service = service.copy().apply { add(other.service) }
+            return Result(response, service, errors + other.errors)
+        }
+
+        companion object {
+            fun empty(): Result {
+                return Result(Histogram(SIGNIFICANT_DIGITS), Histogram(SIGNIFICANT_DIGITS), 0)
+            }
+        }
+    }
+
+    companion object {
+        private const val SIGNIFICANT_DIGITS = 3
+    }
+}
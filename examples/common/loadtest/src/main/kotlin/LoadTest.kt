@@ -0,0 +1,176 @@
+package io.en4ble.examples.loadtest
+
+import io.en4ble.examples.jooq.tables.Conference.CONFERENCE
+import io.en4ble.examples.util.LiquibaseUpdater
+import io.en4ble.pgaccess.SingleDatabaseContext
+import io.vertx.reactivex.core.Vertx
+import kotlinx.coroutines.*
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.io.PrintStream
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Runs the load test, e.g.:
+ * ./gradlew :loadtest:run --args="--mode=rate --rate=2000 --api=rx --poolSize=20 --statementMode=cached"
+ */
+fun main(args: Array<String>) {
+    val options = LoadTestOptions.parse(args)
+    val config = options.databaseConfig()
+    LiquibaseUpdater.updateDatabase(CONFERENCE.schema, config)
+    val vertx = Vertx.vertx()
+    try {
+        val context = SingleDatabaseContext(vertx, config)
+        runBlocking(Dispatchers.Default) {
+            LoadTest(options, Workload(context, options.api)).run()
+        }
+    } finally {
+        vertx.rxClose().blockingAwait()
+    }
+}
+
+/**
+ * Drives the [Workload] at a fixed concurrency (closed model) or a fixed arrival rate (open model), first for the
+ * warmup and then for the measured duration, and prints throughput and latency percentiles per operation.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class LoadTest(private val options: LoadTestOptions, private val workload: Workload) {
+    private val LOG by lazy { LoggerFactory.getLogger(LoadTest::class.java) }
+    private val stats = EnumMap<Operation, LatencyStats>(Operation::class.java)
+
+    init {
+        Operation.values().forEach { stats[it] = LatencyStats() }
+    }
+
+    suspend fun run() {
+        println("seeding ${options.rows} conferences")
+        workload.seed(options.rows)
+        if (options.warmupSeconds > 0) {
+            println("warming up for ${options.warmupSeconds}s")
+            load(options.warmupSeconds)
+            stats.values.forEach { it.interval() }
+        }
+        println("running for ${options.durationSeconds}s: $options")
+        val start = System.nanoTime()
+        load(options.durationSeconds)
+        val elapsedNanos = System.nanoTime() - start
+        report(elapsedNanos)
+    }
+
+    private suspend fun load(seconds: Int) {
+        val end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds.toLong())
+        coroutineScope {
+            if (options.mode == LoadMode.RATE) {
+                launchAtRate(end)
+            } else {
+                repeat(options.concurrency) {
+                    launch {
+                        while (System.nanoTime() < end) {
+                            val start = System.nanoTime()
+                            execute(options.mix.next(), start, start)
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Launches the statements at their intended start times. If the launcher falls behind (e.g. after a gc pause)
+     * the late statements are started right away, keeping their intended start so their wait counts as latency.
+     */
+    private suspend fun CoroutineScope.launchAtRate(end: Long) {
+        val intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate
+        val start = System.nanoTime()
+        var next = start
+        while (next < end) {
+            val waitNanos = next - System.nanoTime()
+            if (waitNanos >= MIN_DELAY_NANOS) {
+                delay(TimeUnit.NANOSECONDS.toMillis(waitNanos))
+            } else if (waitNanos > 0) {
+                yield()
+            }
+            while (next <= System.nanoTime() && next < end) {
+                val intended = next
+                launch { execute(options.mix.next(), intended, System.nanoTime()) }
+                next += intervalNanos
+            }
+        }
+    }
+
+    private suspend fun execute(operation: Operation, intendedStart: Long, start: Long) {
+        try {
+            workload.execute(operation)
+            stats[operation]!!.success(intendedStart, start, System.nanoTime())
+        } catch (e: Exception) {
+            stats[operation]!!.failed()
+            LOG.debug("{} failed: {}", operation, e.message)
+        }
+    }
+
+    private fun report(elapsedNanos: Long) {
+        val seconds = elapsedNanos.toDouble() / TimeUnit.SECONDS.toNanos(1)
+        val results = stats.mapValues { (_, stats) ->
+            val result = stats.interval()
+            if (options.mode == LoadMode.CONCURRENCY) result.correctedForClosedModel() else result
+        }
+        val total = results.values.fold(LatencyStats.Result.empty()) { sum, result -> sum.add(result) }
+
+        println()
+        println(options.toString())
+        println(
+            String.format(
+                "%-8s %10s %8s %10s | %9s %9s %9s %9s | %9s %9s",
+                "op", "count", "errors", "ops/s", "p50", "p99", "p99.9", "max", "svc p50", "svc p99"
+            )
+        )
+        results.filter { it.value.count > 0 || it.value.errors > 0 }
+            .forEach { (operation, result) -> printRow(operation.name.toLowerCase(), result, seconds) }
+        printRow("total", total, seconds)
+        println("latencies in ms, p50-max: response time from the intended start, svc: service time")
+
+        options.hgrmDirectory?.let { directory ->
+            File(directory).mkdirs()
+            results.forEach { (operation, result) ->
+                writeHgrm(File(directory, "${operation.name.toLowerCase()}.hgrm"), result)
+            }
+            writeHgrm(File(directory, "total.hgrm"), total)
+            println("latency distributions written to $directory")
+        }
+    }
+
+    private fun printRow(name: String, result: LatencyStats.Result, seconds: Double) {
+        val response = result.response
+        val service = result.service
+        println(
+            String.format(
+                "%-8s %10d %8d %10.1f | %9.2f %9.2f %9.2f %9.2f | %9.2f %9.2f",
+                name,
+                result.count,
+                result.errors,
+                result.count / seconds,
+                millis(response.getValueAtPercentile(50.0)),
+                millis(response.getValueAtPercentile(99.0)),
+                millis(response.getValueAtPercentile(99.9)),
+                millis(response.maxValue),
+                millis(service.getValueAtPercentile(50.0)),
+                millis(service.getValueAtPercentile(99.0))
+            )
+        )
+    }
+
+    private fun writeHgrm(file: File, result: LatencyStats.Result) {
+        PrintStream(file).use { result.response.outputPercentileDistribution(it, MICROS_PER_MILLI) }
+    }
+
+    private fun millis(micros: Long): Double {
+        return micros / MICROS_PER_MILLI
+    }
+
+    companion object {
+        private const val MICROS_PER_MILLI = 1000.0
+        private val MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1)
+    }
+}
@@ -0,0 +1,115 @@
+package io.en4ble.examples.loadtest
+
+import io.en4ble.pgaccess.DatabaseConfig
+import io.en4ble.pgaccess.StatementMode
+
+/**
+ * How the load is generated:
+ * [CONCURRENCY] runs a fixed number of workers that send the next statement as soon as the previous one completed
+ * (closed model), [RATE] starts statements at a fixed arrival rate independent of their completion (open model).
+ */
+enum class LoadMode {
+    CONCURRENCY,
+    RATE
+}
+
+/** The API of the DAOs that is used to run the statements. */
+enum class Api {
+    COROUTINE,
+    RX
+}
+
+/**
+ * Options of a load test run, parsed from command line arguments of the form --name=value.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+data class LoadTestOptions(
+    val host: String = "localhost",
+    val port: Int = 5432,
+    val database: String = "postgres",
+    val username: String = "postgres",
+    val password: String = "postgres",
+    val schema: String = "pgaccess",
+    val poolSize: Int = 10,
+    val statementMode: StatementMode = StatementMode.STATIC,
+    val api: Api = Api.COROUTINE,
+    val mode: LoadMode = LoadMode.CONCURRENCY,
+    /** Number of workers in [LoadMode.CONCURRENCY]. */
+    val concurrency: Int = 16,
+    /** Statements per second in [LoadMode.RATE]. */
+    val rate: Int = 1000,
+    val warmupSeconds: Int = 10,
+    val durationSeconds: Int = 30,
+    /** Number of conferences that are created before the run, used by read, page and update. */
+    val rows: Int = 1000,
+    val mix: OperationMix = OperationMix.parse(DEFAULT_MIX),
+    /** Directory to write the latency distribution (.hgrm) of every operation to. */
+    val hgrmDirectory: String? = null,
+    /** Free text printed with the results to tell runs apart (e.g. the library version). */
+    val label: String? = null
+) {
+    fun databaseConfig(): DatabaseConfig {
+        return DatabaseConfig(
+            host = host,
+            port = port,
+            database = database,
+            username = username,
+            password = password,
+            schema = schema,
+            maxPoolSize = poolSize,
+            statementMode = statementMode
+        )
+    }
+
+    override fun toString(): String {
+        val load = if (mode == LoadMode.RATE) "rate=$rate/s" else "concurrency=$concurrency"
+        return "${label?.let { "$it: " } ?: ""}$load, api=${api.name.toLowerCase()}, poolSize=$poolSize, " +
+            "statementMode=$statementMode, warmup=${warmupSeconds}s, duration=${durationSeconds}s, rows=$rows, " +
+            "mix=$mix"
+    }
+
+    companion object {
+        const val DEFAULT_MIX = "read=50,page=20,create=10,update=10,delete=10"
+
+        fun parse(args: Array<String>): LoadTestOptions {
+            val values = args.associate { arg ->
+                require(arg.startsWith("--") && arg.contains('=')) { "expected --name=value but got: $arg" }
+                arg.substring(2).substringBefore('=') to arg.substringAfter('=')
+            }
+            val defaults = LoadTestOptions()
+            val options = LoadTestOptions(
+                host = values["host"] ?: defaults.host,
+                port = values["port"]?.toInt() ?: defaults.port,
+                database = values["database"] ?: defaults.database,
+                username = values["username"] ?: defaults.username,
+                password = values["password"] ?: defaults.password,
+                schema = values["schema"] ?: defaults.schema,
+                poolSize = values["poolSize"]?.toInt() ?: defaults.poolSize,
+                statementMode = values["statementMode"]?.let { StatementMode.valueOf(it.toUpperCase()) }
+                    ?: defaults.statementMode,
+                api = values["api"]?.let { Api.valueOf(it.toUpperCase()) } ?: defaults.api,
+                mode = values["mode"]?.let { LoadMode.valueOf(it.toUpperCase()) } ?: defaults.mode,
+                concurrency = values["concurrency"]?.toInt() ?: defaults.concurrency,
+                rate = values["rate"]?.toInt() ?: defaults.rate,
+                warmupSeconds = values["warmup"]?.toInt() ?: defaults.warmupSeconds,
+                durationSeconds = values["duration"]?.toInt() ?: defaults.durationSeconds,
+                rows = values["rows"]?.toInt() ?: defaults.rows,
+                mix = values["mix"]?.let { OperationMix.parse(it) } ?: defaults.mix,
+                hgrmDirectory = values["hgrm"],
+                label = values["label"]
+            )
+            val unknown = values.keys - OPTIONS
+            require(unknown.isEmpty()) { "unknown options: $unknown, supported are: $OPTIONS" }
+            require(options.concurrency > 0 && options.rate > 0 && options.rows > 0) {
+                "concurrency, rate and rows must be positive"
+            }
+            return options
+        }
+
+        private val OPTIONS = setOf(
+            "host", "port", "database", "username", "password", "schema", "poolSize", "statementMode", "api", "mode",
+            "concurrency", "rate", "warmup", "duration", "rows", "mix", "hgrm", "label"
+        )
+    }
+}
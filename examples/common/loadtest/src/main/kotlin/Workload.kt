@@ -0,0 +1,175 @@
+package io.en4ble.examples.loadtest
+
+import io.en4ble.examples.dao.ConferenceDao
+import io.en4ble.examples.dao.ConferenceV1Dao
+import io.en4ble.examples.enums.ConferenceState
+import io.en4ble.examples.jooq.tables.Conference.CONFERENCE
+import io.en4ble.examples.jooq.tables.pojos.ConferenceDto
+import io.en4ble.pgaccess.DatabaseContext
+import io.en4ble.pgaccess.dto.PageDTO
+import io.en4ble.pgaccess.dto.PointDTO
+import kotlinx.coroutines.rx2.await
+import java.time.LocalDate
+import java.util.*
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ThreadLocalRandom
+
+/** The statements of the workload. */
+enum class Operation {
+    /** createReturning of a new conference. */
+    CREATE,
+
+    /** readOneById of an existing conference (through the conference_v1 view). */
+    READ,
+
+    /** readPage of the newest conferences. */
+    PAGE,
+
+    /** updateReturningOne of an existing conference. */
+    UPDATE,
+
+    /** delete of a conference that was created during the run. */
+    DELETE
+}
+
+/**
+ * Weighted mix of the operations, e.g. "read=80,update=20".
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class OperationMix private constructor(private val weights: EnumMap<Operation, Int>) {
+    private val operations = weights.keys.toTypedArray()
+    private val cumulative = weights.values.runningReduce { sum, weight -> sum + weight }.toIntArray()
+    private val total = cumulative.last()
+
+    fun next(): Operation {
+        val value = ThreadLocalRandom.current().nextInt(total)
+        for (i in cumulative.indices) {
+            if (value < cumulative[i]) {
+                return operations[i]
+            }
+        }
+        return operations.last()
+    }
+
+    override fun toString(): String {
+        return weights.entries.joinToString(",") { "${it.key.name.toLowerCase()}=${it.value}" }
+    }
+
+    companion object {
+        fun parse(mix: String): OperationMix {
+            val weights = EnumMap<Operation, Int>(Operation::class.java)
+            for (entry in mix.split(',')) {
+                val name = entry.substringBefore('=').trim()
+                val weight = entry.substringAfter('=', "").trim().toIntOrNull()
+                require(weight != null && weight >= 0) { "invalid weight in mix: $entry" }
+                weights[Operation.valueOf(name.toUpperCase())] = weight
+            }
+            weights.values.removeIf { it == 0 }
+            require(weights.isNotEmpty()) { "the mix must contain at least one operation: $mix" }
+            return OperationMix(weights)
+        }
+    }
+}
+
+/**
+ * Runs the operations with the coroutine or rx API of the example DAOs.
+ * Reads and updates use the conferences created by [seed], deletes remove conferences created during the run,
+ * so that every read finds its row.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+class Workload(context: DatabaseContext, private val api: Api) {
+    private val conferenceDao = ConferenceDao(context)
+    private val conferenceV1Dao = ConferenceV1Dao(context)
+
+    private var seeded: Array<UUID> = emptyArray()
+    private val created = ConcurrentLinkedQueue<UUID>()
+    private val page = PageDTO<UUID>().apply { size = 20 }
+
+    suspend fun seed(rows: Int) {
+        conferenceDao.delete(CONFERENCE.NAME.like("$NAME_PREFIX%"))
+        seeded = Array(rows) { conferenceDao.createReturning(conference(UUID.randomUUID())).id }
+    }
+
+    suspend fun execute(operation: Operation) {
+        when (operation) {
+            Operation.CREATE -> create()
+            Operation.READ -> read()
+            Operation.PAGE -> readPage()
+            Operation.UPDATE -> update()
+            Operation.DELETE -> delete()
+        }
+    }
+
+    private suspend fun create() {
+        val conference = conference(UUID.randomUUID())
+        if (api == Api.RX) {
+            conferenceDao.rxCreateReturning(conference, null).await()
+        } else {
+            conferenceDao.createReturning(conference)
+        }
+        created.add(conference.id)
+    }
+
+    private suspend fun read() {
+        val id = randomSeeded()
+        if (api == Api.RX) {
+            conferenceV1Dao.rxReadOneById(id, null).await()
+        } else {
+            conferenceV1Dao.readOneById(id)
+        }
+    }
+
+    private suspend fun readPage() {
+        if (api == Api.RX) {
+            conferenceDao.rxReadPage(page).await()
+        } else {
+            conferenceDao.readPage(page)
+        }
+    }
+
+    private suspend fun update() {
+        val conference = conference(randomSeeded())
+        val condition = CONFERENCE.ID.eq(conference.id)
+        if (api == Api.RX) {
+            conferenceDao.rxUpdateReturningOne(conference, condition, null).await()
+        } else {
+            conferenceDao.updateReturningOne(conference, condition)
+        }
+    }
+
+    /** Deletes a conference created during the run, if there is none yet the delete doesn't match any row. */
+    private suspend fun delete() {
+        val condition = CONFERENCE.ID.eq(created.poll() ?: UUID.randomUUID())
+        if (api == Api.RX) {
+            conferenceDao.rxDelete(condition).await()
+        } else {
+            conferenceDao.delete(condition)
+        }
+    }
+
+    private fun randomSeeded(): UUID {
+        return seeded[ThreadLocalRandom.current().nextInt(seeded.size)]
+    }
+
+    private fun conference(id: UUID): ConferenceDto {
+        val random = ThreadLocalRandom.current()
+        val start = LocalDate.of(2021, 1, 1).plusDays(random.nextLong(365))
+        return ConferenceDto(
+            id,
+            null,
+            null,
+            NAME_PREFIX + random.nextInt(1_000_000),
+            "a conference created by the load test",
+            start,
+            start.plusDays(random.nextLong(1, 5)),
+            ConferenceState.ACTIVE,
+            PointDTO(random.nextDouble(-180.0, 180.0), random.nextDouble(-90.0, 90.0))
+        )
+    }
+
+    companion object {
+        private const val NAME_PREFIX = "loadtest "
+    }
+}
@@ -23,15 +23,68 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
     override fun table(): org.jooq.Table<ConferenceRecord> {
         return io.en4ble.examples.jooq.tables.Conference.CONFERENCE
     }
+    companion object {
+        const val SQL_TABLE = "\"pgaccess\".\"p_conference\""
+        const val SQL_COLUMNS = "\"c_id\", \"c_created\", \"c_updated\", \"c_name\", \"c_about\", \"c_start_date\", \"c_end_date\", \"c_state\", \"c_location\""
+        const val SQL_SELECT = "select $SQL_COLUMNS from $SQL_TABLE"
+        const val SQL_COUNT = "select count(*) from $SQL_TABLE"
+        const val SQL_READ_BY_ID = "$SQL_SELECT where \"c_id\" = any(\$1)"
+        const val SQL_READ_ONE_BY_ID = "$SQL_SELECT where \"c_id\" = \$1"
+        const val SQL_READ_BY_CREATED = "$SQL_SELECT where \"c_created\" = any(\$1)"
+        const val SQL_READ_BY_UPDATED = "$SQL_SELECT where \"c_updated\" = any(\$1)"
+        const val SQL_READ_BY_NAME = "$SQL_SELECT where \"c_name\" = any(\$1)"
+        const val SQL_READ_BY_ABOUT = "$SQL_SELECT where \"c_about\" = any(\$1)"
+        const val SQL_READ_BY_START_DATE = "$SQL_SELECT where \"c_start_date\" = any(\$1)"
+        const val SQL_READ_BY_END_DATE = "$SQL_SELECT where \"c_end_date\" = any(\$1)"
+        val COLUMNS = arrayOf("\"c_id\"", "\"c_created\"", "\"c_updated\"", "\"c_name\"", "\"c_about\"", "\"c_start_date\"", "\"c_end_date\"", "\"c_state\"", "\"c_location\"")
+        val UNNEST_TYPES: Array<String>? = arrayOf("uuid", "timestamp", "timestamp", "varchar", "text", "date", "date", "varchar", "point")
+    }
+    override suspend fun readCount():Int {
+        return readCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null))
+    }
+    override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {
+        return rxReadCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null), clientId)
+    }
+    private val tableStatements = io.en4ble.pgaccess.util.TableStatements(staticSql(SQL_TABLE), COLUMNS, intArrayOf(0), UNNEST_TYPES?.map { staticSql(it) }?.toTypedArray())
+    override fun tableStatements():io.en4ble.pgaccess.util.TableStatements {
+        return tableStatements
+    }
+    override fun keyValues(id:java.util.UUID):Array<Any?> {
+        return arrayOf(id)
+    }
+
+    /**
+     * The database values of all columns (in the order of {@link #COLUMNS}).
+     */
+    override fun createValues(dto:ConferenceDto):Array<Any?> {
+        return arrayOf(
+            dto.id,
+            dto.created,
+            dto.updated,
+            dto.name,
+            dto.about,
+            dto.startDate,
+            dto.endDate,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.STATE, dto.state),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.LOCATION, dto.location)
+        )
+    }
 
     /**
      * Fetch records that have <code>c_id IN (values)</code>
      */
     suspend fun readById(vararg values:UUID):List<ConferenceDto> {
-        return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ID.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return cachedList(values.toList(), { it.id }) { ids ->
+            read(readByIdStatement(*ids.toTypedArray()))
+        }
     }
     fun rxReadById(vararg values:UUID, clientId: String?):io.reactivex.Single<List<ConferenceDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ID.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxCachedList(values.toList(), clientId, { it.id }) { ids ->
+            rxRead(readByIdStatement(*ids.toTypedArray()), clientId)
+        }
+    }
+    private fun readByIdStatement(vararg values:UUID):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_ID), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readById(vararg values:UUID, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceDto> {
         return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ID.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, orderBy)
@@ -50,26 +103,44 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
      * Read a unique record that has <code>c_id = value</code>
      */
     suspend fun readOneById(value:UUID):ConferenceDto {
-        return readOne(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ID.eq(value),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return cachedOne(value) {
+            if (batchesKeyLookups()) lookupOne(staticSql(SQL_READ_BY_ID), value, { it.toTypedArray() }, { it.id })
+            else readOne(readOneByIdStatement(value))
+        }
     }
     fun rxReadOneById(value:UUID, clientId: String?):io.reactivex.Single<ConferenceDto> {
-        return rxReadOne(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ID.eq(value),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxCachedOne(value, clientId) {
+            if (batchesKeyLookups()) rxLookupOne(staticSql(SQL_READ_BY_ID), value, { it.toTypedArray() }, { it.id }, clientId)
+            else rxReadOne(readOneByIdStatement(value), clientId)
+        }
     }
     suspend fun readOptionalById(value:UUID):java.util.Optional<ConferenceDto> {
-        return readOptional(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ID.eq(value),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return cachedOptional(value) {
+            if (batchesKeyLookups()) lookupOptional(staticSql(SQL_READ_BY_ID), value, { it.toTypedArray() }, { it.id })
+            else readOptional(readOneByIdStatement(value))
+        }
     }
     fun rxReadOptionalById(value:UUID, clientId: String?):io.reactivex.Single<java.util.Optional<ConferenceDto>> {
-        return rxReadOptional(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ID.eq(value),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxCachedOptional(value, clientId) {
+            if (batchesKeyLookups()) rxLookupOptional(staticSql(SQL_READ_BY_ID), value, { it.toTypedArray() }, { it.id }, clientId)
+            else rxReadOptional(readOneByIdStatement(value), clientId)
+        }
+    }
+    private fun readOneByIdStatement(value:UUID):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_ONE_BY_ID), io.vertx.sqlclient.Tuple.of(value))
     }
 
     /**
      * Fetch records that have <code>c_created IN (values)</code>
      */
     suspend fun readByCreated(vararg values:LocalDateTime):List<ConferenceDto> {
-        return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.CREATED.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return read(readByCreatedStatement(*values))
     }
     fun rxReadByCreated(vararg values:LocalDateTime, clientId: String?):io.reactivex.Single<List<ConferenceDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.CREATED.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxRead(readByCreatedStatement(*values), clientId)
+    }
+    private fun readByCreatedStatement(vararg values:LocalDateTime):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_CREATED), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByCreated(vararg values:LocalDateTime, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceDto> {
         return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.CREATED.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, orderBy)
@@ -91,10 +162,13 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
      * Fetch records that have <code>c_updated IN (values)</code>
      */
     suspend fun readByUpdated(vararg values:LocalDateTime):List<ConferenceDto> {
-        return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.UPDATED.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return read(readByUpdatedStatement(*values))
     }
     fun rxReadByUpdated(vararg values:LocalDateTime, clientId: String?):io.reactivex.Single<List<ConferenceDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.UPDATED.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxRead(readByUpdatedStatement(*values), clientId)
+    }
+    private fun readByUpdatedStatement(vararg values:LocalDateTime):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_UPDATED), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByUpdated(vararg values:LocalDateTime, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceDto> {
         return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.UPDATED.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, orderBy)
@@ -113,10 +187,13 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
      * Fetch records that have <code>c_name IN (values)</code>
      */
     suspend fun readByName(vararg values:String):List<ConferenceDto> {
-        return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return read(readByNameStatement(*values))
     }
     fun rxReadByName(vararg values:String, clientId: String?):io.reactivex.Single<List<ConferenceDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxRead(readByNameStatement(*values), clientId)
+    }
+    private fun readByNameStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_NAME), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByName(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceDto> {
         return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, orderBy)
@@ -135,10 +212,13 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
      * Fetch records that have <code>c_about IN (values)</code>
      */
     suspend fun readByAbout(vararg values:String):List<ConferenceDto> {
-        return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ABOUT.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return read(readByAboutStatement(*values))
     }
     fun rxReadByAbout(vararg values:String, clientId: String?):io.reactivex.Single<List<ConferenceDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ABOUT.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxRead(readByAboutStatement(*values), clientId)
+    }
+    private fun readByAboutStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_ABOUT), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByAbout(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceDto> {
         return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.ABOUT.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, orderBy)
@@ -157,10 +237,13 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
      * Fetch records that have <code>c_start_date IN (values)</code>
      */
     suspend fun readByStartDate(vararg values:LocalDate):List<ConferenceDto> {
-        return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.START_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return read(readByStartDateStatement(*values))
     }
     fun rxReadByStartDate(vararg values:LocalDate, clientId: String?):io.reactivex.Single<List<ConferenceDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.START_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxRead(readByStartDateStatement(*values), clientId)
+    }
+    private fun readByStartDateStatement(vararg values:LocalDate):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_START_DATE), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByStartDate(vararg values:LocalDate, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceDto> {
         return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.START_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, orderBy)
@@ -179,10 +262,13 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
      * Fetch records that have <code>c_end_date IN (values)</code>
      */
     suspend fun readByEndDate(vararg values:LocalDate):List<ConferenceDto> {
-        return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.END_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
+        return read(readByEndDateStatement(*values))
     }
     fun rxReadByEndDate(vararg values:LocalDate, clientId: String?):io.reactivex.Single<List<ConferenceDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.END_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, clientId)
+        return rxRead(readByEndDateStatement(*values), clientId)
+    }
+    private fun readByEndDateStatement(vararg values:LocalDate):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_END_DATE), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByEndDate(vararg values:LocalDate, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceDto> {
         return read(io.en4ble.examples.jooq.tables.Conference.CONFERENCE.END_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Conference.CONFERENCE, orderBy)
@@ -276,12 +362,6 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
     override fun map(rs: io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row> , offset:Int):List<ConferenceDto> {
         return map(rs.delegate as io.vertx.sqlclient.RowSet<io.vertx.sqlclient.Row>, io.en4ble.examples.jooq.tables.Conference.CONFERENCE, offset)
     }
-    override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {
-    return rxReadCount(dsl.selectCount().from(io.en4ble.examples.jooq.tables.Conference.CONFERENCE), clientId)
-    }
-    override suspend fun readCount():Int {
-    return readCount(dsl.selectCount().from(io.en4ble.examples.jooq.tables.Conference.CONFERENCE))
-    }
     override suspend fun read(condition:org.jooq.Condition):List<ConferenceDto> {
     return read(condition, io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
     }
@@ -446,79 +526,71 @@ abstract class ConferenceDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) :
     }
     suspend fun create(dto:ConferenceDto):Int {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT
         }
-        return query(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values)).rowCount()
+        return query(tableStatements.insert(values)).rowCount()
     }
     suspend fun create(dto:ConferenceDto, client:io.vertx.sqlclient.SqlClient):Int {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT
         }
-        return query(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values), client).rowCount()
+        return query(tableStatements.insert(values), client).rowCount()
     }
     suspend fun createReturning(dto:ConferenceDto):ConferenceDto {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return map(queryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Conference.CONFERENCE.fields())))
+        return map(queryOne(tableStatements.insert(values, returning = true)))
     }
     suspend fun createReturning(dto:ConferenceDto,client:io.vertx.sqlclient.SqlClient):ConferenceDto {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return map(queryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Conference.CONFERENCE.fields()), client))
+        return map(queryOne(tableStatements.insert(values, returning = true), client))
     }
     fun rxCreate(dto:ConferenceDto, clientId: String?):io.reactivex.Single<Int> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.reactivex.Single.just(io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT)
         }
-        return rxQuery(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values), clientId).map{ it.delegate.rowCount() }
+        return rxQuery(tableStatements.insert(values), clientId).map{ it.delegate.rowCount() }
     }
     fun rxCreate(dto:ConferenceDto,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<Int> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.reactivex.Single.just(io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT)
         }
-        return rxQuery(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values), client, clientId).map{ it.delegate.rowCount() }
+        return rxQuery(tableStatements.insert(values), client, clientId).map{ it.delegate.rowCount() }
     }
     fun rxCreateReturning(dto:ConferenceDto, clientId: String?):io.reactivex.Single<ConferenceDto> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return rxQueryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Conference.CONFERENCE.fields()), clientId).map{ map(it.delegate) }
+        return rxQueryOne(tableStatements.insert(values, returning = true), clientId).map{ map(it.delegate) }
     }
     fun rxCreateReturning(dto:ConferenceDto,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<ConferenceDto> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceDto>(io.en4ble.examples.jooq.tables.Conference.CONFERENCE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             throw io.en4ble.pgaccess.exceptions.NoValuesException("Provided dto is empty: ${dto.javaClass}")
         }
-        return rxQueryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Conference.CONFERENCE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Conference.CONFERENCE.fields()), client, clientId).map{ map(it.delegate) }
+        return rxQueryOne(tableStatements.insert(values, returning = true), client, clientId).map{ map(it.delegate) }
     }
 }
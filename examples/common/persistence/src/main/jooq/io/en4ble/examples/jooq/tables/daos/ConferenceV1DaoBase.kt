@@ -22,27 +22,52 @@ abstract class ConferenceV1DaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext)
     override fun table(): org.jooq.Table<ConferenceV1Record> {
         return io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1
     }
+    companion object {
+        const val SQL_TABLE = "\"pgaccess\".\"conference_v1\""
+        const val SQL_COLUMNS = "\"id\", \"name\", \"about\", \"start_date\", \"end_date\", \"location\", \"state\""
+        const val SQL_SELECT = "select $SQL_COLUMNS from $SQL_TABLE"
+        const val SQL_COUNT = "select count(*) from $SQL_TABLE"
+        const val SQL_READ_BY_ID = "$SQL_SELECT where \"id\" = any(\$1)"
+        const val SQL_READ_ONE_BY_ID = "$SQL_SELECT where \"id\" = \$1"
+        const val SQL_READ_BY_NAME = "$SQL_SELECT where \"name\" = any(\$1)"
+        const val SQL_READ_BY_ABOUT = "$SQL_SELECT where \"about\" = any(\$1)"
+        const val SQL_READ_BY_START_DATE = "$SQL_SELECT where \"start_date\" = any(\$1)"
+        const val SQL_READ_BY_END_DATE = "$SQL_SELECT where \"end_date\" = any(\$1)"
+        val COLUMNS = arrayOf("\"id\"", "\"name\"", "\"about\"", "\"start_date\"", "\"end_date\"", "\"location\"", "\"state\"")
+    }
+    override suspend fun readCount():Int {
+        return readCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null))
+    }
+    override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {
+        return rxReadCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null), clientId)
+    }
     suspend fun readOneById(value:UUID):ConferenceV1Dto {
-        return readOne(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ID.eq(value),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
+        return readOne(readOneByIdStatement(value))
     }
     fun rxReadOneById(value:UUID, clientId: String?):io.reactivex.Single<ConferenceV1Dto> {
-        return rxReadOne(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ID.eq(value),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, clientId)
+        return rxReadOne(readOneByIdStatement(value), clientId)
     }
     suspend fun readOptionalById(value:UUID):java.util.Optional<ConferenceV1Dto> {
-        return readOptional(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ID.eq(value),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
+        return readOptional(readOneByIdStatement(value))
     }
     fun rxReadOptionalById(value:UUID, clientId: String?):io.reactivex.Single<java.util.Optional<ConferenceV1Dto>> {
-        return rxReadOptional(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ID.eq(value),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, clientId)
+        return rxReadOptional(readOneByIdStatement(value), clientId)
+    }
+    private fun readOneByIdStatement(value:UUID):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_ONE_BY_ID), io.vertx.sqlclient.Tuple.of(value))
     }
 
     /**
      * Fetch records that have <code>id IN (values)</code>
      */
     suspend fun readById(vararg values:UUID):List<ConferenceV1Dto> {
-        return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ID.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
+        return read(readByIdStatement(*values))
     }
     fun rxReadById(vararg values:UUID, clientId: String?):io.reactivex.Single<List<ConferenceV1Dto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ID.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, clientId)
+        return rxRead(readByIdStatement(*values), clientId)
+    }
+    private fun readByIdStatement(vararg values:UUID):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_ID), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readById(vararg values:UUID, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceV1Dto> {
         return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ID.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, orderBy)
@@ -61,10 +86,13 @@ abstract class ConferenceV1DaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext)
      * Fetch records that have <code>name IN (values)</code>
      */
     suspend fun readByName(vararg values:String):List<ConferenceV1Dto> {
-        return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
+        return read(readByNameStatement(*values))
     }
     fun rxReadByName(vararg values:String, clientId: String?):io.reactivex.Single<List<ConferenceV1Dto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, clientId)
+        return rxRead(readByNameStatement(*values), clientId)
+    }
+    private fun readByNameStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_NAME), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByName(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceV1Dto> {
         return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, orderBy)
@@ -83,10 +111,13 @@ abstract class ConferenceV1DaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext)
      * Fetch records that have <code>about IN (values)</code>
      */
     suspend fun readByAbout(vararg values:String):List<ConferenceV1Dto> {
-        return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ABOUT.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
+        return read(readByAboutStatement(*values))
     }
     fun rxReadByAbout(vararg values:String, clientId: String?):io.reactivex.Single<List<ConferenceV1Dto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ABOUT.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, clientId)
+        return rxRead(readByAboutStatement(*values), clientId)
+    }
+    private fun readByAboutStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_ABOUT), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByAbout(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceV1Dto> {
         return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.ABOUT.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, orderBy)
@@ -105,10 +136,13 @@ abstract class ConferenceV1DaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext)
      * Fetch records that have <code>start_date IN (values)</code>
      */
     suspend fun readByStartDate(vararg values:LocalDate):List<ConferenceV1Dto> {
-        return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.START_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
+        return read(readByStartDateStatement(*values))
     }
     fun rxReadByStartDate(vararg values:LocalDate, clientId: String?):io.reactivex.Single<List<ConferenceV1Dto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.START_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, clientId)
+        return rxRead(readByStartDateStatement(*values), clientId)
+    }
+    private fun readByStartDateStatement(vararg values:LocalDate):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_START_DATE), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByStartDate(vararg values:LocalDate, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceV1Dto> {
         return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.START_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, orderBy)
@@ -127,10 +161,13 @@ abstract class ConferenceV1DaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext)
      * Fetch records that have <code>end_date IN (values)</code>
      */
     suspend fun readByEndDate(vararg values:LocalDate):List<ConferenceV1Dto> {
-        return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.END_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
+        return read(readByEndDateStatement(*values))
     }
     fun rxReadByEndDate(vararg values:LocalDate, clientId: String?):io.reactivex.Single<List<ConferenceV1Dto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.END_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, clientId)
+        return rxRead(readByEndDateStatement(*values), clientId)
+    }
+    private fun readByEndDateStatement(vararg values:LocalDate):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_END_DATE), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByEndDate(vararg values:LocalDate, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ConferenceV1Dto> {
         return read(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.END_DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, orderBy)
@@ -222,12 +259,6 @@ abstract class ConferenceV1DaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext)
     override fun map(rs: io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row> , offset:Int):List<ConferenceV1Dto> {
         return map(rs.delegate as io.vertx.sqlclient.RowSet<io.vertx.sqlclient.Row>, io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1, offset)
     }
-    override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {
-    return rxReadCount(dsl.selectCount().from(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1), clientId)
-    }
-    override suspend fun readCount():Int {
-    return readCount(dsl.selectCount().from(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1))
-    }
     override suspend fun read(condition:org.jooq.Condition):List<ConferenceV1Dto> {
     return read(condition, io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
     }
@@ -392,79 +423,71 @@ abstract class ConferenceV1DaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext)
     }
     suspend fun create(dto:ConferenceV1Dto):Int {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT
         }
-        return query(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values)).rowCount()
+        return query(tableStatements.insert(values)).rowCount()
     }
     suspend fun create(dto:ConferenceV1Dto, client:io.vertx.sqlclient.SqlClient):Int {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT
         }
-        return query(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values), client).rowCount()
+        return query(tableStatements.insert(values), client).rowCount()
     }
     suspend fun createReturning(dto:ConferenceV1Dto):ConferenceV1Dto {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return map(queryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.fields())))
+        return map(queryOne(tableStatements.insert(values, returning = true)))
     }
     suspend fun createReturning(dto:ConferenceV1Dto,client:io.vertx.sqlclient.SqlClient):ConferenceV1Dto {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return map(queryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.fields()), client))
+        return map(queryOne(tableStatements.insert(values, returning = true), client))
     }
     fun rxCreate(dto:ConferenceV1Dto, clientId: String?):io.reactivex.Single<Int> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.reactivex.Single.just(io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT)
         }
-        return rxQuery(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values), clientId).map{ it.delegate.rowCount() }
+        return rxQuery(tableStatements.insert(values), clientId).map{ it.delegate.rowCount() }
     }
     fun rxCreate(dto:ConferenceV1Dto,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<Int> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.reactivex.Single.just(io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT)
         }
-        return rxQuery(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values), client, clientId).map{ it.delegate.rowCount() }
+        return rxQuery(tableStatements.insert(values), client, clientId).map{ it.delegate.rowCount() }
     }
     fun rxCreateReturning(dto:ConferenceV1Dto, clientId: String?):io.reactivex.Single<ConferenceV1Dto> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return rxQueryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.fields()), clientId).map{ map(it.delegate) }
+        return rxQueryOne(tableStatements.insert(values, returning = true), clientId).map{ map(it.delegate) }
     }
     fun rxCreateReturning(dto:ConferenceV1Dto,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<ConferenceV1Dto> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ConferenceV1Dto>(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             throw io.en4ble.pgaccess.exceptions.NoValuesException("Provided dto is empty: ${dto.javaClass}")
         }
-        return rxQueryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.ConferenceV1.CONFERENCE_V1.fields()), client, clientId).map{ map(it.delegate) }
+        return rxQueryOne(tableStatements.insert(values, returning = true), client, clientId).map{ map(it.delegate) }
     }
 }
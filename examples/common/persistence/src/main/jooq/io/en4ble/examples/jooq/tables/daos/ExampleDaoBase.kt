@@ -31,15 +31,117 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
     override fun table(): org.jooq.Table<ExampleRecord> {
         return io.en4ble.examples.jooq.tables.Example.EXAMPLE
     }
+    companion object {
+        const val SQL_TABLE = "\"pgaccess\".\"p_example\""
+        const val SQL_COLUMNS = "\"e_uuid\", \"e_uuid_array\", \"e_text\", \"e_text_array\", \"e_string\", \"e_string_array\", \"e_short_value\", \"e_short_array\", \"e_integer_value\", \"e_integer_array\", \"e_long_value\", \"e_long_array\", \"e_float_value\", \"e_float_array\", \"e_double_value\", \"e_double_array\", \"e_boolean_value\", \"e_boolean_array\", \"e_date\", \"e_date_array\", \"e_time\", \"e_time_array\", \"e_timetz\", \"e_timetz_array\", \"e_date_time\", \"e_date_time_array\", \"e_date_timetz\", \"e_date_timetz_array\", \"e_point\", \"e_point_array\", \"e_line\", \"e_line_array\", \"e_line_segment\", \"e_line_segment_array\", \"e_box\", \"e_box_array\", \"e_path\", \"e_path_array\", \"e_polygon\", \"e_polygon_array\", \"e_circle\", \"e_circle_array\", \"e_name\", \"e_name_array\", \"e_short_serial\", \"e_serial\", \"e_long_serial\", \"e_state\""
+        const val SQL_SELECT = "select $SQL_COLUMNS from $SQL_TABLE"
+        const val SQL_COUNT = "select count(*) from $SQL_TABLE"
+        const val SQL_READ_BY_UUID = "$SQL_SELECT where \"e_uuid\" = any(\$1)"
+        const val SQL_READ_ONE_BY_UUID = "$SQL_SELECT where \"e_uuid\" = \$1"
+        const val SQL_READ_BY_TEXT = "$SQL_SELECT where \"e_text\" = any(\$1)"
+        const val SQL_READ_BY_STRING = "$SQL_SELECT where \"e_string\" = any(\$1)"
+        const val SQL_READ_BY_SHORT_VALUE = "$SQL_SELECT where \"e_short_value\" = any(\$1)"
+        const val SQL_READ_BY_INTEGER_VALUE = "$SQL_SELECT where \"e_integer_value\" = any(\$1)"
+        const val SQL_READ_BY_LONG_VALUE = "$SQL_SELECT where \"e_long_value\" = any(\$1)"
+        const val SQL_READ_BY_FLOAT_VALUE = "$SQL_SELECT where \"e_float_value\" = any(\$1)"
+        const val SQL_READ_BY_DOUBLE_VALUE = "$SQL_SELECT where \"e_double_value\" = any(\$1)"
+        const val SQL_READ_BY_BOOLEAN_VALUE = "$SQL_SELECT where \"e_boolean_value\" = any(\$1)"
+        const val SQL_READ_BY_DATE = "$SQL_SELECT where \"e_date\" = any(\$1)"
+        const val SQL_READ_BY_DATE_TIME = "$SQL_SELECT where \"e_date_time\" = any(\$1)"
+        const val SQL_READ_BY_DATE_TIMETZ = "$SQL_SELECT where \"e_date_timetz\" = any(\$1)"
+        const val SQL_READ_BY_NAME = "$SQL_SELECT where \"e_name\" = any(\$1)"
+        const val SQL_READ_BY_SHORT_SERIAL = "$SQL_SELECT where \"e_short_serial\" = any(\$1)"
+        const val SQL_READ_BY_SERIAL = "$SQL_SELECT where \"e_serial\" = any(\$1)"
+        const val SQL_READ_BY_LONG_SERIAL = "$SQL_SELECT where \"e_long_serial\" = any(\$1)"
+        const val SQL_READ_BY_STATE = "$SQL_SELECT where \"e_state\" = any(\$1)"
+        val COLUMNS = arrayOf("\"e_uuid\"", "\"e_uuid_array\"", "\"e_text\"", "\"e_text_array\"", "\"e_string\"", "\"e_string_array\"", "\"e_short_value\"", "\"e_short_array\"", "\"e_integer_value\"", "\"e_integer_array\"", "\"e_long_value\"", "\"e_long_array\"", "\"e_float_value\"", "\"e_float_array\"", "\"e_double_value\"", "\"e_double_array\"", "\"e_boolean_value\"", "\"e_boolean_array\"", "\"e_date\"", "\"e_date_array\"", "\"e_time\"", "\"e_time_array\"", "\"e_timetz\"", "\"e_timetz_array\"", "\"e_date_time\"", "\"e_date_time_array\"", "\"e_date_timetz\"", "\"e_date_timetz_array\"", "\"e_point\"", "\"e_point_array\"", "\"e_line\"", "\"e_line_array\"", "\"e_line_segment\"", "\"e_line_segment_array\"", "\"e_box\"", "\"e_box_array\"", "\"e_path\"", "\"e_path_array\"", "\"e_polygon\"", "\"e_polygon_array\"", "\"e_circle\"", "\"e_circle_array\"", "\"e_name\"", "\"e_name_array\"", "\"e_short_serial\"", "\"e_serial\"", "\"e_long_serial\"", "\"e_state\"")
+        val UNNEST_TYPES: Array<String>? = null
+    }
+    override suspend fun readCount():Int {
+        return readCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null))
+    }
+    override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {
+        return rxReadCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null), clientId)
+    }
+    private val tableStatements = io.en4ble.pgaccess.util.TableStatements(staticSql(SQL_TABLE), COLUMNS, intArrayOf(0), UNNEST_TYPES?.map { staticSql(it) }?.toTypedArray())
+    override fun tableStatements():io.en4ble.pgaccess.util.TableStatements {
+        return tableStatements
+    }
+    override fun keyValues(id:java.util.UUID):Array<Any?> {
+        return arrayOf(id)
+    }
+
+    /**
+     * The database values of all columns (in the order of {@link #COLUMNS}).
+     */
+    override fun createValues(dto:ExampleDto):Array<Any?> {
+        return arrayOf(
+            dto.uuid,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID_ARRAY, dto.uuidArray),
+            dto.text,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TEXT_ARRAY, dto.textArray),
+            dto.string,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.STRING_ARRAY, dto.stringArray),
+            dto.shortValue,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SHORT_ARRAY, dto.shortArray),
+            dto.integerValue,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.INTEGER_ARRAY, dto.integerArray),
+            dto.longValue,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LONG_ARRAY, dto.longArray),
+            dto.floatValue,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.FLOAT_ARRAY, dto.floatArray),
+            dto.doubleValue,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DOUBLE_ARRAY, dto.doubleArray),
+            dto.booleanValue,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.BOOLEAN_ARRAY, dto.booleanArray),
+            dto.date,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_ARRAY, dto.dateArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TIME, dto.time),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TIME_ARRAY, dto.timeArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TIMETZ, dto.timetz),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TIMETZ_ARRAY, dto.timetzArray),
+            dto.dateTime,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIME_ARRAY, dto.dateTimeArray),
+            dto.dateTimetz,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIMETZ_ARRAY, dto.dateTimetzArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.POINT, dto.point),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.POINT_ARRAY, dto.pointArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LINE, dto.line),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LINE_ARRAY, dto.lineArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LINE_SEGMENT, dto.lineSegment),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LINE_SEGMENT_ARRAY, dto.lineSegmentArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.BOX, dto.box),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.BOX_ARRAY, dto.boxArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.PATH, dto.path),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.PATH_ARRAY, dto.pathArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.POLYGON, dto.polygon),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.POLYGON_ARRAY, dto.polygonArray),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.CIRCLE, dto.circle),
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.CIRCLE_ARRAY, dto.circleArray),
+            dto.name,
+            io.en4ble.pgaccess.util.JooqHelper.dbValue(io.en4ble.examples.jooq.tables.Example.EXAMPLE.NAME_ARRAY, dto.nameArray),
+            dto.shortSerial,
+            dto.serial,
+            dto.longSerial,
+            dto.state
+        )
+    }
 
     /**
      * Fetch records that have <code>e_uuid IN (values)</code>
      */
     suspend fun readByUuid(vararg values:UUID):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return cachedList(values.toList(), { it.uuid }) { ids ->
+            read(readByUuidStatement(*ids.toTypedArray()))
+        }
     }
     fun rxReadByUuid(vararg values:UUID, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxCachedList(values.toList(), clientId, { it.uuid }) { ids ->
+            rxRead(readByUuidStatement(*ids.toTypedArray()), clientId)
+        }
+    }
+    private fun readByUuidStatement(vararg values:UUID):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_UUID), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByUuid(vararg values:UUID, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -58,26 +160,44 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Read a unique record that has <code>e_uuid = value</code>
      */
     suspend fun readOneByUuid(value:UUID):ExampleDto {
-        return readOne(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID.eq(value),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return cachedOne(value) {
+            if (batchesKeyLookups()) lookupOne(staticSql(SQL_READ_BY_UUID), value, { it.toTypedArray() }, { it.uuid })
+            else readOne(readOneByUuidStatement(value))
+        }
     }
     fun rxReadOneByUuid(value:UUID, clientId: String?):io.reactivex.Single<ExampleDto> {
-        return rxReadOne(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID.eq(value),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxCachedOne(value, clientId) {
+            if (batchesKeyLookups()) rxLookupOne(staticSql(SQL_READ_BY_UUID), value, { it.toTypedArray() }, { it.uuid }, clientId)
+            else rxReadOne(readOneByUuidStatement(value), clientId)
+        }
     }
     suspend fun readOptionalByUuid(value:UUID):java.util.Optional<ExampleDto> {
-        return readOptional(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID.eq(value),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return cachedOptional(value) {
+            if (batchesKeyLookups()) lookupOptional(staticSql(SQL_READ_BY_UUID), value, { it.toTypedArray() }, { it.uuid })
+            else readOptional(readOneByUuidStatement(value))
+        }
     }
     fun rxReadOptionalByUuid(value:UUID, clientId: String?):io.reactivex.Single<java.util.Optional<ExampleDto>> {
-        return rxReadOptional(io.en4ble.examples.jooq.tables.Example.EXAMPLE.UUID.eq(value),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxCachedOptional(value, clientId) {
+            if (batchesKeyLookups()) rxLookupOptional(staticSql(SQL_READ_BY_UUID), value, { it.toTypedArray() }, { it.uuid }, clientId)
+            else rxReadOptional(readOneByUuidStatement(value), clientId)
+        }
+    }
+    private fun readOneByUuidStatement(value:UUID):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_ONE_BY_UUID), io.vertx.sqlclient.Tuple.of(value))
     }
 
     /**
      * Fetch records that have <code>e_text IN (values)</code>
      */
     suspend fun readByText(vararg values:String):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TEXT.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByTextStatement(*values))
     }
     fun rxReadByText(vararg values:String, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TEXT.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByTextStatement(*values), clientId)
+    }
+    private fun readByTextStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_TEXT), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByText(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.TEXT.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -96,10 +216,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_string IN (values)</code>
      */
     suspend fun readByString(vararg values:String):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.STRING.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByStringStatement(*values))
     }
     fun rxReadByString(vararg values:String, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.STRING.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByStringStatement(*values), clientId)
+    }
+    private fun readByStringStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_STRING), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByString(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.STRING.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -118,10 +241,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_short_value IN (values)</code>
      */
     suspend fun readByShortValue(vararg values:Short):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SHORT_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByShortValueStatement(*values))
     }
     fun rxReadByShortValue(vararg values:Short, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SHORT_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByShortValueStatement(*values), clientId)
+    }
+    private fun readByShortValueStatement(vararg values:Short):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_SHORT_VALUE), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByShortValue(vararg values:Short, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SHORT_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -140,10 +266,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_integer_value IN (values)</code>
      */
     suspend fun readByIntegerValue(vararg values:Int):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.INTEGER_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByIntegerValueStatement(*values))
     }
     fun rxReadByIntegerValue(vararg values:Int, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.INTEGER_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByIntegerValueStatement(*values), clientId)
+    }
+    private fun readByIntegerValueStatement(vararg values:Int):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_INTEGER_VALUE), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByIntegerValue(vararg values:Int, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.INTEGER_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -162,10 +291,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_long_value IN (values)</code>
      */
     suspend fun readByLongValue(vararg values:Long):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LONG_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByLongValueStatement(*values))
     }
     fun rxReadByLongValue(vararg values:Long, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LONG_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByLongValueStatement(*values), clientId)
+    }
+    private fun readByLongValueStatement(vararg values:Long):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_LONG_VALUE), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByLongValue(vararg values:Long, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LONG_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -184,10 +316,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_float_value IN (values)</code>
      */
     suspend fun readByFloatValue(vararg values:Float):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.FLOAT_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByFloatValueStatement(*values))
     }
     fun rxReadByFloatValue(vararg values:Float, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.FLOAT_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByFloatValueStatement(*values), clientId)
+    }
+    private fun readByFloatValueStatement(vararg values:Float):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_FLOAT_VALUE), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByFloatValue(vararg values:Float, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.FLOAT_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -206,10 +341,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_double_value IN (values)</code>
      */
     suspend fun readByDoubleValue(vararg values:Double):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DOUBLE_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByDoubleValueStatement(*values))
     }
     fun rxReadByDoubleValue(vararg values:Double, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DOUBLE_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByDoubleValueStatement(*values), clientId)
+    }
+    private fun readByDoubleValueStatement(vararg values:Double):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_DOUBLE_VALUE), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByDoubleValue(vararg values:Double, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DOUBLE_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -228,10 +366,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_boolean_value IN (values)</code>
      */
     suspend fun readByBooleanValue(vararg values:Boolean):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.BOOLEAN_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByBooleanValueStatement(*values))
     }
     fun rxReadByBooleanValue(vararg values:Boolean, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.BOOLEAN_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByBooleanValueStatement(*values), clientId)
+    }
+    private fun readByBooleanValueStatement(vararg values:Boolean):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_BOOLEAN_VALUE), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByBooleanValue(vararg values:Boolean, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.BOOLEAN_VALUE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -250,10 +391,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_date IN (values)</code>
      */
     suspend fun readByDate(vararg values:LocalDate):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByDateStatement(*values))
     }
     fun rxReadByDate(vararg values:LocalDate, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByDateStatement(*values), clientId)
+    }
+    private fun readByDateStatement(vararg values:LocalDate):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_DATE), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByDate(vararg values:LocalDate, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -316,10 +460,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_date_time IN (values)</code>
      */
     suspend fun readByDateTime(vararg values:LocalDateTime):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByDateTimeStatement(*values))
     }
     fun rxReadByDateTime(vararg values:LocalDateTime, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByDateTimeStatement(*values), clientId)
+    }
+    private fun readByDateTimeStatement(vararg values:LocalDateTime):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_DATE_TIME), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByDateTime(vararg values:LocalDateTime, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -338,10 +485,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_date_timetz IN (values)</code>
      */
     suspend fun readByDateTimetz(vararg values:OffsetDateTime):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIMETZ.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByDateTimetzStatement(*values))
     }
     fun rxReadByDateTimetz(vararg values:OffsetDateTime, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIMETZ.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByDateTimetzStatement(*values), clientId)
+    }
+    private fun readByDateTimetzStatement(vararg values:OffsetDateTime):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_DATE_TIMETZ), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByDateTimetz(vararg values:OffsetDateTime, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.DATE_TIMETZ.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -514,10 +664,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_name IN (values)</code>
      */
     suspend fun readByName(vararg values:String):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByNameStatement(*values))
     }
     fun rxReadByName(vararg values:String, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByNameStatement(*values), clientId)
+    }
+    private fun readByNameStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_NAME), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByName(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.NAME.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -536,10 +689,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_short_serial IN (values)</code>
      */
     suspend fun readByShortSerial(vararg values:Short):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SHORT_SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByShortSerialStatement(*values))
     }
     fun rxReadByShortSerial(vararg values:Short, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SHORT_SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByShortSerialStatement(*values), clientId)
+    }
+    private fun readByShortSerialStatement(vararg values:Short):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_SHORT_SERIAL), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByShortSerial(vararg values:Short, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SHORT_SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -558,10 +714,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_serial IN (values)</code>
      */
     suspend fun readBySerial(vararg values:Int):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readBySerialStatement(*values))
     }
     fun rxReadBySerial(vararg values:Int, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readBySerialStatement(*values), clientId)
+    }
+    private fun readBySerialStatement(vararg values:Int):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_SERIAL), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readBySerial(vararg values:Int, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -580,10 +739,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_long_serial IN (values)</code>
      */
     suspend fun readByLongSerial(vararg values:Long):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LONG_SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByLongSerialStatement(*values))
     }
     fun rxReadByLongSerial(vararg values:Long, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LONG_SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByLongSerialStatement(*values), clientId)
+    }
+    private fun readByLongSerialStatement(vararg values:Long):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_LONG_SERIAL), io.vertx.sqlclient.Tuple.of(values.toTypedArray()))
     }
     suspend fun readByLongSerial(vararg values:Long, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.LONG_SERIAL.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -602,10 +764,13 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
      * Fetch records that have <code>e_state IN (values)</code>
      */
     suspend fun readByState(vararg values:String):List<ExampleDto> {
-        return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.STATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE)
+        return read(readByStateStatement(*values))
     }
     fun rxReadByState(vararg values:String, clientId: String?):io.reactivex.Single<List<ExampleDto>> {
-        return rxRead(io.en4ble.examples.jooq.tables.Example.EXAMPLE.STATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, clientId)
+        return rxRead(readByStateStatement(*values), clientId)
+    }
+    private fun readByStateStatement(vararg values:String):io.en4ble.pgaccess.util.BoundSql {
+        return io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_READ_BY_STATE), io.vertx.sqlclient.Tuple.of(values))
     }
     suspend fun readByState(vararg values:String, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<ExampleDto> {
         return read(io.en4ble.examples.jooq.tables.Example.EXAMPLE.STATE.`in`(values.toList()),io.en4ble.examples.jooq.tables.Example.EXAMPLE, orderBy)
@@ -694,12 +859,6 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
     override fun map(rs: io.vertx.reactivex.sqlclient.RowSet<io.vertx.reactivex.sqlclient.Row> , offset:Int):List<ExampleDto> {
         return map(rs.delegate as io.vertx.sqlclient.RowSet<io.vertx.sqlclient.Row>, io.en4ble.examples.jooq.tables.Example.EXAMPLE, offset)
     }
-    override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {
-    return rxReadCount(dsl.selectCount().from(io.en4ble.examples.jooq.tables.Example.EXAMPLE), clientId)
-    }
-    override suspend fun readCount():Int {
-    return readCount(dsl.selectCount().from(io.en4ble.examples.jooq.tables.Example.EXAMPLE))
-    }
     override suspend fun read(condition:org.jooq.Condition):List<ExampleDto> {
     return read(condition, io.en4ble.examples.jooq.tables.Example.EXAMPLE)
     }
@@ -864,79 +1023,71 @@ abstract class ExampleDaoBase(dbContext:io.en4ble.pgaccess.DatabaseContext) : io
     }
     suspend fun create(dto:ExampleDto):Int {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT
         }
-        return query(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values)).rowCount()
+        return query(tableStatements.insert(values)).rowCount()
     }
     suspend fun create(dto:ExampleDto, client:io.vertx.sqlclient.SqlClient):Int {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT
         }
-        return query(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values), client).rowCount()
+        return query(tableStatements.insert(values), client).rowCount()
     }
     suspend fun createReturning(dto:ExampleDto):ExampleDto {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return map(queryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Example.EXAMPLE.fields())))
+        return map(queryOne(tableStatements.insert(values, returning = true)))
     }
     suspend fun createReturning(dto:ExampleDto,client:io.vertx.sqlclient.SqlClient):ExampleDto {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return map(queryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Example.EXAMPLE.fields()), client))
+        return map(queryOne(tableStatements.insert(values, returning = true), client))
     }
     fun rxCreate(dto:ExampleDto, clientId: String?):io.reactivex.Single<Int> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.reactivex.Single.just(io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT)
         }
-        return rxQuery(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values), clientId).map{ it.delegate.rowCount() }
+        return rxQuery(tableStatements.insert(values), clientId).map{ it.delegate.rowCount() }
     }
     fun rxCreate(dto:ExampleDto,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<Int> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             return io.reactivex.Single.just(io.en4ble.pgaccess.PgAccessConstants.EMPTY_UPDATE_RESULT)
         }
-        return rxQuery(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values), client, clientId).map{ it.delegate.rowCount() }
+        return rxQuery(tableStatements.insert(values), client, clientId).map{ it.delegate.rowCount() }
     }
     fun rxCreateReturning(dto:ExampleDto, clientId: String?):io.reactivex.Single<ExampleDto> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
         }
-        return rxQueryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Example.EXAMPLE.fields()), clientId).map{ map(it.delegate) }
+        return rxQueryOne(tableStatements.insert(values, returning = true), clientId).map{ map(it.delegate) }
     }
     fun rxCreateReturning(dto:ExampleDto,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<ExampleDto> {
         validate(dto)
-        val mapper = io.en4ble.examples.jooq.tables.mappers.PgaccessMappers.getMapper<ExampleDto>(io.en4ble.examples.jooq.tables.Example.EXAMPLE)
-        val map = mapper.getValueMap(dto)
-        if (map.entries.isEmpty()) {
+        val values = createValues(dto)
+        if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {
             LOG.debug("Provided dto is empty: {}",dto.javaClass.simpleName)
             throw io.en4ble.pgaccess.exceptions.NoValuesException("Provided dto is empty: ${dto.javaClass}")
         }
-        return rxQueryOne(dsl.insertInto(io.en4ble.examples.jooq.tables.Example.EXAMPLE).columns(map.keys).values(map.values).returning(*io.en4ble.examples.jooq.tables.Example.EXAMPLE.fields()), client, clientId).map{ map(it.delegate) }
+        return rxQueryOne(tableStatements.insert(values, returning = true), client, clientId).map{ map(it.delegate) }
     }
 }
@@ -29,6 +29,21 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
     protected open val readonlyDaoBaseClassFqn = "io.en4ble.pgaccess.AsyncDaoBase"
     protected open val updatableDaoBaseClassFqn = "io.en4ble.pgaccess.UpdatableAsyncDaoBase"
 
+    // postgres types of columns that are bound as is in the generated static sql
+    private val STATIC_SQL_TYPES = setOf(
+        "uuid", "varchar", "text", "bpchar", "name", "int2", "int4", "int8", "float4", "float8", "bool",
+        "date", "timestamp", "timestamptz"
+    )
+
+    // postgres types that can be bound as arrays to unnest without a cast
+    private val UNNEST_BUILTIN_TYPES = STATIC_SQL_TYPES + setOf(
+        "numeric", "json", "jsonb", "time", "timetz", "interval", "bytea",
+        "point", "line", "lseg", "box", "path", "polygon", "circle"
+    )
+
+    // kotlin vararg types that are passed as primitive arrays
+    private val PRIMITIVE_ARRAY_TYPES = setOf("Short", "Int", "Long", "Float", "Double", "Boolean")
+
     init {
         println("Customized generator for JOOQ with support for OpenApi and JAXRS")
         println("You can use the following annotations to control the code generation.")
@@ -419,14 +434,6 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
             .println("return map(rs.delegate as io.vertx.sqlclient.RowSet<io.vertx.sqlclient.Row>, $fullJavaTableName, offset)")
         out.tab(1).println("}")
 
-        out.tab(1).println("override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {")
-        out.tab(1).println("return rxReadCount(dsl.selectCount().from($fullJavaTableName), clientId)")
-        out.tab(1).println("}")
-
-        out.tab(1).println("override suspend fun readCount():Int {")
-        out.tab(1).println("return readCount(dsl.selectCount().from($fullJavaTableName))")
-        out.tab(1).println("}")
-
 
         out.tab(1).println("override suspend fun read(condition:org.jooq.Condition):List<$dtoType> {")
         out.tab(1).println("return read(condition, $fullJavaTableName)")
@@ -604,56 +611,63 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
             out.tab(1).println("}")
 
             out.tab(1).println("suspend fun create(dto:$dtoType):Int {")
-            printMapper(out, mapperGetter, reactive = false, validate = true, update = false)
-            out.tab(2)
-                .println("return query(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values)).rowCount()")
+            printMapper(out, mapperGetter, reactive = false, validate = true, update = false, staticValues = true)
+            out.tab(2).println("return query(tableStatements.insert(values)).rowCount()")
             out.tab(1).println("}")
 
             out.tab(1)
                 .println("suspend fun create(dto:$dtoType, client:io.vertx.sqlclient.SqlClient):Int {")
-            printMapper(out, mapperGetter, reactive = false, validate = true, update = false)
-            out.tab(2)
-                .println("return query(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values), client).rowCount()")
+            printMapper(out, mapperGetter, reactive = false, validate = true, update = false, staticValues = true)
+            out.tab(2).println("return query(tableStatements.insert(values), client).rowCount()")
             out.tab(1).println("}")
 
             out.tab(1).println("suspend fun createReturning(dto:$dtoType):$dtoType {")
-            printMapper(out, mapperGetter, reactive = false, validate = true, update = false, returningList = true)
-            out.tab(2)
-                .println("return map(queryOne(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values).returning(*$fullJavaTableName.fields())))")
+            printMapper(
+                out, mapperGetter, reactive = false, validate = true, update = false, returningList = true,
+                staticValues = true
+            )
+            out.tab(2).println("return map(queryOne(tableStatements.insert(values, returning = true)))")
             out.tab(1).println("}")
 
             out.tab(1)
                 .println("suspend fun createReturning(dto:$dtoType,client:io.vertx.sqlclient.SqlClient):$dtoType {")
-            printMapper(out, mapperGetter, reactive = false, validate = true, update = false, returningList = true)
-            out.tab(2)
-                .println("return map(queryOne(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values).returning(*$fullJavaTableName.fields()), client))")
+            printMapper(
+                out, mapperGetter, reactive = false, validate = true, update = false, returningList = true,
+                staticValues = true
+            )
+            out.tab(2).println("return map(queryOne(tableStatements.insert(values, returning = true), client))")
             out.tab(1).println("}")
 
             out.tab(1).println("fun rxCreate(dto:$dtoType, clientId: String?):io.reactivex.Single<Int> {")
-            printMapper(out, mapperGetter, reactive = true, validate = true, update = false)
+            printMapper(out, mapperGetter, reactive = true, validate = true, update = false, staticValues = true)
             out.tab(2)
-                .println("return rxQuery(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values), clientId).map{ it.delegate.rowCount() }")
+                .println("return rxQuery(tableStatements.insert(values), clientId).map{ it.delegate.rowCount() }")
             out.tab(1).println("}")
 
             out.tab(1)
                 .println("fun rxCreate(dto:$dtoType,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<Int> {")
+            printMapper(out, mapperGetter, reactive = true, validate = true, update = false, staticValues = true)
             out.tab(2)
-            printMapper(out, mapperGetter, reactive = true, validate = true, update = false)
-            out.tab(2)
-                .println("return rxQuery(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values), client, clientId).map{ it.delegate.rowCount() }")
+                .println("return rxQuery(tableStatements.insert(values), client, clientId).map{ it.delegate.rowCount() }")
             out.tab(1).println("}")
 
             out.tab(1).println("fun rxCreateReturning(dto:$dtoType, clientId: String?):io.reactivex.Single<$dtoType> {")
-            printMapper(out, mapperGetter, reactive = true, validate = true, update = false, returningList = true)
+            printMapper(
+                out, mapperGetter, reactive = true, validate = true, update = false, returningList = true,
+                staticValues = true
+            )
             out.tab(2)
-                .println("return rxQueryOne(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values).returning(*$fullJavaTableName.fields()), clientId).map{ map(it.delegate) }")
+                .println("return rxQueryOne(tableStatements.insert(values, returning = true), clientId).map{ map(it.delegate) }")
             out.tab(1).println("}")
 
             out.tab(1)
                 .println("fun rxCreateReturning(dto:$dtoType,client:io.vertx.reactivex.sqlclient.SqlClient, clientId: String?):io.reactivex.Single<$dtoType> {")
-            printMapper(out, mapperGetter, reactive = true, validate = true, update = false, returningOne = true)
+            printMapper(
+                out, mapperGetter, reactive = true, validate = true, update = false, returningOne = true,
+                staticValues = true
+            )
             out.tab(2)
-                .println("return rxQueryOne(dsl.insertInto($fullJavaTableName).columns(map.keys).values(map.values).returning(*$fullJavaTableName.fields()), client, clientId).map{ map(it.delegate) }")
+                .println("return rxQueryOne(tableStatements.insert(values, returning = true), client, clientId).map{ map(it.delegate) }")
             out.tab(1).println("}")
         }
     }
@@ -669,14 +683,20 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
         update: Boolean,
         returningOne: Boolean = false,
         returningList: Boolean = false,
-        validate: Boolean = false
+        validate: Boolean = false,
+        staticValues: Boolean = false
     ) {
         if (validate) {
             out.tab(2).println("validate(dto)")
         }
-        out.tab(2).println("val mapper = $mapperGetter")
-        out.tab(2).println("val map = mapper.getValueMap(dto)")
-        out.tab(2).println("if (map.entries.isEmpty()) {")
+        if (staticValues) {
+            out.tab(2).println("val values = createValues(dto)")
+            out.tab(2).println("if (io.en4ble.pgaccess.util.TableStatements.isEmpty(values)) {")
+        } else {
+            out.tab(2).println("val mapper = $mapperGetter")
+            out.tab(2).println("val map = mapper.getValueMap(dto)")
+            out.tab(2).println("if (map.entries.isEmpty()) {")
+        }
         out.tab(3).println("LOG.debug(\"Provided dto is empty: {}\",dto.javaClass.simpleName)")
         if (returningOne) {
             if (update) {
@@ -1395,6 +1415,7 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
         out.tab(1).println("override fun table(): org.jooq.Table<$tableRecord> {")
         out.tab(2).println("return $tableIdentifier")
         out.tab(1).println("}")
+        generateStaticSql(table, pojoType, out, readonly, tType)
 
         // Template method implementations
         // -------------------------------
@@ -1432,20 +1453,52 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
                     if (readonly && attrName == "id") {
                         // readOne methods are generated for all unique columns, but in a view there are no constraints
                         // so just generate it if the table has no keys and the current the column is named id
-                        generateReadOneByMethods(out, colClass, colType, pType, colIdentifier, fullJavaTableName)
+                        generateReadOneByMethods(out, column, colClass, colType, pType, colIdentifier)
                     }
 
                     if (!printDeprecationIfUnknownType(out, colTypeFull))
                         out.tab(1).javadoc("Fetch records that have <code>%s IN (values)</code>", colName)
 
-                    out.tab(1).println("suspend fun readBy$colClass(vararg values:$colType):List<$pType> {")
-                    out.tab(2).println("return read($colIdentifier.`in`(values.toList()),$fullJavaTableName)")
-                    out.tab(1).println("}")
-                    out.tab(1)
-                        .println("fun rxReadBy$colClass(vararg values:$colType, clientId: String?):io.reactivex.Single<List<$pType>> {")
-                    out.tab(2)
-                        .println("return rxRead($colIdentifier.`in`(values.toList()),$fullJavaTableName, clientId)")
-                    out.tab(1).println("}")
+                    if (isStaticSqlColumn(column)) {
+                        // values are bound as a single array parameter: <column> = any($1)
+                        val sqlConstant = "SQL_READ_BY_${strategy.getJavaIdentifier(column)}"
+                        val array = if (colType in PRIMITIVE_ARRAY_TYPES) "values.toTypedArray()" else "values"
+                        val keyColumn = !readonly && primaryKey.keyColumns.size == 1 && primaryKey.keyColumns[0] == column
+                        out.tab(1).println("suspend fun readBy$colClass(vararg values:$colType):List<$pType> {")
+                        if (keyColumn) {
+                            // served from the entity cache (if configured)
+                            out.tab(2).println("return cachedList(values.toList(), { it.$attrName }) { ids ->")
+                            out.tab(3).println("read(readBy${colClass}Statement(*${typedArray("ids", colType)}))")
+                            out.tab(2).println("}")
+                        } else {
+                            out.tab(2).println("return read(readBy${colClass}Statement(*values))")
+                        }
+                        out.tab(1).println("}")
+                        out.tab(1)
+                            .println("fun rxReadBy$colClass(vararg values:$colType, clientId: String?):io.reactivex.Single<List<$pType>> {")
+                        if (keyColumn) {
+                            out.tab(2).println("return rxCachedList(values.toList(), clientId, { it.$attrName }) { ids ->")
+                            out.tab(3).println("rxRead(readBy${colClass}Statement(*${typedArray("ids", colType)}), clientId)")
+                            out.tab(2).println("}")
+                        } else {
+                            out.tab(2).println("return rxRead(readBy${colClass}Statement(*values), clientId)")
+                        }
+                        out.tab(1).println("}")
+                        out.tab(1)
+                            .println("private fun readBy${colClass}Statement(vararg values:$colType):io.en4ble.pgaccess.util.BoundSql {")
+                        out.tab(2)
+                            .println("return io.en4ble.pgaccess.util.BoundSql(staticSql($sqlConstant), io.vertx.sqlclient.Tuple.of($array))")
+                        out.tab(1).println("}")
+                    } else {
+                        out.tab(1).println("suspend fun readBy$colClass(vararg values:$colType):List<$pType> {")
+                        out.tab(2).println("return read($colIdentifier.`in`(values.toList()),$fullJavaTableName)")
+                        out.tab(1).println("}")
+                        out.tab(1)
+                            .println("fun rxReadBy$colClass(vararg values:$colType, clientId: String?):io.reactivex.Single<List<$pType>> {")
+                        out.tab(2)
+                            .println("return rxRead($colIdentifier.`in`(values.toList()),$fullJavaTableName, clientId)")
+                        out.tab(1).println("}")
+                    }
 
                     out.tab(1)
                         .println("suspend fun readBy$colClass(vararg values:$colType, orderBy: List<io.en4ble.pgaccess.dto.OrderDTO>, clientId: String?):List<$pType> {")
@@ -1477,7 +1530,10 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
                         if (!printDeprecationIfUnknownType(out, colTypeFull))
                             out.tab(1).javadoc("Read a unique record that has <code>$colName = value</code>")
 
-                        generateReadOneByMethods(out, colClass, colType, pType, colIdentifier, fullJavaTableName)
+                        // lookups by primary key can be coalesced (see AsyncDaoBase.batchKeyLookups)
+                        val lookupKey = !readonly && isStaticSqlColumn(column) &&
+                            primaryKey.keyColumns.size == 1 && primaryKey.keyColumns[0] == column
+                        generateReadOneByMethods(out, column, colClass, colType, pType, colIdentifier, lookupKey)
 
                         break@ukLoop
                     }
@@ -1492,28 +1548,184 @@ open class AsyncJooqWithOpenapiJavaGenerator : ExtendedJavaGenerator() {
 
     private fun generateReadOneByMethods(
         out: JavaWriter,
+        column: ColumnDefinition,
         colClass: String?,
         colType: String?,
         pType: String?,
         colIdentifier: String?,
-        fullJavaTableName: String
+        lookupKey: Boolean = false
     ) {
+        val identifier = getStrategy().getJavaIdentifier(column)
+        val sqlConstant = "SQL_READ_ONE_BY_$identifier"
+        val lookupArgs = "staticSql(SQL_READ_BY_$identifier), value, { it.toTypedArray() }, { it.${getStrategy().getJavaMemberName(column)} }"
         out.tab(1).println("suspend fun readOneBy$colClass(value:$colType):$pType {")
-        out.tab(2).println("return readOne($colIdentifier.eq(value),$fullJavaTableName)")
+        if (lookupKey) {
+            // served from the entity cache (if configured), loaded in batches (if enabled)
+            out.tab(2).println("return cachedOne(value) {")
+            out.tab(3).println("if (batchesKeyLookups()) lookupOne($lookupArgs)")
+            out.tab(3).println("else readOne(readOneBy${colClass}Statement(value))")
+            out.tab(2).println("}")
+        } else {
+            out.tab(2).println("return readOne(readOneBy${colClass}Statement(value))")
+        }
         out.tab(1).println("}")
         out.tab(1).println("fun rxReadOneBy$colClass(value:$colType, clientId: String?):io.reactivex.Single<$pType> {")
-        out.tab(2).println("return rxReadOne($colIdentifier.eq(value),$fullJavaTableName, clientId)")
+        if (lookupKey) {
+            out.tab(2).println("return rxCachedOne(value, clientId) {")
+            out.tab(3).println("if (batchesKeyLookups()) rxLookupOne($lookupArgs, clientId)")
+            out.tab(3).println("else rxReadOne(readOneBy${colClass}Statement(value), clientId)")
+            out.tab(2).println("}")
+        } else {
+            out.tab(2).println("return rxReadOne(readOneBy${colClass}Statement(value), clientId)")
+        }
         out.tab(1).println("}")
 
         out.tab(1).println("suspend fun readOptionalBy$colClass(value:$colType):java.util.Optional<$pType> {")
-        out.tab(2).println("return readOptional($colIdentifier.eq(value),$fullJavaTableName)")
+        if (lookupKey) {
+            out.tab(2).println("return cachedOptional(value) {")
+            out.tab(3).println("if (batchesKeyLookups()) lookupOptional($lookupArgs)")
+            out.tab(3).println("else readOptional(readOneBy${colClass}Statement(value))")
+            out.tab(2).println("}")
+        } else {
+            out.tab(2).println("return readOptional(readOneBy${colClass}Statement(value))")
+        }
         out.tab(1).println("}")
         out.tab(1)
             .println("fun rxReadOptionalBy$colClass(value:$colType, clientId: String?):io.reactivex.Single<java.util.Optional<$pType>> {")
-        out.tab(2).println("return rxReadOptional($colIdentifier.eq(value),$fullJavaTableName, clientId)")
+        if (lookupKey) {
+            out.tab(2).println("return rxCachedOptional(value, clientId) {")
+            out.tab(3).println("if (batchesKeyLookups()) rxLookupOptional($lookupArgs, clientId)")
+            out.tab(3).println("else rxReadOptional(readOneBy${colClass}Statement(value), clientId)")
+            out.tab(2).println("}")
+        } else {
+            out.tab(2).println("return rxReadOptional(readOneBy${colClass}Statement(value), clientId)")
+        }
+        out.tab(1).println("}")
+
+        out.tab(1).println("private fun readOneBy${colClass}Statement(value:$colType):io.en4ble.pgaccess.util.BoundSql {")
+        out.tab(2)
+            .println("return io.en4ble.pgaccess.util.BoundSql(staticSql($sqlConstant), io.vertx.sqlclient.Tuple.of(${dbValue(column, colIdentifier, "value")}))")
         out.tab(1).println("}")
     }
 
+    /**
+     * Generates the final sql of the fixed-shape statements of a table (so they don't have to be rendered by jOOQ
+     * at runtime) and the functions that bind their parameters.
+     */
+    private fun generateStaticSql(
+        table: TableDefinition,
+        pojoType: PojoType,
+        out: JavaWriter,
+        readonly: Boolean,
+        keyType: String
+    ) {
+        val strategy = getStrategy()
+        val columns = table.columns
+        out.tab(1).println("companion object {")
+        out.tab(2).println("const val SQL_TABLE = \"${sqlName(table.schema.outputName)}.${sqlName(table.outputName)}\"")
+        out.tab(2).println("const val SQL_COLUMNS = \"${columns.joinToString(", ") { sqlName(it.outputName) }}\"")
+        out.tab(2).println("const val SQL_SELECT = \"select \$SQL_COLUMNS from \$SQL_TABLE\"")
+        out.tab(2).println("const val SQL_COUNT = \"select count(*) from \$SQL_TABLE\"")
+        for (column in columns) {
+            val identifier = strategy.getJavaIdentifier(column)
+            if (isStaticSqlColumn(column)) {
+                out.tab(2)
+                    .println("const val SQL_READ_BY_$identifier = \"\$SQL_SELECT where ${sqlName(column.outputName)} = any(\\\$1)\"")
+            }
+            if (column.uniqueKeys.any { it.keyColumns.size == 1 } || (readonly && strategy.getJavaMemberName(column) == "id")) {
+                out.tab(2)
+                    .println("const val SQL_READ_ONE_BY_$identifier = \"\$SQL_SELECT where ${sqlName(column.outputName)} = \\\$1\"")
+            }
+        }
+        out.tab(2).println("val COLUMNS = arrayOf(${columns.joinToString(", ") { "\"${sqlName(it.outputName)}\"" }})")
+        if (!readonly) {
+            // unnest would flatten array columns
+            if (columns.any { it.type.userType.startsWith('_') }) {
+                out.tab(2).println("val UNNEST_TYPES: Array<String>? = null")
+            } else {
+                out.tab(2).println("val UNNEST_TYPES: Array<String>? = arrayOf(${columns.joinToString(", ") { "\"${unnestType(it)}\"" }})")
+            }
+        }
+        out.tab(1).println("}")
+
+        out.tab(1).println("override suspend fun readCount():Int {")
+        out.tab(2).println("return readCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null))")
+        out.tab(1).println("}")
+        out.tab(1).println("override fun rxReadCount(clientId: String?):io.reactivex.Single<Int> {")
+        out.tab(2).println("return rxReadCount(io.en4ble.pgaccess.util.BoundSql(staticSql(SQL_COUNT), null), clientId)")
+        out.tab(1).println("}")
+
+        if (!readonly) {
+            val dtoType = out.ref(getPojoName(strategy.getFullJavaClassName(table, Mode.POJO), pojoType))
+            val keyColumns = table.primaryKey.keyColumns
+            val keyIndices = keyColumns.joinToString(", ") { columns.indexOf(it).toString() }
+            out.tab(1).println(
+                "private val tableStatements = io.en4ble.pgaccess.util.TableStatements(staticSql(SQL_TABLE), COLUMNS, intArrayOf($keyIndices), UNNEST_TYPES?.map { staticSql(it) }?.toTypedArray())"
+            )
+            out.tab(1).println("override fun tableStatements():io.en4ble.pgaccess.util.TableStatements {")
+            out.tab(2).println("return tableStatements")
+            out.tab(1).println("}")
+            out.tab(1).println("override fun keyValues(id:$keyType):Array<Any?> {")
+            if (keyColumns.size == 1) {
+                val colIdentifier = ref(strategy.getFullJavaIdentifier(keyColumns[0]), colRefSegments(keyColumns[0]))
+                out.tab(2).println("return arrayOf(${dbValue(keyColumns[0], colIdentifier, "id")})")
+            } else {
+                out.tab(2).println("return arrayOf(")
+                keyColumns.forEachIndexed { i, column ->
+                    val colIdentifier = ref(strategy.getFullJavaIdentifier(column), colRefSegments(column))
+                    val separator = if (i < keyColumns.size - 1) "," else ""
+                    out.tab(3).println("${dbValue(column, colIdentifier, "id.get($i)")}$separator")
+                }
+                out.tab(2).println(")")
+            }
+            out.tab(1).println("}")
+            out.tab(1).javadoc("The database values of all columns (in the order of {@link #COLUMNS}).")
+            out.tab(1).println("override fun createValues(dto:$dtoType):Array<Any?> {")
+            out.tab(2).println("return arrayOf(")
+            columns.forEachIndexed { i, column ->
+                val colIdentifier = ref(strategy.getFullJavaIdentifier(column), colRefSegments(column))
+                val separator = if (i < columns.size - 1) "," else ""
+                out.tab(3).println("${dbValue(column, colIdentifier, "dto.${strategy.getJavaMemberName(column)}")}$separator")
+            }
+            out.tab(2).println(")")
+            out.tab(1).println("}")
+        }
+    }
+
+    // columns that can be bound without conversion, also as array (e.g. in readBy<Column>)
+    private fun isStaticSqlColumn(column: ColumnDefinition): Boolean {
+        val type = column.type
+        return type.converter == null && type.binding == null && type.javaType == null &&
+            type.userType in STATIC_SQL_TYPES
+    }
+
+    // the type a column array is bound as for unnest, user defined types are bound as text and cast
+    private fun unnestType(column: ColumnDefinition): String {
+        val type = column.type
+        return if (type.userType in UNNEST_BUILTIN_TYPES) {
+            type.userType
+        } else {
+            val schema = type.schema?.outputName
+            if (schema == null) sqlName(type.userType) else "${sqlName(schema)}.${sqlName(type.userType)}"
+        }
+    }
+
+    private fun dbValue(column: ColumnDefinition, colIdentifier: String?, value: String): String {
+        return if (isStaticSqlColumn(column)) {
+            value
+        } else {
+            "io.en4ble.pgaccess.util.JooqHelper.dbValue($colIdentifier, $value)"
+        }
+    }
+
+    // the kotlin array of a list as expected by a vararg parameter of the given type
+    private fun typedArray(list: String, type: String?): String {
+        return if (type in PRIMITIVE_ARRAY_TYPES) "$list.to${type}Array()" else "$list.toTypedArray()"
+    }
+
+    // a quoted sql identifier, escaped to be used in a kotlin string
+    private fun sqlName(name: String) = "\\\"${name.replace("\"", "\\\"\\\"")}\\\""
+
     private fun generateDbFieldMethod(
         out: JavaWriter,
         fieldMap: Map<String, String>
@@ -0,0 +1,105 @@
+package io.en4ble.pgaccess.metrics.micrometer
+
+import io.en4ble.pgaccess.metrics.DatabaseMetrics
+import io.en4ble.pgaccess.metrics.PoolUsage
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Tags
+import io.micrometer.core.instrument.Timer
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Publishes the database metrics to a Micrometer registry, tagged with the client id of the context:
+ * gauges for the pool usage (`<prefix>.pool.*`), timers for acquiring and creating connections and for
+ * transactions (tagged with the outcome), a counter of connection failures (tagged with the exception) and
+ * counters of transaction retries (tagged with the SQLSTATE) with the time they wasted.
+ *
+ * @author Mark Hofmann (mark@en4ble.io)
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+class MicrometerDatabaseMetrics(
+    val registry: MeterRegistry,
+    val prefix: String = "pgaccess"
+) : DatabaseMetrics {
+    // gauges only keep a weak reference to their source
+    private val pools = ConcurrentHashMap<String, () -> PoolUsage>()
+
+    override fun register(clientId: String, usage: () -> PoolUsage) {
+        pools[clientId] = usage
+        val tags = tags(clientId)
+        gauge("pool.max", "maximum number of connections", tags, usage) { it.maxSize }
+        gauge("pool.size", "open connections", tags, usage) { it.size }
+        gauge("pool.active", "connections in use", tags, usage) { it.active }
+        gauge("pool.idle", "open connections that are not in use", tags, usage) { it.idle }
+        gauge("pool.pending", "requests waiting for a connection", tags, usage) { it.pending }
+    }
+
+    override fun connectionAcquired(clientId: String, waitNanos: Long) {
+        timer("connections.acquire", "time to get a connection from the pool", tags(clientId))
+            .record(waitNanos, TimeUnit.NANOSECONDS)
+    }
+
+    override fun connectionCreated(clientId: String, nanos: Long) {
+        timer("connections.create", "time to open a new connection", tags(clientId))
+            .record(nanos, TimeUnit.NANOSECONDS)
+    }
+
+    override fun connectionFailed(clientId: String, error: Throwable) {
+        Counter.builder("$prefix.connections.failed")
+            .description("failed or lost connections")
+            .tags(tags(clientId).and("exception", error.javaClass.simpleName))
+            .register(registry)
+            .increment()
+    }
+
+    override fun transactionCompleted(clientId: String, nanos: Long, committed: Boolean) {
+        val outcome = if (committed) "commit" else "rollback"
+        timer("transactions", "duration of transactions", tags(clientId).and("outcome", outcome))
+            .record(nanos, TimeUnit.NANOSECONDS)
+    }
+
+    override fun transactionRetried(clientId: String, sqlState: String, wastedNanos: Long) {
+        val tags = tags(clientId).and("sqlstate", sqlState)
+        Counter.builder("$prefix.transactions.retries")
+            .description("transactions that were run again after a serialization failure or deadlock")
+            .tags(tags)
+            .register(registry)
+            .increment()
+        timer("transactions.retries.wasted", "time of failed attempts and backoffs", tags)
+            .record(wastedNanos, TimeUnit.NANOSECONDS)
+    }
+
+    override fun transactionRetryRejected(clientId: String, sqlState: String, reason: String) {
+        Counter.builder("$prefix.transactions.retries.rejected")
+            .description("retryable transaction failures that were not retried")
+            .tags(tags(clientId).and("sqlstate", sqlState).and("reason", reason))
+            .register(registry)
+            .increment()
+    }
+
+    private fun tags(clientId: String): Tags {
+        return Tags.of("clientId", clientId)
+    }
+
+    private fun gauge(
+        name: String,
+        description: String,
+        tags: Tags,
+        usage: () -> PoolUsage,
+        value: (PoolUsage) -> Int
+    ) {
+        Gauge.builder("$prefix.$name", usage) { value(it()).toDouble() }
+            .description(description)
+            .tags(tags)
+            .register(registry)
+    }
+
+    private fun timer(name: String, description: String, tags: Tags): Timer {
+        return Timer.builder("$prefix.$name")
+            .description(description)
+            .tags(tags)
+            .register(registry)
+    }
+}